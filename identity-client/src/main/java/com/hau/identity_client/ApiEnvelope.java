@@ -0,0 +1,7 @@
+package com.hau.identity_client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+// Tương ứng ApiResponse của identity-service
+@JsonIgnoreProperties(ignoreUnknown = true)
+record ApiEnvelope<T>(int status, String message, T result) {}
@@ -0,0 +1,66 @@
+package com.hau.identity_client;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.web.client.RestClient;
+
+@AutoConfiguration
+@EnableConfigurationProperties(IdentityClientProperties.class)
+@ConditionalOnProperty(prefix = "identity.client", name = "base-url")
+public class IdentityClientAutoConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnMissingBean
+    RevocationListSync revocationListSync(
+            IdentityClientProperties properties, ObjectProvider<RestClient.Builder> restClientBuilder) {
+        return new RevocationListSync(identityRestClient(properties, restClientBuilder), properties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    JwksKeySource jwksKeySource(
+            IdentityClientProperties properties, ObjectProvider<RestClient.Builder> restClientBuilder) {
+        return new JwksKeySource(identityRestClient(properties, restClientBuilder), properties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    LocalTokenVerifier localTokenVerifier(
+            IdentityClientProperties properties,
+            RevocationListSync revocationListSync,
+            JwksKeySource jwksKeySource) {
+        return new LocalTokenVerifier(properties, revocationListSync, jwksKeySource);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    RemoteIntrospectionClient remoteIntrospectionClient(
+            IdentityClientProperties properties, ObjectProvider<RestClient.Builder> restClientBuilder) {
+        return new RemoteIntrospectionClient(identityRestClient(properties, restClientBuilder));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(JwtDecoder.class)
+    IdentityJwtDecoder identityJwtDecoder(
+            IdentityClientProperties properties,
+            LocalTokenVerifier localTokenVerifier,
+            RemoteIntrospectionClient remoteIntrospectionClient,
+            RevocationListSync revocationListSync) {
+        return new IdentityJwtDecoder(
+                properties, localTokenVerifier, remoteIntrospectionClient, revocationListSync);
+    }
+
+    private static RestClient identityRestClient(
+            IdentityClientProperties properties, ObjectProvider<RestClient.Builder> restClientBuilder) {
+        return restClientBuilder
+                .getIfAvailable(RestClient::builder)
+                .clone()
+                .baseUrl(properties.getBaseUrl())
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.hau.identity_client;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "identity.client")
+public class IdentityClientProperties {
+    // Địa chỉ identity-service, ví dụ http://identity-service:8080
+    private String baseUrl;
+
+    // Phải trùng với jwt.issuer của identity-service
+    private String issuer = "identity-service";
+
+    // Khóa dùng cho token không có kid, tương ứng jwt.signerKey của identity-service
+    private String signerKey;
+
+    // Các khóa có kid, tương ứng jwt.keys của identity-service và các secret HS512 truyền vào POST /api/v1/keys/rotate;
+    // phải được thêm vào đây trước khi xoay khóa, vì secret HMAC không bao giờ được công bố qua HTTP
+    private Map<String, String> keys = new HashMap<>();
+
+    // Thời gian tối thiểu giữa hai lần tải lại /.well-known/jwks.json khi gặp kid chưa biết
+    private Duration jwksRefreshCooldown = Duration.ofSeconds(30);
+
+    private long cacheMaximumSize = 100_000;
+    private Duration cacheMaxTtl = Duration.ofMinutes(5);
+
+    private Duration revocationSyncInterval = Duration.ofSeconds(30);
+    private Duration revocationSyncOverlap = Duration.ofSeconds(10);
+
+    // Quá thời gian này mà chưa đồng bộ được danh sách thu hồi thì không tự xác thực nữa
+    private Duration revocationMaxStaleness = Duration.ofMinutes(2);
+
+    // Gọi introspect của identity-service khi không thể tự xác thực token
+    private boolean remoteFallback = true;
+
+    // Số lần gọi introspect từ xa tối đa mỗi giây; vượt quá thì token bị từ chối thay vì dồn tải sang identity-service
+    private int remoteFallbackMaxPerSecond = 50;
+
+    // Token đã bị từ chối được nhớ theo digest trong khoảng này, gửi lại không tốn thêm lần xác thực hay gọi từ xa
+    private long rejectedCacheMaximumSize = 100_000;
+    private Duration rejectedCacheTtl = Duration.ofSeconds(30);
+
+    // Thông tin đăng nhập HTTP Basic của service này, khớp với service.clients của identity-service; bắt buộc để đọc
+    // danh sách thu hồi
+    private String clientId;
+    private String clientSecret;
+}
@@ -0,0 +1,214 @@
+package com.hau.identity_client;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
+import org.springframework.web.client.RestClientException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * {@link JwtDecoder} cho các service dùng token của identity-service: tự xác thực token, cache kết quả và chỉ gọi
+ * introspect từ xa khi không thể tự quyết định. Token bị từ chối cũng được nhớ theo digest một thời gian ngắn, và số
+ * lần gọi từ xa mỗi giây bị giới hạn, để token giả mạo (kid lạ) không biến thành tải dồn sang identity-service.
+ */
+public class IdentityJwtDecoder implements JwtDecoder {
+
+    private static final MappedJwtClaimSetConverter CLAIM_SET_CONVERTER =
+            MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
+
+    private final LocalTokenVerifier localTokenVerifier;
+    private final RemoteIntrospectionClient remoteIntrospectionClient;
+    private final RevocationListSync revocationListSync;
+    private final boolean remoteFallback;
+    private final int remoteFallbackMaxPerSecond;
+    private final Cache<String, Jwt> cache;
+    private final Cache<String, String> rejected;
+
+    // Cửa sổ giới hạn gọi từ xa: 32 bit cao là giây hiện tại, 32 bit thấp là số lần đã gọi trong giây đó
+    private final AtomicLong remoteWindow = new AtomicLong();
+
+    private final AtomicLong localVerifications = new AtomicLong();
+    private final AtomicLong remoteIntrospections = new AtomicLong();
+    private final AtomicLong remoteThrottled = new AtomicLong();
+
+    public IdentityJwtDecoder(
+            IdentityClientProperties properties,
+            LocalTokenVerifier localTokenVerifier,
+            RemoteIntrospectionClient remoteIntrospectionClient,
+            RevocationListSync revocationListSync) {
+        this.localTokenVerifier = localTokenVerifier;
+        this.remoteIntrospectionClient = remoteIntrospectionClient;
+        this.revocationListSync = revocationListSync;
+        this.remoteFallback = properties.isRemoteFallback();
+        this.remoteFallbackMaxPerSecond = properties.getRemoteFallbackMaxPerSecond();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaximumSize())
+                .expireAfter(new TokenExpiry(properties.getCacheMaxTtl().toNanos()))
+                .recordStats()
+                .build();
+        this.rejected = Caffeine.newBuilder()
+                .maximumSize(properties.getRejectedCacheMaximumSize())
+                .expireAfterWrite(properties.getRejectedCacheTtl())
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        if (token == null || token.isEmpty()) {
+            throw new JwtException("Token không được cung cấp");
+        }
+
+        String key = digest(token);
+        Jwt cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (revocationListSync.isRevoked(cached.getId())) {
+                cache.invalidate(key);
+                throw new BadJwtException("Token đã hết hiệu lực");
+            }
+            return cached;
+        }
+        String rejection = rejected.getIfPresent(key);
+        if (rejection != null) {
+            throw new BadJwtException(rejection);
+        }
+
+        Jwt jwt;
+        try {
+            LocalTokenVerifier.Result result = localTokenVerifier.verify(token);
+            jwt = switch (result.outcome()) {
+                case VALID -> {
+                    localVerifications.incrementAndGet();
+                    yield toJwt(token, result.signedJWT());
+                }
+                case INVALID -> throw new BadJwtException(result.error());
+                case UNVERIFIABLE -> introspectRemotely(token, result);
+            };
+        } catch (BadJwtException e) {
+            // Chỉ nhớ kết luận chắc chắn; lỗi kết nối hay bị giới hạn tần suất thì lần sau được thử lại
+            rejected.put(key, e.getMessage());
+            throw e;
+        }
+        cache.put(key, jwt);
+        return jwt;
+    }
+
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    public long localVerifications() {
+        return localVerifications.get();
+    }
+
+    public CacheStats rejectedCacheStats() {
+        return rejected.stats();
+    }
+
+    public long remoteIntrospections() {
+        return remoteIntrospections.get();
+    }
+
+    public long remoteThrottled() {
+        return remoteThrottled.get();
+    }
+
+    private Jwt introspectRemotely(String token, LocalTokenVerifier.Result result) {
+        if (!remoteFallback) {
+            throw new BadJwtException(result.error());
+        }
+        if (!tryAcquireRemotePermit()) {
+            remoteThrottled.incrementAndGet();
+            throw new JwtException("Quá nhiều token cần kiểm tra với identity-service, vui lòng thử lại sau");
+        }
+        remoteIntrospections.incrementAndGet();
+        boolean valid;
+        try {
+            valid = remoteIntrospectionClient.isValid(token);
+        } catch (RestClientException e) {
+            throw new JwtException("Không thể kiểm tra token với identity-service: " + e.getMessage());
+        }
+        if (!valid) {
+            throw new BadJwtException("Token không hợp lệ");
+        }
+        return toJwt(token, result.signedJWT());
+    }
+
+    private boolean tryAcquireRemotePermit() {
+        long second = System.currentTimeMillis() / 1000;
+        while (true) {
+            long window = remoteWindow.get();
+            long calls = window >>> 32 == second ? window & 0xFFFFFFFFL : 0;
+            if (calls >= remoteFallbackMaxPerSecond) {
+                return false;
+            }
+            if (remoteWindow.compareAndSet(window, second << 32 | (calls + 1))) {
+                return true;
+            }
+        }
+    }
+
+    private static Jwt toJwt(String token, SignedJWT signedJWT) {
+        try {
+            Map<String, Object> headers = signedJWT.getHeader().toJSONObject();
+            Map<String, Object> claims = CLAIM_SET_CONVERTER.convert(
+                    signedJWT.getJWTClaimsSet().toJSONObject());
+            return Jwt.withTokenValue(token)
+                    .headers(h -> h.putAll(headers))
+                    .claims(c -> c.putAll(claims))
+                    .build();
+        } catch (ParseException e) {
+            throw new BadJwtException("Token không hợp lệ");
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+
+    private record TokenExpiry(long maxTtlNanos) implements Expiry<String, Jwt> {
+
+        @Override
+        public long expireAfterCreate(String key, Jwt value, long currentTime) {
+            Instant expiresAt = value.getExpiresAt();
+            if (expiresAt == null) {
+                return 0;
+            }
+            long untilExpiry = Duration.between(Instant.now(), expiresAt).toNanos();
+            return Math.max(0, Math.min(maxTtlNanos, untilExpiry));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Jwt value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Jwt value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.hau.identity_client;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.Ed25519Verifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Public key của identity-service lấy từ {@code /.well-known/jwks.json}. Tập khóa chỉ được tải lại khi gặp kid chưa
+ * biết, tối đa một lần trong {@code jwks-refresh-cooldown}.
+ */
+@Slf4j
+public class JwksKeySource {
+
+    private final RestClient restClient;
+    private final Duration refreshCooldown;
+
+    private volatile Map<String, JWSVerifier> verifiers = Map.of();
+    private volatile Instant lastRefresh = Instant.EPOCH;
+
+    public JwksKeySource(RestClient restClient, IdentityClientProperties properties) {
+        this.restClient = restClient;
+        this.refreshCooldown = properties.getJwksRefreshCooldown();
+    }
+
+    public JWSVerifier verifier(String kid) {
+        JWSVerifier verifier = verifiers.get(kid);
+        if (verifier == null && refreshAllowed()) {
+            refresh();
+            verifier = verifiers.get(kid);
+        }
+        return verifier;
+    }
+
+    public synchronized void refresh() {
+        if (!refreshAllowed()) {
+            return;
+        }
+        lastRefresh = Instant.now();
+        try {
+            String body = restClient.get().uri("/.well-known/jwks.json").retrieve().body(String.class);
+            if (body == null) {
+                return;
+            }
+            Map<String, JWSVerifier> loaded = new HashMap<>();
+            for (JWK jwk : JWKSet.parse(body).getKeys()) {
+                JWSVerifier verifier = createVerifier(jwk);
+                if (verifier != null && jwk.getKeyID() != null) {
+                    loaded.put(jwk.getKeyID(), verifier);
+                }
+            }
+            verifiers = Map.copyOf(loaded);
+        } catch (RestClientException | ParseException e) {
+            log.warn("Không thể tải JWKS từ identity-service: {}", e.getMessage());
+        }
+    }
+
+    private boolean refreshAllowed() {
+        return Duration.between(lastRefresh, Instant.now()).compareTo(refreshCooldown) >= 0;
+    }
+
+    private static JWSVerifier createVerifier(JWK jwk) {
+        try {
+            if (jwk instanceof RSAKey rsaKey) {
+                return new RSASSAVerifier(rsaKey);
+            }
+            if (jwk instanceof ECKey ecKey) {
+                return new ECDSAVerifier(ecKey);
+            }
+            if (jwk instanceof OctetKeyPair okp) {
+                return new Ed25519Verifier(okp);
+            }
+        } catch (JOSEException e) {
+            log.warn("Bỏ qua khóa {} trong JWKS: {}", jwk.getKeyID(), e.getMessage());
+        }
+        return null;
+    }
+}
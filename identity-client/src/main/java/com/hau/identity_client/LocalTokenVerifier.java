@@ -0,0 +1,120 @@
+package com.hau.identity_client;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * Xác thực token ngay tại service gọi, theo đúng các quy tắc của {@code TokenService.validateTokenClaims} ở
+ * identity-service: chữ ký, exp, issuer, iat và danh sách thu hồi. Token HS512 dùng secret chia sẻ, token
+ * RS256/ES256/EdDSA dùng public key từ JWKS.
+ */
+public class LocalTokenVerifier {
+
+    public enum Outcome {
+        VALID,
+        INVALID,
+        // Không đủ thông tin để tự quyết định (khóa lạ, danh sách thu hồi quá cũ), cần hỏi identity-service
+        UNVERIFIABLE
+    }
+
+    public record Result(Outcome outcome, SignedJWT signedJWT, String error) {
+        static Result valid(SignedJWT signedJWT) {
+            return new Result(Outcome.VALID, signedJWT, null);
+        }
+
+        static Result invalid(String error) {
+            return new Result(Outcome.INVALID, null, error);
+        }
+
+        static Result unverifiable(SignedJWT signedJWT, String error) {
+            return new Result(Outcome.UNVERIFIABLE, signedJWT, error);
+        }
+    }
+
+    private final String issuer;
+    private final JWSVerifier legacyVerifier;
+    private final Map<String, JWSVerifier> verifiers = new HashMap<>();
+    private final RevocationListSync revocationListSync;
+    private final JwksKeySource jwksKeySource;
+
+    public LocalTokenVerifier(
+            IdentityClientProperties properties, RevocationListSync revocationListSync, JwksKeySource jwksKeySource) {
+        this.issuer = properties.getIssuer();
+        this.revocationListSync = revocationListSync;
+        this.jwksKeySource = jwksKeySource;
+        this.legacyVerifier = properties.getSignerKey() == null ? null : createVerifier(properties.getSignerKey());
+        properties.getKeys().forEach((kid, secret) -> verifiers.put(kid, createVerifier(secret)));
+    }
+
+    public Result verify(String token) {
+        SignedJWT signedJWT;
+        JWTClaimsSet claimsSet;
+        try {
+            signedJWT = SignedJWT.parse(token);
+            claimsSet = signedJWT.getJWTClaimsSet();
+        } catch (ParseException e) {
+            return Result.invalid("Token không hợp lệ");
+        }
+
+        String kid = signedJWT.getHeader().getKeyID();
+        JWSVerifier verifier = resolveVerifier(signedJWT.getHeader().getAlgorithm(), kid);
+        if (verifier == null) {
+            return Result.unverifiable(signedJWT, "Không có khóa cho kid: " + kid);
+        }
+
+        try {
+            if (!signedJWT.verify(verifier)) {
+                return Result.invalid("Chữ ký token không hợp lệ");
+            }
+        } catch (JOSEException e) {
+            return Result.invalid("Token không hợp lệ");
+        }
+
+        Date now = new Date();
+        Date expirationTime = claimsSet.getExpirationTime();
+        if (expirationTime == null || expirationTime.before(now)) {
+            return Result.invalid("Token đã hết hạn");
+        }
+        if (claimsSet.getIssuer() == null || !claimsSet.getIssuer().equals(issuer)) {
+            return Result.invalid("Token issuer không hợp lệ");
+        }
+        if (claimsSet.getIssueTime() != null && claimsSet.getIssueTime().after(now)) {
+            return Result.invalid("Token chưa có hiệu lực");
+        }
+
+        if (!revocationListSync.isFresh()) {
+            return Result.unverifiable(signedJWT, "Danh sách token bị thu hồi chưa được đồng bộ");
+        }
+        if (revocationListSync.isRevoked(claimsSet.getJWTID())) {
+            return Result.invalid("Token đã hết hiệu lực");
+        }
+        return Result.valid(signedJWT);
+    }
+
+    private JWSVerifier resolveVerifier(JWSAlgorithm algorithm, String kid) {
+        if (JWSAlgorithm.Family.HMAC_SHA.contains(algorithm)) {
+            return kid == null ? legacyVerifier : verifiers.get(kid);
+        }
+        // Token ký bằng khóa bất đối xứng: public key lấy từ JWKS, không cần chia sẻ secret
+        return kid == null || jwksKeySource == null ? null : jwksKeySource.verifier(kid);
+    }
+
+    private static JWSVerifier createVerifier(String secret) {
+        try {
+            return new MACVerifier(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+        } catch (JOSEException e) {
+            throw new IllegalArgumentException("Khóa không hợp lệ: " + e.getMessage(), e);
+        }
+    }
+}
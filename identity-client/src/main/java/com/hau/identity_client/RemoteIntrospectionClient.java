@@ -0,0 +1,36 @@
+package com.hau.identity_client;
+
+import java.util.Map;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+// Gọi POST /api/v1/auth/introspect của identity-service
+public class RemoteIntrospectionClient {
+
+    private static final ParameterizedTypeReference<ApiEnvelope<IntrospectResult>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final RestClient restClient;
+
+    public RemoteIntrospectionClient(RestClient restClient) {
+        this.restClient = restClient;
+    }
+
+    public boolean isValid(String token) {
+        ApiEnvelope<IntrospectResult> response = restClient
+                .post()
+                .uri("/api/v1/auth/introspect")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("token", token))
+                .retrieve()
+                .body(RESPONSE_TYPE);
+        return response != null && response.result() != null && response.result().valid();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record IntrospectResult(boolean valid, String username) {}
+}
@@ -0,0 +1,122 @@
+package com.hau.identity_client;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bản sao cục bộ danh sách token bị thu hồi, đồng bộ tăng dần từ {@code GET /api/v1/auth/revocations}.
+ */
+@Slf4j
+public class RevocationListSync implements AutoCloseable {
+
+    private static final ParameterizedTypeReference<ApiEnvelope<RevocationList>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final RestClient restClient;
+    private final IdentityClientProperties properties;
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private volatile Date serverSince;
+    private volatile Instant lastSuccess;
+
+    public RevocationListSync(RestClient restClient, IdentityClientProperties properties) {
+        this.restClient = restClient;
+        this.properties = properties;
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "identity-revocation-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = properties.getRevocationSyncInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::sync, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void sync() {
+        Date since = serverSince;
+        try {
+            ApiEnvelope<RevocationList> response = restClient
+                    .get()
+                    .uri(uri -> {
+                        uri.path("/api/v1/auth/revocations");
+                        if (since != null) {
+                            long overlap = properties.getRevocationSyncOverlap().toMillis();
+                            uri.queryParam("since", since.getTime() - overlap);
+                        }
+                        return uri.build();
+                    })
+                    .headers(headers -> {
+                        if (properties.getClientId() != null) {
+                            headers.setBasicAuth(properties.getClientId(), properties.getClientSecret());
+                        }
+                    })
+                    .retrieve()
+                    .body(RESPONSE_TYPE);
+
+            if (response == null || response.result() == null) {
+                log.warn("identity-service trả về danh sách thu hồi rỗng");
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            RevocationList revocationList = response.result();
+            if (revocationList.tokens() != null) {
+                revocationList.tokens().stream()
+                        .filter(token -> token.jti() != null && token.expiryTime() != null)
+                        .forEach(token -> revokedTokens.put(token.jti(), token.expiryTime().getTime()));
+            }
+            revokedTokens.values().removeIf(expiry -> expiry <= now);
+
+            serverSince = revocationList.syncedAt();
+            lastSuccess = Instant.now();
+        } catch (RestClientException e) {
+            log.warn("Không thể đồng bộ danh sách token bị thu hồi: {}", e.getMessage());
+        }
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && revokedTokens.containsKey(jti);
+    }
+
+    // Dữ liệu đủ mới để tự quyết định token còn hiệu lực hay không
+    public boolean isFresh() {
+        Instant success = lastSuccess;
+        return success != null
+                && Duration.between(success, Instant.now()).compareTo(properties.getRevocationMaxStaleness()) <= 0;
+    }
+
+    public int size() {
+        return revokedTokens.size();
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RevocationList(Date syncedAt, List<RevokedToken> tokens) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RevokedToken(String jti, Date expiryTime) {}
+}
@@ -0,0 +1,273 @@
+package com.hau.identity_client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.web.client.RestClient;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class IdentityJwtDecoderTest {
+
+    private static final String SIGNER_KEY = "legacy-secret-legacy-secret-legacy-secret-legacy-secret-legacy-1";
+    private static final String ROTATED_KEY = "rotated-secret-rotated-secret-rotated-secret-rotated-secret-00001";
+
+    private static final ECKey EC_KEY = generateEcKey();
+
+    private HttpServer server;
+    private final AtomicInteger introspectCalls = new AtomicInteger();
+    private final AtomicBoolean introspectValid = new AtomicBoolean(true);
+    private final AtomicReference<String> revokedJti = new AtomicReference<>();
+    private final AtomicReference<String> revocationsAuthorization = new AtomicReference<>();
+    // Khóa đang ký của identity-service giả lập, dạng {kid, secret}
+    private final AtomicReference<String[]> activeKey = new AtomicReference<>(new String[] {"default", SIGNER_KEY});
+
+    private IdentityClientProperties properties;
+    private RestClient restClient;
+    private RevocationListSync revocationListSync;
+    private IdentityJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v1/auth/revocations", this::revocations);
+        server.createContext(
+                "/.well-known/jwks.json",
+                exchange -> respond(exchange, new JWKSet(EC_KEY.toPublicJWK()).toString()));
+        server.createContext("/api/v1/auth/introspect", exchange -> {
+            introspectCalls.incrementAndGet();
+            respond(exchange, "{\"status\":200,\"result\":{\"valid\":" + introspectValid.get() + "}}");
+        });
+        server.start();
+
+        properties = new IdentityClientProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        properties.setSignerKey(SIGNER_KEY);
+        properties.setClientId("orders");
+        properties.setClientSecret("orders-secret");
+
+        restClient = RestClient.builder().baseUrl(properties.getBaseUrl()).build();
+        revocationListSync = new RevocationListSync(restClient, properties);
+        revocationListSync.sync();
+        decoder = newDecoder();
+    }
+
+    private IdentityJwtDecoder newDecoder() {
+        return new IdentityJwtDecoder(
+                properties,
+                new LocalTokenVerifier(properties, revocationListSync, new JwksKeySource(restClient, properties)),
+                new RemoteIntrospectionClient(restClient),
+                revocationListSync);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void verifiesLocallyWithoutCallingIdentityService() throws Exception {
+        String jti = UUID.randomUUID().toString();
+        Jwt jwt = decoder.decode(sign(null, SIGNER_KEY, jti, Instant.now().plus(1, ChronoUnit.HOURS)));
+
+        assertThat(jwt.getSubject()).isEqualTo("admin");
+        assertThat(jwt.getId()).isEqualTo(jti);
+        assertThat(decoder.localVerifications()).isEqualTo(1);
+        assertThat(introspectCalls).hasValue(0);
+    }
+
+    @Test
+    void servesRepeatedTokensFromCache() throws Exception {
+        String token = sign(null, SIGNER_KEY, UUID.randomUUID().toString(), Instant.now().plus(1, ChronoUnit.HOURS));
+
+        decoder.decode(token);
+        decoder.decode(token);
+
+        assertThat(decoder.localVerifications()).isEqualTo(1);
+        assertThat(decoder.cacheStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsTokenRevokedAfterSync() throws Exception {
+        String jti = UUID.randomUUID().toString();
+        String token = sign(null, SIGNER_KEY, jti, Instant.now().plus(1, ChronoUnit.HOURS));
+        decoder.decode(token);
+
+        revokedJti.set(jti);
+        revocationListSync.sync();
+
+        assertThatThrownBy(() -> decoder.decode(token)).isInstanceOf(BadJwtException.class);
+    }
+
+    @Test
+    void rejectsExpiredToken() throws Exception {
+        String token = sign(null, SIGNER_KEY, UUID.randomUUID().toString(), Instant.now().minusSeconds(5));
+
+        assertThatThrownBy(() -> decoder.decode(token)).isInstanceOf(BadJwtException.class);
+        assertThat(introspectCalls).hasValue(0);
+    }
+
+    @Test
+    void fallsBackToIntrospectionForUnknownKid() throws Exception {
+        Jwt jwt = decoder.decode(
+                sign("rotated", ROTATED_KEY, UUID.randomUUID().toString(), Instant.now().plus(1, ChronoUnit.HOURS)));
+
+        assertThat(jwt.getSubject()).isEqualTo("admin");
+        assertThat(decoder.remoteIntrospections()).isEqualTo(1);
+        assertThat(introspectCalls).hasValue(1);
+    }
+
+    @Test
+    void verifiesTokensLocallyAcrossHmacKeyRotation() throws Exception {
+        // Cặp kid:secret truyền vào POST /api/v1/keys/rotate được khai báo cho service trước khi xoay
+        properties.getKeys().put("default", SIGNER_KEY);
+        properties.getKeys().put("hs-2", ROTATED_KEY);
+        decoder = newDecoder();
+        String beforeRotation = issue();
+
+        rotate("hs-2", ROTATED_KEY);
+        String afterRotation = issue();
+
+        assertThat(SignedJWT.parse(afterRotation).getHeader().getKeyID()).isEqualTo("hs-2");
+        assertThat(decoder.decode(beforeRotation).getSubject()).isEqualTo("admin");
+        assertThat(decoder.decode(afterRotation).getSubject()).isEqualTo("admin");
+        assertThat(decoder.localVerifications()).isEqualTo(2);
+        assertThat(decoder.remoteIntrospections()).isZero();
+        assertThat(introspectCalls).hasValue(0);
+    }
+
+    @Test
+    void remembersRejectedTokenInsteadOfIntrospectingAgain() throws Exception {
+        introspectValid.set(false);
+        String forged =
+                sign("forged", ROTATED_KEY, UUID.randomUUID().toString(), Instant.now().plus(1, ChronoUnit.HOURS));
+
+        assertThatThrownBy(() -> decoder.decode(forged)).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode(forged)).isInstanceOf(BadJwtException.class);
+
+        assertThat(introspectCalls).hasValue(1);
+        assertThat(decoder.rejectedCacheStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void limitsRemoteIntrospectionsPerSecond() throws Exception {
+        properties.setRemoteFallbackMaxPerSecond(2);
+        decoder = newDecoder();
+
+        int throttled = 0;
+        for (int i = 0; i < 10; i++) {
+            String token = sign("forged", ROTATED_KEY, UUID.randomUUID().toString(),
+                    Instant.now().plus(1, ChronoUnit.HOURS));
+            try {
+                decoder.decode(token);
+            } catch (JwtException e) {
+                throttled++;
+            }
+        }
+
+        // Vòng lặp có thể vắt qua ranh giới giây nên cho phép tối đa hai cửa sổ
+        assertThat(introspectCalls.get()).isBetween(2, 4);
+        assertThat(throttled).isEqualTo(10 - introspectCalls.get());
+        assertThat(decoder.remoteThrottled()).isEqualTo(throttled);
+    }
+
+    @Test
+    void syncsRevocationsWithClientCredentials() {
+        assertThat(revocationsAuthorization.get()).isEqualTo("Basic b3JkZXJzOm9yZGVycy1zZWNyZXQ=");
+    }
+
+    @Test
+    void verifiesAsymmetricTokenWithPublishedKeys() throws Exception {
+        JWTClaimsSet claimsSet = claims(UUID.randomUUID().toString(), Instant.now().plus(1, ChronoUnit.HOURS));
+        SignedJWT signedJWT = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.ES256).keyID(EC_KEY.getKeyID()).build(), claimsSet);
+        signedJWT.sign(new ECDSASigner(EC_KEY));
+
+        Jwt jwt = decoder.decode(signedJWT.serialize());
+
+        assertThat(jwt.getSubject()).isEqualTo("admin");
+        assertThat(decoder.localVerifications()).isEqualTo(1);
+        assertThat(introspectCalls).hasValue(0);
+    }
+
+    private void rotate(String kid, String secret) {
+        activeKey.set(new String[] {kid, secret});
+    }
+
+    private String issue() throws Exception {
+        String[] key = activeKey.get();
+        return sign(key[0], key[1], UUID.randomUUID().toString(), Instant.now().plus(1, ChronoUnit.HOURS));
+    }
+
+    private void revocations(HttpExchange exchange) throws IOException {
+        revocationsAuthorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+        String jti = revokedJti.get();
+        String tokens = jti == null
+                ? "[]"
+                : "[{\"jti\":\"" + jti + "\",\"expiryTime\":" + (System.currentTimeMillis() + 3_600_000) + "}]";
+        respond(exchange, "{\"status\":200,\"result\":{\"syncedAt\":" + System.currentTimeMillis() + ",\"tokens\":"
+                + tokens + "}}");
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private static String sign(String kid, String secret, String jti, Instant expiresAt) throws Exception {
+        JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.HS512).keyID(kid).build();
+        SignedJWT signedJWT = new SignedJWT(header, claims(jti, expiresAt));
+        signedJWT.sign(new MACSigner(secret.getBytes(StandardCharsets.UTF_8)));
+        return signedJWT.serialize();
+    }
+
+    private static JWTClaimsSet claims(String jti, Instant expiresAt) {
+        return new JWTClaimsSet.Builder()
+                .subject("admin")
+                .issuer("identity-service")
+                .issueTime(new Date())
+                .expirationTime(Date.from(expiresAt))
+                .jwtID(jti)
+                .build();
+    }
+
+    private static ECKey generateEcKey() {
+        try {
+            return new ECKeyGenerator(Curve.P_256).keyID("es256-test").generate();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
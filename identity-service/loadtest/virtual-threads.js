@@ -0,0 +1,79 @@
+// So sánh profile mặc định (platform thread) với profile virtual-threads bằng k6 (https://k6.io).
+//
+// Chạy cùng một kịch bản cho từng profile, trên cùng database và cùng cấu hình Hikari:
+//   java -jar target/identity-service.jar                                          # platform thread
+//   java -jar target/identity-service.jar --spring.profiles.active=virtual-threads # virtual thread
+//   k6 run -e BASE_URL=http://localhost:8080 -e USERNAME=... -e PASSWORD=... \
+//          --summary-export=platform.json loadtest/virtual-threads.js
+//
+// Kết quả p50/p99 và throughput của từng nhóm request nằm trong http_req_duration{name:...} và http_reqs.
+// Kịch bản này chưa được chạy nên repo chưa có số liệu p50/p99 nào cho profile virtual-threads; chỉ nên bật profile
+// trên production sau khi đã chạy so sánh này trên phần cứng tương đương.
+// Trong lúc chạy profile virtual-threads, theo dõi thêm /actuator/metrics/datasource.limiter.waiting,
+// datasource.limiter.rejected và jvm.threads.virtual.pinned.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const USERNAME = __ENV.USERNAME;
+const PASSWORD = __ENV.PASSWORD;
+const RATE = Number(__ENV.RATE || 500);
+const DURATION = __ENV.DURATION || '2m';
+
+export const options = {
+    summaryTrendStats: ['avg', 'med', 'p(90)', 'p(99)', 'max'],
+    scenarios: {
+        // Đọc thông tin người dùng: chủ yếu chờ JDBC
+        userInfo: {
+            executor: 'constant-arrival-rate',
+            exec: 'userInfo',
+            rate: RATE,
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 200,
+            maxVUs: 2000,
+        },
+        // Đăng nhập: băm mật khẩu (pool riêng) và truy vấn database
+        login: {
+            executor: 'constant-arrival-rate',
+            exec: 'login',
+            rate: Math.max(1, Math.floor(RATE / 20)),
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 50,
+            maxVUs: 500,
+        },
+    },
+};
+
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+function authenticate() {
+    const res = http.post(
+        `${BASE_URL}/api/v1/auth/login`,
+        JSON.stringify({ username: USERNAME, password: PASSWORD }),
+        { headers: JSON_HEADERS, tags: { name: 'login' } },
+    );
+    check(res, { 'login 200': (r) => r.status === 200 });
+    return res.status === 200 ? res.json('result.token') : null;
+}
+
+export function setup() {
+    const token = authenticate();
+    if (!token) {
+        throw new Error('Không đăng nhập được, kiểm tra USERNAME/PASSWORD');
+    }
+    return { token };
+}
+
+export function userInfo(data) {
+    const res = http.get(`${BASE_URL}/api/v1/users/info`, {
+        headers: { Authorization: `Bearer ${data.token}` },
+        tags: { name: 'userInfo' },
+    });
+    check(res, { 'userInfo 200': (r) => r.status === 200 });
+}
+
+export function login() {
+    authenticate();
+}
@@ -0,0 +1,229 @@
+package com.hau.identity_service.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.activation.DataSource;
+
+/**
+ * Template email đã tách sẵn thành các đoạn tĩnh (byte UTF-8) xen kẽ với biến. Chỉ hỗ trợ {@code th:text="${biến}"}
+ * trên phần tử không lồng cùng thẻ, đủ cho các template email đơn giản; template dùng cú pháp Thymeleaf khác bị từ
+ * chối khi biên dịch. Phần văn bản thuần được sinh từ cùng template với cùng các biến.
+ *
+ * <p>Instance bất biến, dùng chung giữa các thread.
+ */
+public final class CompiledEmailTemplate {
+
+    private static final Pattern TH_TEXT = Pattern.compile(
+            "<(\\w+)([^>]*?)\\s+th:text=\"\\$\\{(\\w+)}\"([^>]*)>.*?</\\1>", Pattern.DOTALL);
+    private static final Pattern TH_NAMESPACE = Pattern.compile("\\s+xmlns:th=\"[^\"]*\"");
+    private static final Pattern TH_ATTRIBUTE = Pattern.compile("\\sth:[\\w-]+\\s*=");
+    private static final Pattern SLOT = Pattern.compile("\u0001(\\d+)\u0001");
+
+    private final String name;
+    private final String[] slots;
+    private final byte[][] htmlFragments;
+    private final byte[][] textFragments;
+
+    private CompiledEmailTemplate(String name, String[] slots, byte[][] htmlFragments, byte[][] textFragments) {
+        this.name = name;
+        this.slots = slots;
+        this.htmlFragments = htmlFragments;
+        this.textFragments = textFragments;
+    }
+
+    public static CompiledEmailTemplate compile(String name, String source) {
+        List<String> slots = new ArrayList<>();
+        Matcher matcher = TH_TEXT.matcher(TH_NAMESPACE.matcher(source).replaceFirst(""));
+        StringBuilder marked = new StringBuilder();
+        while (matcher.find()) {
+            String element = "<" + matcher.group(1) + matcher.group(2) + matcher.group(4) + ">" + "\u0001"
+                    + slots.size() + "\u0001" + "</" + matcher.group(1) + ">";
+            slots.add(matcher.group(3));
+            matcher.appendReplacement(marked, Matcher.quoteReplacement(element));
+        }
+        matcher.appendTail(marked);
+
+        String html = marked.toString();
+        if (TH_ATTRIBUTE.matcher(html).find()) {
+            throw new IllegalArgumentException("Template " + name + " dùng cú pháp Thymeleaf không hỗ trợ biên dịch sẵn");
+        }
+        return new CompiledEmailTemplate(
+                name, slots.toArray(String[]::new), split(html, slots.size()), split(toText(html), slots.size()));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<String> variableNames() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(List.of(slots)));
+    }
+
+    public DataSource html(Map<String, String> variables) {
+        return new FragmentDataSource(
+                "text/html; charset=UTF-8", htmlFragments, values(variables, CompiledEmailTemplate::escapeHtml));
+    }
+
+    public DataSource text(Map<String, String> variables) {
+        return new FragmentDataSource("text/plain; charset=UTF-8", textFragments, values(variables, v -> v));
+    }
+
+    /** Ghép toàn bộ HTML vào một mảng byte đúng kích thước, không qua String trung gian. */
+    public byte[] renderHtml(Map<String, String> variables) {
+        return concat(htmlFragments, values(variables, CompiledEmailTemplate::escapeHtml));
+    }
+
+    public byte[] renderText(Map<String, String> variables) {
+        return concat(textFragments, values(variables, v -> v));
+    }
+
+    private byte[][] values(Map<String, String> variables, UnaryOperator<String> encoder) {
+        byte[][] values = new byte[slots.length][];
+        for (int i = 0; i < slots.length; i++) {
+            String value = variables.get(slots[i]);
+            values[i] = value == null ? new byte[0] : encoder.apply(value).getBytes(StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static byte[] concat(byte[][] fragments, byte[][] values) {
+        int length = 0;
+        for (byte[] fragment : fragments) {
+            length += fragment.length;
+        }
+        for (byte[] value : values) {
+            length += value.length;
+        }
+
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < fragments.length; i++) {
+            System.arraycopy(fragments[i], 0, result, offset, fragments[i].length);
+            offset += fragments[i].length;
+            if (i < values.length) {
+                System.arraycopy(values[i], 0, result, offset, values[i].length);
+                offset += values[i].length;
+            }
+        }
+        return result;
+    }
+
+    // Tách theo các dấu slot; slot được đánh số theo thứ tự xuất hiện nên cũng là thứ tự trong mảng biến
+    private static byte[][] split(String marked, int slotCount) {
+        byte[][] fragments = new byte[slotCount + 1][];
+        Matcher matcher = SLOT.matcher(marked);
+        int start = 0;
+        int index = 0;
+        while (matcher.find()) {
+            if (Integer.parseInt(matcher.group(1)) != index) {
+                throw new IllegalStateException("Thứ tự biến trong template không hợp lệ");
+            }
+            fragments[index++] = marked.substring(start, matcher.start()).getBytes(StandardCharsets.UTF_8);
+            start = matcher.end();
+        }
+        fragments[index] = marked.substring(start).getBytes(StandardCharsets.UTF_8);
+        return fragments;
+    }
+
+    // Xuống dòng trong mã nguồn HTML không có nghĩa; chỉ thẻ khối, <br> và <li> mới tạo dòng mới trong bản text
+    private static String toText(String html) {
+        String text = html.replaceAll("(?is)<!DOCTYPE[^>]*>|<head>.*?</head>", "")
+                .replaceAll("\\s+", " ")
+                .replaceAll("(?i)<br\\s*/?>", "\n")
+                .replaceAll("(?i)<li[^>]*>", "\n- ")
+                .replaceAll("(?i)</?(p|div|h\\d|ul|ol)(\\s[^>]*)?>", "\n\n")
+                .replaceAll("<[^>]+>", "")
+                .replace("&nbsp;", " ")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&amp;", "&");
+
+        StringBuilder result = new StringBuilder();
+        boolean pendingBlankLine = false;
+        for (String line : text.split("\n")) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty()) {
+                pendingBlankLine = !result.isEmpty();
+                continue;
+            }
+            if (pendingBlankLine) {
+                result.append('\n');
+                pendingBlankLine = false;
+            }
+            result.append(trimmed).append('\n');
+        }
+        return result.toString();
+    }
+
+    private static String escapeHtml(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement =
+                    switch (value.charAt(i)) {
+                        case '&' -> "&amp;";
+                        case '<' -> "&lt;";
+                        case '>' -> "&gt;";
+                        case '"' -> "&quot;";
+                        case '\'' -> "&#39;";
+                        default -> null;
+                    };
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(value.charAt(i));
+                }
+            }
+        }
+        return escaped == null ? value : escaped.toString();
+    }
+
+    /** Nội dung MIME đọc thẳng từ các mảng byte đã có sẵn, không ghép thành một mảng hay String. */
+    private record FragmentDataSource(String contentType, byte[][] fragments, byte[][] values) implements DataSource {
+
+        @Override
+        public InputStream getInputStream() {
+            List<InputStream> parts = new ArrayList<>(fragments.length + values.length);
+            for (int i = 0; i < fragments.length; i++) {
+                parts.add(new ByteArrayInputStream(fragments[i]));
+                if (i < values.length) {
+                    parts.add(new ByteArrayInputStream(values[i]));
+                }
+            }
+            return new SequenceInputStream(Collections.enumeration(parts));
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            throw new IOException("Nội dung email chỉ đọc");
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public String getName() {
+            return null;
+        }
+    }
+}
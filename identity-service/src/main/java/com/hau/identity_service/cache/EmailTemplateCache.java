@@ -0,0 +1,46 @@
+package com.hau.identity_service.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Template email trong {@code classpath:templates/} được biên dịch một lần thành {@link CompiledEmailTemplate}. Template
+ * không biên dịch sẵn được (dùng cú pháp Thymeleaf khác {@code th:text}) được ghi nhớ là rỗng để caller dùng
+ * TemplateEngine như cũ.
+ */
+@Slf4j
+@Component
+public class EmailTemplateCache {
+
+    private final Map<String, Optional<CompiledEmailTemplate>> templates = new ConcurrentHashMap<>();
+
+    public Optional<CompiledEmailTemplate> get(String templateName) {
+        return templates.computeIfAbsent(templateName, this::compile);
+    }
+
+    private Optional<CompiledEmailTemplate> compile(String templateName) {
+        ClassPathResource resource = new ClassPathResource("templates/" + templateName + ".html");
+        if (!resource.exists()) {
+            return Optional.empty();
+        }
+        try (InputStream inputStream = resource.getInputStream()) {
+            String source = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            return Optional.of(CompiledEmailTemplate.compile(templateName, source));
+        } catch (IllegalArgumentException e) {
+            log.info("Template {} không biên dịch sẵn được, dùng TemplateEngine: {}", templateName, e.getMessage());
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.hau.identity_service.cache;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * {@link OtpStore} trong bộ nhớ, mỗi username một entry gọn: OTP, hạn OTP, lần yêu cầu gần nhất, số lần nhập sai và
+ * thời điểm đã dùng mã đặt lại mật khẩu. Mọi thay đổi trạng thái đi qua {@code ConcurrentHashMap.compute} nên nguyên
+ * tử theo từng username.
+ *
+ * <p>Entry hết hạn được dọn bằng timer wheel: mỗi ô ứng với một giây, sweep định kỳ chỉ duyệt ô của giây vừa qua
+ * thay vì quét cả map. Số entry bị giới hạn cứng bởi {@code otp.store.maxEntries}.
+ *
+ * <p>Map không tham gia transaction, nên OTP cấp trong một transaction bị rollback được hoàn tác sau khi rollback xong
+ * để giữ cùng kết quả với {@link JdbcOtpStore}.
+ */
+@Component
+@ConditionalOnProperty(name = "otp.store.type", havingValue = "memory", matchIfMissing = true)
+@RequiredArgsConstructor
+public class InMemoryOtpStore implements OtpStore {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 512;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${jwt.otpExpiryMinutes}")
+    private long otpExpiryMinutes;
+
+    @Value("${jwt.otpRequestCooldownMinutes}")
+    private long otpRequestCooldownMinutes;
+
+    @Value("${jwt.passwordResetTokenExpiryMinutes}")
+    private long passwordResetTokenExpiryMinutes;
+
+    @Value("${otp.store.maxEntries:100000}")
+    private int maxEntries;
+
+    @Value("${otp.store.maxAttempts:5}")
+    private int maxAttempts;
+
+    private final ConcurrentHashMap<String, OtpEntry> entries = new ConcurrentHashMap<>();
+    @SuppressWarnings("unchecked")
+    private final Set<String>[] wheel = new Set[WHEEL_SIZE];
+    private long lastSweptTick;
+
+    private Counter issuedCounter;
+    private Counter cooldownCounter;
+    private Counter capacityCounter;
+    private Counter expiredCounter;
+
+    @PostConstruct
+    void init() {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+        lastSweptTick = System.currentTimeMillis() / TICK_MILLIS;
+        Gauge.builder("otp.store.size", entries, ConcurrentHashMap::size).register(meterRegistry);
+        issuedCounter = Counter.builder("otp.store.issued").register(meterRegistry);
+        cooldownCounter = Counter.builder("otp.store.rejected").tag("reason", "cooldown").register(meterRegistry);
+        capacityCounter = Counter.builder("otp.store.rejected").tag("reason", "capacity").register(meterRegistry);
+        expiredCounter = Counter.builder("otp.store.expired").register(meterRegistry);
+    }
+
+    @Override
+    public long cooldownRemaining(String username, long now) {
+        OtpEntry entry = entries.get(username);
+        return entry == null ? 0 : Math.max(0, entry.lastRequestAt() + cooldownMillis() - now);
+    }
+
+    @Override
+    public IssueResult issue(String username, int otp, long now) {
+        IssueResult[] result = new IssueResult[1];
+        OtpEntry[] previous = new OtpEntry[1];
+        OtpEntry updated = entries.compute(username, (key, entry) -> {
+            previous[0] = entry;
+            if (entry == null && entries.size() >= maxEntries) {
+                result[0] = IssueResult.capacityExceeded();
+                return null;
+            }
+            if (entry != null && entry.lastRequestAt() + cooldownMillis() > now) {
+                result[0] = IssueResult.cooldown(entry.lastRequestAt() + cooldownMillis() - now);
+                return entry;
+            }
+            result[0] = IssueResult.issued();
+            long resetConsumedAt = entry == null ? 0 : entry.resetConsumedAt();
+            return new OtpEntry(otp, now + otpExpiryMillis(), now, 0, resetConsumedAt);
+        });
+
+        switch (result[0].status()) {
+            case ISSUED -> {
+                issuedCounter.increment();
+                schedule(username, updated);
+                undoOnRollback(username, previous[0], updated);
+            }
+            case COOLDOWN -> cooldownCounter.increment();
+            case CAPACITY_EXCEEDED -> capacityCounter.increment();
+        }
+        return result[0];
+    }
+
+    @Override
+    public VerifyResult verify(String username, int otp, long now) {
+        VerifyResult[] result = {VerifyResult.MISSING};
+        entries.computeIfPresent(username, (key, entry) -> {
+            if (!entry.hasOtp()) {
+                result[0] = VerifyResult.MISSING;
+                return entry;
+            }
+            if (now > entry.otpExpiresAt()) {
+                result[0] = VerifyResult.EXPIRED;
+                return entry.withoutOtp();
+            }
+            if (entry.otp() != otp) {
+                int attempts = entry.attempts() + 1;
+                // Quá số lần nhập sai thì hủy OTP, buộc phải yêu cầu mã mới
+                result[0] = attempts >= maxAttempts ? VerifyResult.TOO_MANY_ATTEMPTS : VerifyResult.INCORRECT;
+                return attempts >= maxAttempts ? entry.withoutOtp() : entry.withAttempts(attempts);
+            }
+            result[0] = VerifyResult.VERIFIED;
+            return entry.withoutOtp();
+        });
+        meterRegistry.counter("otp.store.verifications", "result", result[0].name()).increment();
+        return result[0];
+    }
+
+    @Override
+    public boolean consumeReset(String username, long issuedAt, long now) {
+        boolean[] consumed = {false};
+        OtpEntry updated = entries.compute(username, (key, entry) -> {
+            if (entry != null && entry.resetConsumedAt() >= issuedAt) {
+                return entry;
+            }
+            consumed[0] = true;
+            return entry == null ? new OtpEntry(0, 0, 0, 0, now) : entry.withResetConsumedAt(now);
+        });
+        if (consumed[0]) {
+            schedule(username, updated);
+        }
+        return consumed[0];
+    }
+
+    @Override
+    public boolean isResetConsumed(String username, long issuedAt) {
+        OtpEntry entry = entries.get(username);
+        return entry != null && entry.resetConsumedAt() >= issuedAt;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedRate = TICK_MILLIS)
+    public void sweep() {
+        sweep(System.currentTimeMillis());
+    }
+
+    synchronized void sweep(long now) {
+        long currentTick = now / TICK_MILLIS;
+        // Không duyệt quá một vòng wheel dù sweep bị trễ lâu
+        long fromTick = Math.max(lastSweptTick + 1, currentTick - WHEEL_SIZE + 1);
+        for (long tick = fromTick; tick <= currentTick; tick++) {
+            Set<String> bucket = wheel[(int) (tick % WHEEL_SIZE)];
+            for (String username : bucket) {
+                bucket.remove(username);
+                OtpEntry remaining = entries.computeIfPresent(
+                        username, (key, entry) -> evictAt(entry) <= now ? null : entry);
+                if (remaining == null) {
+                    expiredCounter.increment();
+                } else if (bucketOf(evictAt(remaining)) == bucket) {
+                    // Hạn còn xa hơn một vòng wheel: để lại cho vòng sau
+                    bucket.add(username);
+                }
+            }
+        }
+        lastSweptTick = currentTick;
+    }
+
+    // Giữ entry tới khi OTP hết hạn, hết thời gian chờ giữa hai lần yêu cầu và mọi mã đặt lại đã dùng đều hết hạn
+    private long evictAt(OtpEntry entry) {
+        long evictAt = entry.otpExpiresAt();
+        if (entry.lastRequestAt() > 0) {
+            evictAt = Math.max(evictAt, entry.lastRequestAt() + cooldownMillis());
+        }
+        if (entry.resetConsumedAt() > 0) {
+            evictAt = Math.max(evictAt, entry.resetConsumedAt() + resetTokenExpiryMillis());
+        }
+        return evictAt;
+    }
+
+    // OTP được cấp cùng transaction với email trong outbox: transaction rollback thì email không được gửi, nên trả
+    // entry về trạng thái trước đó để user không phải chờ hết thời gian chờ của một OTP không bao giờ tới tay
+    private void undoOnRollback(String username, OtpEntry previous, OtpEntry issued) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    // Entry đã bị thay đổi tiếp (xác thực, OTP mới) thì giữ nguyên
+                    entries.computeIfPresent(username, (key, entry) -> entry == issued ? previous : entry);
+                }
+            }
+        });
+    }
+
+    private void schedule(String username, OtpEntry entry) {
+        if (entry != null) {
+            bucketOf(evictAt(entry)).add(username);
+        }
+    }
+
+    private Set<String> bucketOf(long evictAt) {
+        return wheel[(int) ((evictAt / TICK_MILLIS) % WHEEL_SIZE)];
+    }
+
+    private long cooldownMillis() {
+        return TimeUnit.MINUTES.toMillis(otpRequestCooldownMinutes);
+    }
+
+    private long otpExpiryMillis() {
+        return TimeUnit.MINUTES.toMillis(otpExpiryMinutes);
+    }
+
+    private long resetTokenExpiryMillis() {
+        return TimeUnit.MINUTES.toMillis(passwordResetTokenExpiryMinutes);
+    }
+
+    /**
+     * @param otp 0 nghĩa là không có OTP đang chờ xác thực (OTP hợp lệ luôn có 6 chữ số)
+     */
+    record OtpEntry(int otp, long otpExpiresAt, long lastRequestAt, int attempts, long resetConsumedAt) {
+
+        boolean hasOtp() {
+            return otp != 0;
+        }
+
+        OtpEntry withoutOtp() {
+            return new OtpEntry(0, 0, lastRequestAt, 0, resetConsumedAt);
+        }
+
+        OtpEntry withAttempts(int value) {
+            return new OtpEntry(otp, otpExpiresAt, lastRequestAt, value, resetConsumedAt);
+        }
+
+        OtpEntry withResetConsumedAt(long value) {
+            return new OtpEntry(otp, otpExpiresAt, lastRequestAt, attempts, value);
+        }
+    }
+
+}
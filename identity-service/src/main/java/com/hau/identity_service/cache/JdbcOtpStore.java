@@ -0,0 +1,194 @@
+package com.hau.identity_service.cache;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link OtpStore} trên bảng {@code otp_state} của PostgreSQL để OTP gửi từ node này xác thực được ở node khác. Mỗi
+ * chuyển trạng thái quyết định thành công là một câu lệnh đơn: cấp OTP là upsert có điều kiện thời gian chờ, xác
+ * thực và dùng mã đặt lại là update có điều kiện, nên đúng khi nhiều node cùng xử lý một username.
+ *
+ * <p>Cột {@code evict_at} (có index) là thời điểm hàng không còn tác dụng; job dọn xóa theo từng lô qua index này.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "otp.store.type", havingValue = "jdbc")
+@RequiredArgsConstructor
+public class JdbcOtpStore implements OtpStore {
+
+    private static final String ISSUE_SQL =
+            """
+            INSERT INTO otp_state (username, otp, otp_expires_at, last_request_at, attempts, reset_consumed_at, evict_at)
+            VALUES (?, ?, ?, ?, 0, 0, ?)
+            ON CONFLICT (username) DO UPDATE SET
+                otp = EXCLUDED.otp,
+                otp_expires_at = EXCLUDED.otp_expires_at,
+                last_request_at = EXCLUDED.last_request_at,
+                attempts = 0,
+                evict_at = GREATEST(EXCLUDED.evict_at, otp_state.reset_consumed_at + ?)
+            WHERE otp_state.last_request_at + ? <= EXCLUDED.last_request_at
+            """;
+
+    private static final String VERIFY_SQL =
+            "UPDATE otp_state SET otp = 0, attempts = 0 WHERE username = ? AND otp = ? AND otp_expires_at >= ?";
+
+    private static final String RECORD_ATTEMPT_SQL =
+            """
+            UPDATE otp_state SET
+                attempts = attempts + 1,
+                otp = CASE WHEN attempts + 1 >= ? THEN 0 ELSE otp END
+            WHERE username = ? AND otp <> 0 AND otp_expires_at >= ?
+            RETURNING attempts
+            """;
+
+    private static final String EXPIRE_SQL =
+            "UPDATE otp_state SET otp = 0, attempts = 0 WHERE username = ? AND otp <> 0 AND otp_expires_at < ?";
+
+    private static final String CONSUME_RESET_SQL =
+            """
+            INSERT INTO otp_state (username, otp, otp_expires_at, last_request_at, attempts, reset_consumed_at, evict_at)
+            VALUES (?, 0, 0, 0, 0, ?, ?)
+            ON CONFLICT (username) DO UPDATE SET
+                reset_consumed_at = EXCLUDED.reset_consumed_at,
+                evict_at = GREATEST(otp_state.evict_at, EXCLUDED.evict_at)
+            WHERE otp_state.reset_consumed_at < ?
+            """;
+
+    private static final String DELETE_EXPIRED_SQL =
+            """
+            DELETE FROM otp_state WHERE username IN (
+                SELECT username FROM otp_state WHERE evict_at <= ? LIMIT ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${jwt.otpExpiryMinutes}")
+    private long otpExpiryMinutes;
+
+    @Value("${jwt.otpRequestCooldownMinutes}")
+    private long otpRequestCooldownMinutes;
+
+    @Value("${jwt.passwordResetTokenExpiryMinutes}")
+    private long passwordResetTokenExpiryMinutes;
+
+    @Value("${otp.store.maxAttempts:5}")
+    private int maxAttempts;
+
+    @Value("${otp.store.cleanupBatchSize:1000}")
+    private int cleanupBatchSize;
+
+    private Counter issuedCounter;
+    private Counter cooldownCounter;
+    private Counter expiredCounter;
+
+    @PostConstruct
+    void init() {
+        issuedCounter = Counter.builder("otp.store.issued").register(meterRegistry);
+        cooldownCounter = Counter.builder("otp.store.rejected").tag("reason", "cooldown").register(meterRegistry);
+        expiredCounter = Counter.builder("otp.store.expired").register(meterRegistry);
+    }
+
+    @Override
+    public long cooldownRemaining(String username, long now) {
+        List<Long> lastRequestAt = jdbcTemplate.queryForList(
+                "SELECT last_request_at FROM otp_state WHERE username = ?", Long.class, username);
+        return lastRequestAt.isEmpty() ? 0 : Math.max(0, lastRequestAt.get(0) + cooldownMillis() - now);
+    }
+
+    @Override
+    public IssueResult issue(String username, int otp, long now) {
+        long expiresAt = now + otpExpiryMillis();
+        long evictAt = Math.max(expiresAt, now + cooldownMillis());
+        int updated = jdbcTemplate.update(
+                ISSUE_SQL, username, otp, expiresAt, now, evictAt, resetTokenExpiryMillis(), cooldownMillis());
+        if (updated == 1) {
+            issuedCounter.increment();
+            return IssueResult.issued();
+        }
+
+        cooldownCounter.increment();
+        // Hàng có thể vừa bị job dọn xóa giữa hai câu lệnh; khi đó báo chờ tối thiểu thay vì 0
+        return IssueResult.cooldown(Math.max(1, cooldownRemaining(username, now)));
+    }
+
+    @Override
+    public VerifyResult verify(String username, int otp, long now) {
+        VerifyResult result = doVerify(username, otp, now);
+        meterRegistry.counter("otp.store.verifications", "result", result.name()).increment();
+        return result;
+    }
+
+    private VerifyResult doVerify(String username, int otp, long now) {
+        // OTP 0 là giá trị "không có OTP", không bao giờ khớp
+        if (otp != 0 && jdbcTemplate.update(VERIFY_SQL, username, otp, now) == 1) {
+            return VerifyResult.VERIFIED;
+        }
+
+        List<Integer> attempts =
+                jdbcTemplate.queryForList(RECORD_ATTEMPT_SQL, Integer.class, maxAttempts, username, now);
+        if (!attempts.isEmpty()) {
+            return attempts.get(0) >= maxAttempts ? VerifyResult.TOO_MANY_ATTEMPTS : VerifyResult.INCORRECT;
+        }
+
+        return jdbcTemplate.update(EXPIRE_SQL, username, now) == 1 ? VerifyResult.EXPIRED : VerifyResult.MISSING;
+    }
+
+    @Override
+    public boolean consumeReset(String username, long issuedAt, long now) {
+        long evictAt = now + resetTokenExpiryMillis();
+        return jdbcTemplate.update(CONSUME_RESET_SQL, username, now, evictAt, issuedAt) == 1;
+    }
+
+    @Override
+    public boolean isResetConsumed(String username, long issuedAt) {
+        List<Long> resetConsumedAt = jdbcTemplate.queryForList(
+                "SELECT reset_consumed_at FROM otp_state WHERE username = ?", Long.class, username);
+        return !resetConsumedAt.isEmpty() && resetConsumedAt.get(0) >= issuedAt;
+    }
+
+    @Scheduled(fixedDelayString = "${otp.store.cleanupIntervalMillis:60000}")
+    public void deleteExpired() {
+        deleteExpired(System.currentTimeMillis());
+    }
+
+    int deleteExpired(long now) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(DELETE_EXPIRED_SQL, now, cleanupBatchSize);
+            total += deleted;
+        } while (deleted == cleanupBatchSize);
+
+        if (total > 0) {
+            expiredCounter.increment(total);
+            log.debug("Deleted {} expired OTP state rows", total);
+        }
+        return total;
+    }
+
+    private long cooldownMillis() {
+        return TimeUnit.MINUTES.toMillis(otpRequestCooldownMinutes);
+    }
+
+    private long otpExpiryMillis() {
+        return TimeUnit.MINUTES.toMillis(otpExpiryMinutes);
+    }
+
+    private long resetTokenExpiryMillis() {
+        return TimeUnit.MINUTES.toMillis(passwordResetTokenExpiryMinutes);
+    }
+}
@@ -0,0 +1,59 @@
+package com.hau.identity_service.cache;
+
+/**
+ * Trạng thái quên mật khẩu theo username: OTP đang chờ xác thực, thời gian chờ giữa hai lần yêu cầu OTP và lần dùng
+ * mã đặt lại mật khẩu gần nhất. Mọi thời điểm là epoch millis do caller truyền vào.
+ *
+ * <p>Implementation được chọn bằng {@code otp.store.type}: {@code memory} (mặc định, chỉ dùng được khi chạy một node)
+ * hoặc {@code jdbc} (dùng chung database giữa các node).
+ */
+public interface OtpStore {
+
+    /**
+     * Thời gian còn phải chờ (ms) trước khi được yêu cầu OTP mới, 0 nếu được phép. Chỉ để kiểm tra sớm; việc cấp OTP
+     * vẫn kiểm tra lại nguyên tử trong {@link #issue}.
+     */
+    long cooldownRemaining(String username, long now);
+
+    /** Cấp OTP mới nếu đã hết thời gian chờ, thay thế OTP cũ và đặt lại số lần nhập sai. */
+    IssueResult issue(String username, int otp, long now);
+
+    /** Xác thực OTP; OTP bị hủy khi đúng, hết hạn hoặc nhập sai quá số lần cho phép. */
+    VerifyResult verify(String username, int otp, long now);
+
+    /**
+     * Đánh dấu mã đặt lại mật khẩu phát hành lúc {@code issuedAt} đã được dùng. Trả về {@code false} nếu một mã phát
+     * hành cùng lúc hoặc sau đó đã được dùng trước, tức mọi mã đặt lại chỉ dùng được một lần.
+     */
+    boolean consumeReset(String username, long issuedAt, long now);
+
+    boolean isResetConsumed(String username, long issuedAt);
+
+    enum VerifyResult {
+        VERIFIED,
+        INCORRECT,
+        EXPIRED,
+        MISSING,
+        TOO_MANY_ATTEMPTS
+    }
+
+    record IssueResult(Status status, long retryAfterMillis) {
+        public enum Status {
+            ISSUED,
+            COOLDOWN,
+            CAPACITY_EXCEEDED
+        }
+
+        static IssueResult issued() {
+            return new IssueResult(Status.ISSUED, 0);
+        }
+
+        static IssueResult cooldown(long retryAfterMillis) {
+            return new IssueResult(Status.COOLDOWN, retryAfterMillis);
+        }
+
+        static IssueResult capacityExceeded() {
+            return new IssueResult(Status.CAPACITY_EXCEEDED, 0);
+        }
+    }
+}
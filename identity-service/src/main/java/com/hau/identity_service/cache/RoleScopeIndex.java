@@ -0,0 +1,128 @@
+package com.hau.identity_service.cache;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import com.hau.identity_service.entity.Permission;
+import com.hau.identity_service.entity.Role;
+import com.hau.identity_service.repository.RoleRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chỉ mục role → đoạn scope ("ROLE_X perm1 perm2") dựng sẵn từ database bằng một truy vấn, để phát hành token không
+ * phải duyệt lazy {@code permissions} của từng role. Scope của cả tập role cũng được cache theo danh sách tên role.
+ *
+ * <p>Role và permission trong scope được sắp theo tên để cùng một tập role luôn cho cùng một chuỗi. Mọi thay đổi
+ * role/permission phải gọi {@link #invalidate()}; ngoài ra chỉ mục được dựng lại định kỳ để nhận thay đổi từ các
+ * instance khác.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoleScopeIndex {
+
+    // Giới hạn số tổ hợp role được cache, phòng trường hợp dữ liệu bất thường
+    private static final int MAX_CACHED_COMBINATIONS = 10_000;
+
+    private final RoleRepository roleRepository;
+
+    private final AtomicLong version = new AtomicLong();
+    // ReentrantLock thay cho synchronized: rebuild() chờ database, không được ghim carrier thread khi chạy virtual thread
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    public String scopeOf(Collection<Role> roles) {
+        if (CollectionUtils.isEmpty(roles)) {
+            return "";
+        }
+        List<String> roleNames = roles.stream().map(Role::getName).sorted().toList();
+
+        Snapshot current = current();
+        String scope = current.scopes().get(roleNames);
+        if (scope != null) {
+            return scope;
+        }
+        if (!current.fragments().keySet().containsAll(roleNames)) {
+            // Role mới được tạo ở instance khác: dựng lại chỉ mục một lần
+            invalidate();
+            current = current();
+        }
+
+        StringJoiner stringJoiner = new StringJoiner(" ");
+        for (String roleName : roleNames) {
+            String fragment = current.fragments().get(roleName);
+            stringJoiner.add(fragment != null ? fragment : "ROLE_" + roleName);
+        }
+        scope = stringJoiner.toString();
+        if (current.scopes().size() < MAX_CACHED_COMBINATIONS) {
+            current.scopes().put(roleNames, scope);
+        }
+        return scope;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+        snapshot = null;
+    }
+
+    @Scheduled(fixedRate = 10, timeUnit = TimeUnit.MINUTES)
+    public void refresh() {
+        invalidate();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        return current != null ? current : rebuild();
+    }
+
+    private Snapshot rebuild() {
+        rebuildLock.lock();
+        try {
+            Snapshot current = snapshot;
+            if (current != null) {
+                return current;
+            }
+            long buildVersion = version.get();
+            Map<String, String> fragments = new HashMap<>();
+            for (Role role : roleRepository.findAllWithPermissions()) {
+                fragments.put(role.getName(), fragmentOf(role));
+            }
+            current = new Snapshot(buildVersion, Map.copyOf(fragments), new ConcurrentHashMap<>());
+            // Chỉ công bố nếu không có invalidate() nào xảy ra trong lúc đang đọc database
+            if (version.get() == buildVersion) {
+                snapshot = current;
+            }
+            log.debug("Dựng lại chỉ mục scope: {} role, phiên bản {}", fragments.size(), buildVersion);
+            return current;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    static String fragmentOf(Role role) {
+        StringJoiner stringJoiner = new StringJoiner(" ");
+        stringJoiner.add("ROLE_" + role.getName());
+        if (!CollectionUtils.isEmpty(role.getPermissions())) {
+            role.getPermissions().stream()
+                    .map(Permission::getName)
+                    .sorted()
+                    .forEach(stringJoiner::add);
+        }
+        return stringJoiner.toString();
+    }
+
+    private record Snapshot(long version, Map<String, String> fragments, Map<List<String>, String> scopes) {}
+}
@@ -0,0 +1,27 @@
+package com.hau.identity_service.cache;
+
+/**
+ * Hàm băm dùng chung cho các cấu trúc xác suất ({@link BloomFilter}, {@code security.CountMinSketch}): FNV-1a 64 bit
+ * cho chuỗi và splitmix64 finalizer làm hàm băm thứ hai, ghép theo kiểu double hashing {@code h1 + i * h2}.
+ */
+public final class StringHashing {
+
+    private StringHashing() {}
+
+    // FNV-1a 64 bit
+    public static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // splitmix64 finalizer; luôn lẻ để các bước h1 + i * h2 không lặp lại trên bảng có kích thước lũy thừa của 2
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return (z ^ (z >>> 31)) | 1L;
+    }
+}
@@ -0,0 +1,208 @@
+package com.hau.identity_service.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.hau.identity_service.entity.InvalidatedToken;
+import com.hau.identity_service.repository.InvalidatedTokenRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Danh sách token đã bị thu hồi, giữ trong bộ nhớ của từng node: Bloom filter phía trước và tập JTI chính xác
+ * (JTI -> mốc cuối token còn dùng được, kể cả để làm mới) phía sau. Database chỉ được hỏi khi filter báo "có thể đã
+ * thu hồi" mà tập chính xác không có JTI đó, hoặc khi snapshot chưa từng được nạp thành công.
+ */
+@Component
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+public class TokenDenylist {
+
+    private final InvalidatedTokenRepository invalidatedTokenRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${jwt.revocation.expectedTokens:1000000}")
+    private long expectedTokens;
+
+    @Value("${jwt.revocation.falsePositiveRate:0.001}")
+    private double falsePositiveRate;
+
+    @Value("${jwt.revocation.syncOverlapSeconds:10}")
+    private long syncOverlapSeconds;
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final ReentrantLock filterLock = new ReentrantLock();
+
+    private volatile BloomFilter filter;
+    private volatile boolean loaded = false;
+    private volatile Instant lastSync;
+
+    private Counter databaseLookupCounter;
+
+    @PostConstruct
+    void init() {
+        filter = BloomFilter.create(expectedTokens, falsePositiveRate);
+        Gauge.builder("jwt.revocation.size", revokedTokens, Map::size).register(meterRegistry);
+        databaseLookupCounter = Counter.builder("jwt.revocation.database-lookups").register(meterRegistry);
+        reload();
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        if (!loaded) {
+            return lookupDatabase(jti, revokedTokens.containsKey(jti));
+        }
+        if (!filter.mightContain(jti)) {
+            return false;
+        }
+        if (revokedTokens.containsKey(jti)) {
+            return true;
+        }
+        return lookupDatabase(jti, false);
+    }
+
+    /**
+     * Kiểm tra thu hồi cho nhiều JTI: các JTI mà filter báo "có thể" nhưng tập chính xác không xác nhận được gom lại
+     * thành một truy vấn {@code IN} duy nhất.
+     */
+    public Set<String> findRevoked(Collection<String> jtis) {
+        Set<String> revoked = new HashSet<>();
+        Set<String> candidates = new HashSet<>();
+        for (String jti : jtis) {
+            if (jti == null) {
+                continue;
+            }
+            if (revokedTokens.containsKey(jti)) {
+                revoked.add(jti);
+            } else if (!loaded || filter.mightContain(jti)) {
+                candidates.add(jti);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return revoked;
+        }
+
+        databaseLookupCounter.increment();
+        try {
+            revoked.addAll(invalidatedTokenRepository.findIdsByIdIn(candidates));
+        } catch (DataAccessException e) {
+            log.warn("Database không phản hồi khi kiểm tra {} token, dùng snapshot trong bộ nhớ", candidates.size());
+        }
+        return revoked;
+    }
+
+    public void revoke(String jti, Date expiryDate) {
+        if (jti == null || expiryDate == null) {
+            return;
+        }
+        filterLock.lock();
+        try {
+            revokedTokens.put(jti, expiryDate.getTime());
+            filter.put(jti);
+        } finally {
+            filterLock.unlock();
+        }
+    }
+
+    @Scheduled(
+            fixedDelayString = "${jwt.revocation.syncIntervalSeconds:30}",
+            initialDelayString = "${jwt.revocation.syncIntervalSeconds:30}",
+            timeUnit = TimeUnit.SECONDS)
+    public void sync() {
+        if (!loaded) {
+            reload();
+            return;
+        }
+
+        Instant startedAt = Instant.now();
+        Date since = Date.from(lastSync.minusSeconds(syncOverlapSeconds));
+        try {
+            List<InvalidatedToken> delta = invalidatedTokenRepository.findByInvalidatedAtGreaterThanEqual(since);
+            long now = startedAt.toEpochMilli();
+            delta.stream()
+                    .filter(token -> token.getExpiryDate() != null
+                            && token.getExpiryDate().getTime() > now)
+                    .forEach(token -> revoke(token.getId(), token.getExpiryDate()));
+            revokedTokens.values().removeIf(expiry -> expiry <= now);
+            lastSync = startedAt;
+            log.debug("Đồng bộ {} token bị thu hồi từ database", delta.size());
+        } catch (DataAccessException e) {
+            log.warn("Không thể đồng bộ danh sách token bị thu hồi, tiếp tục dùng snapshot cũ: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(
+            fixedDelayString = "${jwt.revocation.rebuildIntervalMinutes:60}",
+            initialDelayString = "${jwt.revocation.rebuildIntervalMinutes:60}",
+            timeUnit = TimeUnit.MINUTES)
+    public void reload() {
+        Instant startedAt = Instant.now();
+        List<InvalidatedToken> snapshot;
+        try {
+            snapshot = invalidatedTokenRepository.findByExpiryDateAfter(Date.from(startedAt));
+        } catch (DataAccessException e) {
+            log.warn("Không thể nạp danh sách token bị thu hồi từ database: {}", e.getMessage());
+            return;
+        }
+
+        long now = startedAt.toEpochMilli();
+        filterLock.lock();
+        try {
+            snapshot.forEach(token -> revokedTokens.put(token.getId(), token.getExpiryDate().getTime()));
+            revokedTokens.values().removeIf(expiry -> expiry <= now);
+
+            BloomFilter rebuilt =
+                    BloomFilter.create(Math.max(expectedTokens, 2L * revokedTokens.size()), falsePositiveRate);
+            revokedTokens.keySet().forEach(rebuilt::put);
+            filter = rebuilt;
+        } finally {
+            filterLock.unlock();
+        }
+        lastSync = startedAt;
+        loaded = true;
+        log.info(
+                "Đã nạp {} token bị thu hồi vào bộ nhớ trong {} ms",
+                revokedTokens.size(),
+                Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    private boolean lookupDatabase(String jti, boolean fallback) {
+        databaseLookupCounter.increment();
+        try {
+            return invalidatedTokenRepository
+                    .findById(jti)
+                    .map(token -> {
+                        revoke(token.getId(), token.getExpiryDate());
+                        return true;
+                    })
+                    .orElse(false);
+        } catch (DataAccessException e) {
+            log.warn("Database không phản hồi khi kiểm tra token {}, dùng snapshot trong bộ nhớ", jti);
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.hau.identity_service.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hau.identity_service.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Cache username → id cho các token cũ chưa có claim {@code uid}. Username không đổi được sau khi tạo nên ánh xạ chỉ
+ * sai khi user bị xóa rồi tạo lại, trường hợp đó {@code UserService} gọi
+ * {@link UserResponseCache#evictUsername(String)} để loại trên mọi node.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserIdCache {
+
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${user.idCache.maximumSize:100000}")
+    private long maximumSize;
+
+    @Value("${user.idCache.ttlMinutes:60}")
+    private long ttlMinutes;
+
+    private Cache<String, Long> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "user.id-by-username");
+    }
+
+    public Optional<Long> findId(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        // Không cache username không tồn tại, tránh giữ kết quả âm khi user vừa được tạo
+        Long id = cache.get(username, key -> userRepository.findIdByUsername(key)
+                .map(Integer::longValue)
+                .orElse(null));
+        return Optional.ofNullable(id);
+    }
+
+    /** Chỉ loại trên node này; các node khác loại theo khi đồng bộ bảng {@code user_cache_eviction}. */
+    public void evict(String username) {
+        if (username != null) {
+            cache.invalidate(username);
+        }
+    }
+}
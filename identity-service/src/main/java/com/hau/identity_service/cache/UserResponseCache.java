@@ -0,0 +1,233 @@
+package com.hau.identity_service.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.CollectionUtils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.hau.identity_service.dto.response.RoleResponse;
+import com.hau.identity_service.dto.response.UserResponse;
+import com.hau.identity_service.entity.UserCacheEviction;
+import com.hau.identity_service.repository.UserCacheEvictionRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache {@link UserResponse} (kèm roles và permissions) theo id cho {@code /users/info} và {@code /users/{id}}; tra
+ * theo username đi qua {@link UserIdCache}. Thay đổi một user gọi {@link #evict(Long)}; thay đổi role/permission chỉ
+ * loại các entry có chứa role/permission đó.
+ *
+ * <p>Mỗi lần loại theo role/permission tăng {@code generation}; giá trị nạp từ database bắt đầu trước thời điểm đó bị
+ * bỏ khỏi cache ngay sau khi nạp xong, để không giữ lại role cũ.
+ *
+ * <p>Mỗi lần loại cũng được ghi vào bảng {@code user_cache_eviction} (cùng transaction với thay đổi nếu có), các node
+ * khác đọc bảng này mỗi {@code syncIntervalSeconds} giây giống {@link TokenDenylist}, nên bản cũ chỉ còn được trả về ở
+ * node khác trong khoảng một chu kỳ đồng bộ. Nếu database không đọc được thì {@code ttlSeconds} là giới hạn trên.
+ * Ánh xạ username → id của {@link UserIdCache} cũng được loại qua cùng bảng này bằng {@link #evictUsername(String)}.
+ */
+@Component
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+public class UserResponseCache {
+
+    private final UserCacheEvictionRepository evictionRepository;
+    private final UserIdCache userIdCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${user.responseCache.maximumSize:100000}")
+    private long maximumSize;
+
+    @Value("${user.responseCache.ttlSeconds:300}")
+    private long ttlSeconds;
+
+    @Value("${user.responseCache.syncOverlapSeconds:10}")
+    private long syncOverlapSeconds;
+
+    @Value("${user.responseCache.evictionRetentionMinutes:60}")
+    private long evictionRetentionMinutes;
+
+    private final AtomicLong generation = new AtomicLong();
+    // Lệnh loại đã áp dụng (kể cả do node này ghi) -> thời điểm ghi, để khoảng đọc chồng lấn không loại lại lần nữa
+    private final Map<Long, Instant> appliedEvictions = new ConcurrentHashMap<>();
+    private Cache<Long, UserResponse> cache;
+    private volatile Instant lastSync;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "user.responses");
+        // Cache còn rỗng nên chỉ cần các lệnh loại từ bây giờ
+        lastSync = Instant.now();
+    }
+
+    /** Trả về bản cache, hoặc gọi {@code loader}; lỗi từ loader (ví dụ không tìm thấy user) không được cache. */
+    public UserResponse get(Long id, Supplier<UserResponse> loader) {
+        long loadGeneration = generation.get();
+        UserResponse response = cache.get(id, key -> loader.get());
+        if (generation.get() != loadGeneration) {
+            cache.invalidate(id);
+        }
+        return response;
+    }
+
+    public void evict(Long id) {
+        if (id == null) {
+            return;
+        }
+        cache.invalidate(id);
+        afterCommit(() -> cache.invalidate(id));
+        publish(UserCacheEviction.Type.USER, id.toString());
+    }
+
+    /** Loại ánh xạ username → id khi user bị xóa hoặc tạo lại, trên node này và các node khác. */
+    public void evictUsername(String username) {
+        if (username == null) {
+            return;
+        }
+        userIdCache.evict(username);
+        afterCommit(() -> userIdCache.evict(username));
+        publish(UserCacheEviction.Type.USERNAME, username);
+    }
+
+    /** Như {@link #evictUsername(String)} cho nhiều user, ghi các lệnh loại trong một lần {@code saveAll}. */
+    public void evictUsernames(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        usernames.forEach(userIdCache::evict);
+        afterCommit(() -> usernames.forEach(userIdCache::evict));
+        List<UserCacheEviction> evictions = evictionRepository.saveAll(usernames.stream()
+                .map(username -> UserCacheEviction.builder()
+                        .type(UserCacheEviction.Type.USERNAME)
+                        .target(username)
+                        .build())
+                .toList());
+        evictions.forEach(eviction -> appliedEvictions.put(eviction.getId(), eviction.getCreatedAt()));
+    }
+
+    public void evictUsersWithRole(String roleName) {
+        evictWithRole(roleName);
+        publish(UserCacheEviction.Type.ROLE, roleName);
+    }
+
+    public void evictUsersWithPermission(String permissionName) {
+        evictWithPermission(permissionName);
+        publish(UserCacheEviction.Type.PERMISSION, permissionName);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${user.responseCache.syncIntervalSeconds:5}",
+            initialDelayString = "${user.responseCache.syncIntervalSeconds:5}",
+            timeUnit = TimeUnit.SECONDS)
+    public void sync() {
+        Instant startedAt = Instant.now();
+        Instant since = lastSync.minusSeconds(syncOverlapSeconds);
+        try {
+            List<UserCacheEviction> delta = evictionRepository.findByCreatedAtGreaterThanEqual(since);
+            for (UserCacheEviction eviction : delta) {
+                if (appliedEvictions.putIfAbsent(eviction.getId(), eviction.getCreatedAt()) == null) {
+                    apply(eviction);
+                }
+            }
+            appliedEvictions.values().removeIf(createdAt -> createdAt.isBefore(since));
+            lastSync = startedAt;
+            log.debug("Đồng bộ {} lệnh loại cache user từ database", delta.size());
+        } catch (DataAccessException e) {
+            log.warn("Không thể đồng bộ lệnh loại cache user, bản cache hết hạn sau {} giây: {}", ttlSeconds,
+                    e.getMessage());
+        }
+    }
+
+    @Scheduled(
+            fixedDelayString = "${user.responseCache.evictionRetentionMinutes:60}",
+            initialDelayString = "${user.responseCache.evictionRetentionMinutes:60}",
+            timeUnit = TimeUnit.MINUTES)
+    public void purge() {
+        try {
+            evictionRepository.deleteCreatedBefore(Instant.now().minus(Duration.ofMinutes(evictionRetentionMinutes)));
+        } catch (DataAccessException e) {
+            log.warn("Không thể xóa lệnh loại cache user cũ: {}", e.getMessage());
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private void publish(UserCacheEviction.Type type, String target) {
+        UserCacheEviction eviction = evictionRepository.save(
+                UserCacheEviction.builder().type(type).target(target).build());
+        appliedEvictions.put(eviction.getId(), eviction.getCreatedAt());
+    }
+
+    private void apply(UserCacheEviction eviction) {
+        switch (eviction.getType()) {
+            case USER -> cache.invalidate(Long.valueOf(eviction.getTarget()));
+            case ROLE -> evictWithRole(eviction.getTarget());
+            case PERMISSION -> evictWithPermission(eviction.getTarget());
+            case USERNAME -> userIdCache.evict(eviction.getTarget());
+        }
+    }
+
+    private void evictWithRole(String roleName) {
+        evictIf(role -> roleName.equals(role.getName()));
+    }
+
+    private void evictWithPermission(String permissionName) {
+        evictIf(role -> !CollectionUtils.isEmpty(role.getPermissions())
+                && role.getPermissions().stream()
+                        .anyMatch(permission -> permissionName.equals(permission.getName())));
+    }
+
+    private void evictIf(Predicate<RoleResponse> affected) {
+        Runnable eviction = () -> {
+            generation.incrementAndGet();
+            cache.asMap()
+                    .values()
+                    .removeIf(response -> !CollectionUtils.isEmpty(response.getRoles())
+                            && response.getRoles().stream().anyMatch(affected));
+        };
+        eviction.run();
+        afterCommit(eviction);
+    }
+
+    // Khi thay đổi nằm trong transaction, loại thêm một lần sau commit để không giữ bản đọc trước commit
+    private static void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
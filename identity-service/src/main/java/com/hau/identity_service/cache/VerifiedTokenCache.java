@@ -0,0 +1,129 @@
+package com.hau.identity_service.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.function.Function;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Cache các token đã xác thực (và token không hợp lệ trong thời gian ngắn), khóa theo SHA-256 của token.
+ * Entry hợp lệ không bao giờ sống quá thời điểm {@code exp} của token.
+ */
+@Component
+@RequiredArgsConstructor
+public class VerifiedTokenCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${jwt.cache.maximumSize:500000}")
+    private long maximumSize;
+
+    @Value("${jwt.cache.maxTtlSeconds:300}")
+    private long maxTtlSeconds;
+
+    @Value("${jwt.cache.negativeTtlSeconds:30}")
+    private long negativeTtlSeconds;
+
+    // Test thay bằng đồng hồ giả để kiểm tra thời hạn entry mà không phải chờ
+    private Ticker ticker = Ticker.systemTicker();
+    private Cache<String, CachedToken> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry(
+                        Duration.ofSeconds(maxTtlSeconds).toNanos(), Duration.ofSeconds(negativeTtlSeconds).toNanos()))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens");
+    }
+
+    /**
+     * Trả về Jwt đã cache, hoặc gọi {@code verifier} để xác thực token. {@link BadJwtException} từ verifier được
+     * cache như kết quả âm; các lỗi khác (ví dụ database không phản hồi) không được cache.
+     */
+    public Jwt get(String token, Function<String, Jwt> verifier) {
+        CachedToken cached = cache.get(digest(token), key -> {
+            try {
+                return new CachedToken(verifier.apply(token), null);
+            } catch (BadJwtException e) {
+                return new CachedToken(null, e.getMessage());
+            }
+        });
+
+        if (cached.jwt() == null) {
+            throw new BadJwtException(cached.error());
+        }
+        return cached.jwt();
+    }
+
+    public void evict(String token) {
+        if (token == null || token.isEmpty()) {
+            return;
+        }
+        cache.invalidate(digest(token));
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+
+    private record CachedToken(Jwt jwt, String error) {}
+
+    private record TokenExpiry(long maxTtlNanos, long negativeTtlNanos) implements Expiry<String, CachedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedToken value, long currentTime) {
+            if (value.jwt() == null) {
+                return negativeTtlNanos;
+            }
+            Instant expiresAt = value.jwt().getExpiresAt();
+            if (expiresAt == null) {
+                return 0;
+            }
+            long untilExpiry = Duration.between(Instant.now(), expiresAt).toNanos();
+            return Math.max(0, Math.min(maxTtlNanos, untilExpiry));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
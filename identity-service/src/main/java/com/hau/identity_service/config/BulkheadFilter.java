@@ -0,0 +1,142 @@
+package com.hau.identity_service.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hau.identity_service.dto.response.ErrorsResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Giới hạn số request đồng thời cho từng endpoint đắt (đăng nhập, tạo user, đổi mật khẩu...), để một endpoint bị dồn
+ * tải không kéo chậm các endpoint còn lại. Request vượt giới hạn bị từ chối ngay bằng 503 + Retry-After, chạy trước
+ * Spring Security nên không tốn công giải mã token.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@RequiredArgsConstructor
+@Slf4j
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    // Dạng "METHOD /path:limit,...", path theo cú pháp PathPattern của Spring
+    @Value("${bulkhead.limits:}")
+    private String configuredLimits;
+
+    @Value("${bulkhead.retryAfterSeconds:1}")
+    private long retryAfterSeconds;
+
+    private final List<Bulkhead> bulkheads = new ArrayList<>();
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @PostConstruct
+    void init() {
+        if (!StringUtils.hasText(configuredLimits)) {
+            return;
+        }
+        for (String entry : configuredLimits.split(",")) {
+            String[] parts = entry.trim().split("\\s+|:");
+            if (parts.length != 3) {
+                throw new IllegalStateException("Cấu hình bulkhead.limits không hợp lệ: " + entry);
+            }
+            String endpoint = parts[0].toUpperCase() + " " + parts[1];
+            Semaphore semaphore = new Semaphore(Integer.parseInt(parts[2]));
+            Bulkhead bulkhead = new Bulkhead(
+                    parts[0].toUpperCase(),
+                    PathPatternParser.defaultInstance.parse(parts[1]),
+                    semaphore,
+                    Counter.builder("http.bulkhead.rejected")
+                            .tag("endpoint", endpoint)
+                            .register(meterRegistry));
+            Gauge.builder("http.bulkhead.available", semaphore, Semaphore::availablePermits)
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+            bulkheads.add(bulkhead);
+        }
+        log.info("Bulkhead được bật cho {} endpoint", bulkheads.size());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Bulkhead bulkhead = find(request);
+        if (bulkhead == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!bulkhead.semaphore().tryAcquire()) {
+            bulkhead.rejected().increment();
+            reject(response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            bulkhead.semaphore().release();
+        }
+    }
+
+    private Bulkhead find(HttpServletRequest request) {
+        if (bulkheads.isEmpty()) {
+            return null;
+        }
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(
+                request.getContextPath().length()));
+        for (Bulkhead bulkhead : bulkheads) {
+            if (bulkhead.method().equals(request.getMethod()) && bulkhead.pattern().matches(path)) {
+                return bulkhead;
+            }
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        ErrorsResponse errorsResponse = new ErrorsResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Hệ thống đang quá tải, vui lòng thử lại sau",
+                null,
+                LocalDateTime.now());
+        response.getWriter().write(objectMapper.writeValueAsString(errorsResponse));
+        response.flushBuffer();
+    }
+
+    private record Bulkhead(String method, PathPattern pattern, Semaphore semaphore, Counter rejected) {}
+}
@@ -0,0 +1,186 @@
+package com.hau.identity_service.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Giới hạn số connection được mượn cùng lúc bằng một {@link Semaphore} công bằng đặt trước connection pool. Khi chạy
+ * trên virtual thread, hàng nghìn thread có thể cùng chờ connection; chờ trên semaphore không chiếm carrier thread và
+ * có timeout rõ ràng, thay vì dồn tất cả vào hàng đợi của pool. Permit được trả khi connection được đóng.
+ */
+public class ConcurrencyLimitingDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long acquireTimeoutMillis;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private volatile Meters meters;
+
+    public ConcurrencyLimitingDataSource(
+            DataSource targetDataSource,
+            int maxConcurrent,
+            long acquireTimeoutMillis,
+            ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        super(targetDataSource);
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return limited(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return limited(() -> super.getConnection(username, password));
+    }
+
+    public int getActiveConnections() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getWaitingThreads() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() throws SQLException {
+        Meters meters = meters();
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Bị ngắt khi chờ connection", e);
+        }
+        if (meters != null) {
+            meters.waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            if (meters != null) {
+                meters.rejectedCounter.increment();
+            }
+            throw new SQLTransientConnectionException(
+                    "Không lấy được connection sau " + acquireTimeoutMillis + " ms (" + maxConcurrent
+                            + " connection đang được dùng)");
+        }
+    }
+
+    private Connection limited(ConnectionSupplier supplier) throws SQLException {
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                new ReleasingHandler(connection, permits));
+    }
+
+    // MeterRegistry được lấy lúc dùng lần đầu vì DataSource được bọc trong BeanPostProcessor, trước khi registry sẵn sàng
+    private Meters meters() {
+        Meters current = meters;
+        if (current == null) {
+            MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+            if (meterRegistry == null) {
+                return null;
+            }
+            synchronized (this) {
+                if (meters == null) {
+                    meters = new Meters(meterRegistry, this);
+                }
+                current = meters;
+            }
+        }
+        return current;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+
+    private record Meters(Timer waitTimer, Counter rejectedCounter) {
+        Meters(MeterRegistry meterRegistry, ConcurrencyLimitingDataSource dataSource) {
+            this(
+                    Timer.builder("datasource.limiter.wait").register(meterRegistry),
+                    Counter.builder("datasource.limiter.rejected").register(meterRegistry));
+            Gauge.builder("datasource.limiter.active", dataSource, ConcurrencyLimitingDataSource::getActiveConnections)
+                    .register(meterRegistry);
+            Gauge.builder("datasource.limiter.waiting", dataSource, ConcurrencyLimitingDataSource::getWaitingThreads)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Trả permit đúng một lần khi connection được đóng, kể cả khi close() bị gọi nhiều lần. {@code equals} và
+     * {@code hashCode} theo định danh của proxy.
+     */
+    private static final class ReleasingHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleasingHandler(Connection target, Semaphore permits) {
+            this.target = target;
+            this.permits = permits;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                try {
+                    target.close();
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                }
+                return null;
+            }
+            if (method.getName().equals("unwrap") && args != null && ((Class<?>) args[0]).isInstance(target)) {
+                return target;
+            }
+            // Proxy là một đối tượng riêng: không bằng connection gốc hay proxy khác bọc cùng connection đó
+            if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -1,17 +1,14 @@
 package com.hau.identity_service.config;
 
-import java.util.Objects;
-import javax.crypto.spec.SecretKeySpec;
-
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.BadJwtException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
-import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.stereotype.Component;
 
-import com.hau.identity_service.dto.response.IntrospectResponse;
+import com.hau.identity_service.cache.TokenDenylist;
+import com.hau.identity_service.cache.VerifiedTokenCache;
+import com.hau.identity_service.exception.AppException;
 import com.hau.identity_service.service.TokenService;
 
 import lombok.RequiredArgsConstructor;
@@ -19,12 +16,9 @@ import lombok.RequiredArgsConstructor;
 @Component
 @RequiredArgsConstructor
 public class CustomJwtDecoder implements JwtDecoder {
-    @Value("${jwt.signerKey}")
-    private String singerKey;
-
     private final TokenService tokenService;
-
-    private NimbusJwtDecoder nimbusJwtDecoder = null;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenDenylist tokenDenylist;
 
     @Override
     public Jwt decode(String token) throws JwtException {
@@ -32,22 +26,23 @@ public class CustomJwtDecoder implements JwtDecoder {
             throw new JwtException("Token không được cung cấp");
         }
 
-        try {
-            IntrospectResponse response = tokenService.validateToken(token);
-
-            if (!response.isValid()) {
-                throw new JwtException("Token không hợp lệ");
-            }
+        Jwt jwt = verifiedTokenCache.get(token, this::verify);
 
-            if (Objects.isNull(nimbusJwtDecoder)) {
-                SecretKeySpec secretKeySpec = new SecretKeySpec(singerKey.getBytes(), "HS512");
-                nimbusJwtDecoder = NimbusJwtDecoder.withSecretKey(secretKeySpec)
-                        .macAlgorithm(MacAlgorithm.HS512)
-                        .build();
-            }
+        // Token có thể đã bị thu hồi trên node khác sau khi được cache ở node này
+        if (tokenDenylist.isRevoked(jwt.getId())) {
+            verifiedTokenCache.evict(token);
+            throw new BadJwtException("Token đã hết hiệu lực");
+        }
+        return jwt;
+    }
 
-            return nimbusJwtDecoder.decode(token);
+    private Jwt verify(String token) {
+        try {
+            return tokenService.decode(token);
+        } catch (AppException e) {
+            throw new BadJwtException(e.getMessage());
         } catch (Exception e) {
+            // Lỗi hạ tầng (ví dụ database), không phải token sai nên không được cache
             throw new JwtException(e.getMessage());
         }
     }
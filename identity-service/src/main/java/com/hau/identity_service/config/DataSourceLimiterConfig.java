@@ -0,0 +1,41 @@
+package com.hau.identity_service.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bọc DataSource trong {@link ConcurrencyLimitingDataSource} khi {@code datasource.limiter.enabled=true} (bật sẵn trong
+ * profile {@code virtual-threads}). Mặc định số connection đồng thời bằng kích thước pool Hikari.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.limiter.enabled", havingValue = "true")
+public class DataSourceLimiterConfig {
+
+    @Bean
+    static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(
+            Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        int maxConcurrent = environment.getProperty("datasource.limiter.maxConcurrent", Integer.class, poolSize);
+        long acquireTimeoutMillis =
+                environment.getProperty("datasource.limiter.acquireTimeoutMillis", Long.class, 5000L);
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitingDataSource)) {
+                    return new ConcurrencyLimitingDataSource(
+                            dataSource, maxConcurrent, acquireTimeoutMillis, meterRegistry);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,18 +1,36 @@
 package com.hau.identity_service.config;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.util.StringUtils;
+
+import com.hau.identity_service.security.AdaptivePasswordEncoder;
+import com.hau.identity_service.security.BoundedPasswordEncoder;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.cors.CorsConfiguration;
 
@@ -25,6 +43,7 @@ public class SecurityConfig {
     private final String[] publicPostEndpoint = {
             "/api/v1/users",
             "/api/v1/auth/introspect",
+            "/api/v1/auth/introspect/batch",
             "/api/v1/auth/login",
             "/api/v1/auth/logout",
             "/api/v1/auth/refresh-token",
@@ -33,8 +52,37 @@ public class SecurityConfig {
             "/api/v1/auth/password-recovery/reset",
     };
 
+    private final String[] publicGetEndpoint = {
+            "/.well-known/jwks.json",
+    };
+
+    // Endpoint chỉ dành cho các service khác, xác thực bằng HTTP Basic với thông tin trong service.clients
+    private final String[] serviceClientEndpoint = {
+            "/api/v1/auth/revocations",
+    };
+
     private final CustomJwtDecoder customJwtDecoder;
 
+    // Dạng "clientId1:{bcrypt}hash1,clientId2:{bcrypt}hash2"; để trống thì mọi service client đều bị từ chối
+    @Value("${service.clients:}")
+    private String serviceClients;
+
+    @Bean
+    @Order(1)
+    public SecurityFilterChain serviceClientFilterChain(HttpSecurity http) throws Exception {
+        DaoAuthenticationProvider provider =
+                new DaoAuthenticationProvider(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        provider.setUserDetailsService(serviceClientDetails());
+
+        http.securityMatcher(serviceClientEndpoint)
+                .authorizeHttpRequests(request -> request.anyRequest().hasRole("SERVICE"))
+                .authenticationManager(new ProviderManager(provider))
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .csrf(AbstractHttpConfigurer::disable);
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http.cors(cors -> cors.configurationSource(request -> {
@@ -49,6 +97,10 @@ public class SecurityConfig {
 
         http.authorizeHttpRequests(request -> request.requestMatchers(HttpMethod.POST, publicPostEndpoint)
                 .permitAll()
+                .requestMatchers(HttpMethod.GET, publicGetEndpoint)
+                .permitAll()
+                .requestMatchers("/actuator/**")
+                .hasRole("ADMIN")
                 .anyRequest()
                 .authenticated());
 
@@ -61,6 +113,23 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private InMemoryUserDetailsManager serviceClientDetails() {
+        List<UserDetails> clients = new ArrayList<>();
+        if (StringUtils.hasText(serviceClients)) {
+            for (String entry : serviceClients.split(",")) {
+                String[] parts = entry.trim().split(":", 2);
+                if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                    throw new IllegalStateException("Cấu hình service.clients không hợp lệ: " + entry);
+                }
+                clients.add(User.withUsername(parts[0])
+                        .password(parts[1])
+                        .roles("SERVICE")
+                        .build());
+            }
+        }
+        return new InMemoryUserDetailsManager(clients);
+    }
+
     @Bean
     JwtAuthenticationConverter jwtAuthenticationConverter() {
         JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
@@ -72,7 +141,21 @@ public class SecurityConfig {
     }
 
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(10);
+    @Primary
+    PasswordEncoder passwordEncoder(
+            AdaptivePasswordEncoder adaptivePasswordEncoder,
+            MeterRegistry meterRegistry,
+            @Value("${password.hashing.threads:0}") int threads,
+            @Value("${password.hashing.queueCapacity:64}") int queueCapacity,
+            @Value("${password.hashing.timeoutMillis:2000}") long timeoutMillis,
+            @Value("${password.hashing.retryAfterSeconds:1}") long retryAfterSeconds) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(
+                adaptivePasswordEncoder,
+                poolSize,
+                queueCapacity,
+                timeoutMillis,
+                retryAfterSeconds,
+                meterRegistry);
     }
 }
\ No newline at end of file
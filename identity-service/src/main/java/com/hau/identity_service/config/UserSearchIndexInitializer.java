@@ -0,0 +1,113 @@
+package com.hau.identity_service.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tạo các index phục vụ tìm kiếm user trên PostgreSQL. Đây là index biểu thức và index GIN nên không khai báo được
+ * bằng {@code @Index} để {@code ddl-auto} tự tạo:
+ *
+ * <ul>
+ *   <li>{@code idx_users_username_lower}: btree trên {@code lower(username)} với {@code text_pattern_ops}, dùng cho
+ *       tìm chính xác và tìm theo tiền tố ({@code LIKE 'x%'}) với mọi collation.
+ *   <li>{@code idx_users_username_trgm}, {@code idx_users_email_trgm}: GIN {@code pg_trgm} trên {@code lower(username)}
+ *       và {@code lower(email)}, dùng cho tìm chuỗi con ({@code LIKE '%x%'}).
+ * </ul>
+ *
+ * Index được tạo bằng {@code CONCURRENTLY} để không khóa ghi bảng users; index còn dở do lần tạo trước bị lỗi được xóa
+ * và tạo lại. Nếu không có quyền tạo extension pg_trgm thì bỏ qua index trigram, tìm chuỗi con vẫn chạy nhưng quét bảng.
+ *
+ * <p>Index đang được tạo {@code CONCURRENTLY} cũng có {@code indisvalid = false}, nên toàn bộ việc kiểm tra và tạo
+ * index chạy trên một kết nối giữ advisory lock {@link #INDEX_LOCK_KEY}: node khởi động cùng lúc không lấy được lock sẽ
+ * bỏ qua thay vì xóa index mà node kia đang tạo.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserSearchIndexInitializer implements ApplicationRunner {
+
+    static final String USERNAME_LOWER_INDEX = "idx_users_username_lower";
+    static final String USERNAME_TRGM_INDEX = "idx_users_username_trgm";
+    static final String EMAIL_TRGM_INDEX = "idx_users_email_trgm";
+    public static final long INDEX_LOCK_KEY = 0x1D5E_A2C4L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${user.search.createIndexes:true}")
+    private boolean createIndexes;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!createIndexes || !isPostgres()) {
+            return;
+        }
+        // Advisory lock gắn với session nên mọi câu lệnh phải chạy trên cùng một kết nối
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            if (!Boolean.TRUE.equals(
+                    session.queryForObject("select pg_try_advisory_lock(?)", Boolean.class, INDEX_LOCK_KEY))) {
+                log.info("Node khác đang tạo index tìm kiếm user, bỏ qua");
+                return null;
+            }
+            try {
+                createIndexes(session);
+            } finally {
+                session.queryForObject("select pg_advisory_unlock(?)", Boolean.class, INDEX_LOCK_KEY);
+            }
+            return null;
+        });
+    }
+
+    private void createIndexes(JdbcTemplate session) {
+        createIndex(session, USERNAME_LOWER_INDEX, "users (lower(username) text_pattern_ops)");
+
+        try {
+            session.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        } catch (DataAccessException e) {
+            log.warn("Không tạo được extension pg_trgm, tìm kiếm chuỗi con sẽ quét bảng users: {}", e.getMessage());
+            return;
+        }
+        createIndex(session, USERNAME_TRGM_INDEX, "users USING gin (lower(username) gin_trgm_ops)");
+        createIndex(session, EMAIL_TRGM_INDEX, "users USING gin (lower(email) gin_trgm_ops)");
+    }
+
+    private void createIndex(JdbcTemplate session, String name, String definition) {
+        try {
+            List<Boolean> valid = session.queryForList(
+                    "select i.indisvalid from pg_index i join pg_class c on c.oid = i.indexrelid "
+                            + "where c.relname = ? and pg_table_is_visible(c.oid)",
+                    Boolean.class,
+                    name);
+            if (!valid.isEmpty() && valid.get(0)) {
+                return;
+            }
+            if (!valid.isEmpty()) {
+                // Đang giữ lock nên không node nào khác đang tạo index này
+                log.warn("Index {} chưa tạo xong ở lần trước, tạo lại", name);
+                session.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+            }
+            long start = System.currentTimeMillis();
+            session.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + definition);
+            log.info("Đã tạo index {} trong {} ms", name, System.currentTimeMillis() - start);
+        } catch (DataAccessException e) {
+            log.warn("Không tạo được index {}: {}", name, e.getMessage());
+        }
+    }
+
+    private boolean isPostgres() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equals(product);
+    }
+}
@@ -0,0 +1,89 @@
+package com.hau.identity_service.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Theo dõi sự kiện JFR {@code jdk.VirtualThreadPinned}: virtual thread bị ghim vào carrier thread lâu hơn ngưỡng,
+ * thường do block bên trong {@code synchronized} hoặc native frame. Mỗi lần ghim được đếm và ghi log kèm các frame
+ * đầu của stack để tìm đoạn code cần đổi sang {@code ReentrantLock}.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "virtual-threads.pinning-monitor.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${virtual-threads.pinning-monitor.thresholdMillis:20}")
+    private long thresholdMillis;
+
+    @Value("${virtual-threads.pinning-monitor.stackDepth:8}")
+    private int stackDepth;
+
+    private RecordingStream recordingStream;
+    private Counter pinnedCounter;
+
+    @PostConstruct
+    void start() {
+        pinnedCounter = Counter.builder("jvm.threads.virtual.pinned").register(meterRegistry);
+        recordingStream = new RecordingStream();
+        recordingStream
+                .enable(PINNED_EVENT)
+                .withThreshold(Duration.ofMillis(thresholdMillis))
+                .withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        log.info("Bắt đầu theo dõi virtual thread bị ghim lâu hơn {} ms", thresholdMillis);
+    }
+
+    void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        log.warn(
+                "Virtual thread bị ghim vào carrier thread {} ms:\n{}",
+                event.getDuration().toMillis(),
+                describe(event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames()));
+    }
+
+    // Bỏ các frame đầu thuộc JDK (park, sleep...) để log bắt đầu từ code của ứng dụng
+    private String describe(List<RecordedFrame> frames) {
+        return frames.stream()
+                .dropWhile(VirtualThreadPinningMonitor::isJdkFrame)
+                .limit(stackDepth)
+                .map(frame -> "    at " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + "(line " + frame.getLineNumber() + ")")
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static boolean isJdkFrame(RecordedFrame frame) {
+        String type = frame.getMethod().getType().getName();
+        return type.startsWith("java.") || type.startsWith("jdk.") || type.startsWith("sun.");
+    }
+
+    @Override
+    public void close() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.hau.identity_service.controller;
 
 import java.text.ParseException;
+import java.util.List;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 import org.springframework.http.HttpStatus;
@@ -12,7 +14,9 @@ import com.hau.identity_service.dto.request.*;
 import com.hau.identity_service.dto.response.ApiResponse;
 import com.hau.identity_service.dto.response.AuthenticationResponse;
 import com.hau.identity_service.dto.response.IntrospectResponse;
+import com.hau.identity_service.dto.response.RevocationListResponse;
 import com.hau.identity_service.dto.response.VerifyOtpResponse;
+import com.hau.identity_service.security.ClientIpResolver;
 import com.hau.identity_service.service.AuthenticationService;
 import com.hau.identity_service.service.ForgotPasswordService;
 import com.hau.identity_service.service.TokenService;
@@ -27,11 +31,13 @@ public class AuthenticationController {
     private final AuthenticationService authenticationService;
     private final ForgotPasswordService forgotPasswordService;
     private final TokenService tokenService;
+    private final ClientIpResolver clientIpResolver;
 
     @PostMapping("/login")
     public ResponseEntity<ApiResponse<AuthenticationResponse>> authenticate(
-            @RequestBody @Valid AuthenticationRequest authenticationRequest) {
-        ApiResponse<AuthenticationResponse> apiResponse = authenticationService.authenticate(authenticationRequest);
+            @RequestBody @Valid AuthenticationRequest authenticationRequest, HttpServletRequest request) {
+        ApiResponse<AuthenticationResponse> apiResponse =
+                authenticationService.authenticate(authenticationRequest, clientIpResolver.resolve(request));
         return new ResponseEntity<>(apiResponse, HttpStatus.OK);
     }
 
@@ -54,6 +60,20 @@ public class AuthenticationController {
         return new ResponseEntity<>(apiResponse, HttpStatus.OK);
     }
 
+    @PostMapping("/introspect/batch")
+    public ResponseEntity<ApiResponse<List<IntrospectResponse>>> introspectBatch(
+            @RequestBody @Valid BatchIntrospectRequest request) {
+        ApiResponse<List<IntrospectResponse>> apiResponse = authenticationService.introspectBatch(request);
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    @GetMapping("/revocations")
+    public ResponseEntity<ApiResponse<RevocationListResponse>> getRevocations(
+            @RequestParam(required = false) Long since) {
+        ApiResponse<RevocationListResponse> apiResponse = authenticationService.getRevocations(since);
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
     @PostMapping("/password-recovery/otp")
     public ResponseEntity<ApiResponse<String>> sendOtpForgotPassword(
             @RequestBody @Valid ForgotPasswordRequest forgotPasswordRequest) {
@@ -0,0 +1,47 @@
+package com.hau.identity_service.controller;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.hau.identity_service.security.KeyRing;
+import com.hau.identity_service.service.SigningKeyService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+    private static final MediaType JWK_SET_MEDIA_TYPE = MediaType.parseMediaType("application/jwk-set+json");
+
+    private final SigningKeyService signingKeyService;
+
+    @Value("${jwt.jwksMaxAgeSeconds:300}")
+    private long jwksMaxAgeSeconds;
+
+    // Public key để các service khác tự xác thực token; client chỉ cần tải lại khi gặp kid lạ hoặc hết max-age
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<String> getJwkSet(WebRequest request) {
+        KeyRing.PublicKeySet publicKeySet = signingKeyService.getPublicKeySet();
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(jwksMaxAgeSeconds)).cachePublic();
+
+        if (request.checkNotModified(publicKeySet.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(publicKeySet.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(publicKeySet.etag())
+                .cacheControl(cacheControl)
+                .contentType(JWK_SET_MEDIA_TYPE)
+                .body(publicKeySet.json());
+    }
+}
@@ -0,0 +1,41 @@
+package com.hau.identity_service.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.hau.identity_service.dto.response.ApiResponse;
+import com.hau.identity_service.dto.response.PasswordHashReportResponse;
+import com.hau.identity_service.dto.response.PasswordHashingCalibrationResponse;
+import com.hau.identity_service.service.PasswordHashingService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/password-hashing")
+public class PasswordHashingController {
+    private final PasswordHashingService passwordHashingService;
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping
+    public ResponseEntity<ApiResponse<PasswordHashingCalibrationResponse>> getCalibration() {
+        ApiResponse<PasswordHashingCalibrationResponse> apiResponse = passwordHashingService.getCalibration();
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/calibrate")
+    public ResponseEntity<ApiResponse<PasswordHashingCalibrationResponse>> calibrate() {
+        ApiResponse<PasswordHashingCalibrationResponse> apiResponse = passwordHashingService.calibrate();
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/report")
+    public ResponseEntity<ApiResponse<PasswordHashReportResponse>> getHashReport() {
+        ApiResponse<PasswordHashReportResponse> apiResponse = passwordHashingService.getHashReport();
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+}
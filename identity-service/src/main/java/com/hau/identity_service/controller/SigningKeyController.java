@@ -0,0 +1,46 @@
+package com.hau.identity_service.controller;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.hau.identity_service.dto.request.SigningKeyRotationRequest;
+import com.hau.identity_service.dto.response.ApiResponse;
+import com.hau.identity_service.dto.response.SigningKeyResponse;
+import com.hau.identity_service.service.SigningKeyService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/keys")
+public class SigningKeyController {
+    private final SigningKeyService signingKeyService;
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<SigningKeyResponse>>> getAllKeys() {
+        ApiResponse<List<SigningKeyResponse>> apiResponse = signingKeyService.getAllKeys();
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/rotate")
+    public ResponseEntity<ApiResponse<SigningKeyResponse>> rotateKey(
+            @RequestBody @Valid SigningKeyRotationRequest request) {
+        ApiResponse<SigningKeyResponse> apiResponse = signingKeyService.rotateKey(request);
+        return new ResponseEntity<>(apiResponse, HttpStatus.CREATED);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @DeleteMapping("/{kid}")
+    public ResponseEntity<ApiResponse<SigningKeyResponse>> retireKey(@PathVariable String kid) {
+        ApiResponse<SigningKeyResponse> apiResponse = signingKeyService.retireKey(kid);
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+}
@@ -1,19 +1,37 @@
 package com.hau.identity_service.controller;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
 import jakarta.validation.Valid;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.hau.identity_service.dto.request.ChangePasswordRequest;
 import com.hau.identity_service.dto.request.UserCreateRequest;
+import com.hau.identity_service.dto.request.UserImportRequest;
 import com.hau.identity_service.dto.request.UserUpdateInfoRequest;
 import com.hau.identity_service.dto.request.UserUpdateRequest;
 import com.hau.identity_service.dto.response.ApiResponse;
+import com.hau.identity_service.dto.response.CursorPageResponse;
+import com.hau.identity_service.dto.response.UserImportResponse;
 import com.hau.identity_service.dto.response.UserResponse;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.repository.UserSpecifications;
+import com.hau.identity_service.service.UserCursor;
+import com.hau.identity_service.service.UserExportService;
+import com.hau.identity_service.service.UserImportService;
 import com.hau.identity_service.service.UserService;
 
 import lombok.RequiredArgsConstructor;
@@ -23,6 +41,8 @@ import lombok.RequiredArgsConstructor;
 @RequestMapping("/api/v1/users")
 public class UserController {
     private final UserService userService;
+    private final UserExportService userExportService;
+    private final UserImportService userImportService;
 
     @PostMapping
     public ResponseEntity<ApiResponse<UserResponse>> createUser(
@@ -31,6 +51,23 @@ public class UserController {
         return new ResponseEntity<>(userResponse, HttpStatus.CREATED);
     }
 
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ApiResponse<UserImportResponse>> importUsers(
+            @RequestBody List<UserImportRequest> userImportRequests) {
+        ApiResponse<UserImportResponse> apiResponse = importResponse(userImportService.importUsers(userImportRequests));
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<UserImportResponse>> importUsersFromCsv(@RequestParam("file") MultipartFile file)
+            throws IOException {
+        ApiResponse<UserImportResponse> apiResponse =
+                importResponse(userImportService.importUsersFromCsv(file.getInputStream()));
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
     @PreAuthorize("hasRole('ADMIN') or @userService.isOwnerOfUser(#userId, authentication)")
     @GetMapping("/{userId}")
     public ResponseEntity<ApiResponse<UserResponse>> getUserById(@PathVariable Long userId) {
@@ -74,15 +111,64 @@ public class UserController {
             @RequestParam(required = false, defaultValue = "0") int pageIndex,
             @RequestParam(required = false, defaultValue = "10") int pageSize,
             @RequestParam(required = false) String username,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false, defaultValue = "CONTAINS") UserSpecifications.SearchMode searchMode,
+            @RequestParam(required = false) Integer gender) {
+        Page<UserResponse> userPage =
+                userService.getAllUsers(pageIndex, pageSize, username, email, searchMode, gender);
+        return new ResponseEntity<>(userPage, HttpStatus.OK);
+    }
+
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPageResponse<UserResponse>> getUsersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "100") int pageSize,
+            @RequestParam(required = false, defaultValue = "ID") UserCursor.Order order,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false, defaultValue = "CONTAINS") UserSpecifications.SearchMode searchMode,
             @RequestParam(required = false) Integer gender) {
-        Page<UserResponse> userPage = userService.getAllUsers(pageIndex, pageSize, username, gender);
+        CursorPageResponse<UserResponse> userPage =
+                userService.getUsersByCursor(cursor, pageSize, order, username, email, searchMode, gender);
         return new ResponseEntity<>(userPage, HttpStatus.OK);
     }
 
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(required = false, defaultValue = "NDJSON") UserExportService.Format format,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false, defaultValue = "CONTAINS") UserSpecifications.SearchMode searchMode,
+            @RequestParam(required = false) Integer gender) {
+        Specification<User> spec = UserSpecifications.search(username, email, searchMode, gender);
+        StreamingResponseBody body = outputStream -> userExportService.export(format, spec, outputStream);
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment()
+                                .filename("users." + format.extension())
+                                .build()
+                                .toString())
+                .body(body);
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{userId}")
     public ResponseEntity<ApiResponse<UserResponse>> deleteUser(@PathVariable Long userId) {
         ApiResponse<UserResponse> userResponse = userService.deleteUser(userId);
         return new ResponseEntity<>(userResponse, HttpStatus.OK);
     }
+
+    private static ApiResponse<UserImportResponse> importResponse(UserImportResponse userImportResponse) {
+        return ApiResponse.<UserImportResponse>builder()
+                .status(HttpStatus.OK.value())
+                .message("Import user hoàn tất: " + userImportResponse.getCreated() + "/" + userImportResponse.getTotal()
+                        + " user được tạo")
+                .result(userImportResponse)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
 }
@@ -0,0 +1,19 @@
+package com.hau.identity_service.dto.request;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchIntrospectRequest {
+    @NotEmpty(message = "Danh sách token không được để trống")
+    private List<String> tokens;
+}
@@ -0,0 +1,22 @@
+package com.hau.identity_service.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SigningKeyRotationRequest {
+    @NotBlank(message = "kid không được để trống")
+    private String kid;
+
+    // Bắt buộc với HS512 và phải được khai báo cùng kid trong identity.client.keys của các service dùng
+    // identity-client; để trống với RS256/ES256/EdDSA (cặp khóa được sinh mới). Secret được lưu mã hóa trong bảng
+    // jwt_signing_key
+    private String secret;
+}
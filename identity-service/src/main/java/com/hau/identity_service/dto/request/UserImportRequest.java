@@ -0,0 +1,42 @@
+package com.hau.identity_service.dto.request;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một dòng của file import user. Cần đúng một trong hai: {@code password} (được băm khi import) hoặc
+ * {@code passwordHash} (hash bcrypt/argon2/pbkdf2 mang từ hệ thống cũ, lưu nguyên và nâng cấp ở lần đăng nhập sau).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserImportRequest {
+    @NotBlank(message = "Username không được để trống")
+    @Pattern(regexp = "^[a-z0-9]+$", message = "Username chỉ được chứa chữ cái thường và không có ký tự đặc biệt")
+    @Size(max = 50, message = "Username tối đa 50 ký tự")
+    private String username;
+
+    @Size(min = 6, message = "Password phải có ít nhất 6 ký tự")
+    private String password;
+
+    private String passwordHash;
+
+    @Email(message = "Email không đúng định dạng")
+    @NotBlank(message = "Email không được để trống")
+    private String email;
+
+    @Pattern(regexp = "^[0-9]{10}$", message = "Số điện thoại phải có 10 chữ số")
+    private String phone;
+
+    private String address;
+    private String profileImage;
+    private Integer gender;
+}
@@ -0,0 +1,20 @@
+package com.hau.identity_service.dto.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    // Truyền lại vào tham số cursor để lấy trang tiếp theo; null khi đã hết dữ liệu
+    private String nextCursor;
+}
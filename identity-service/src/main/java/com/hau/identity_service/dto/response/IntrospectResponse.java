@@ -1,5 +1,7 @@
 package com.hau.identity_service.dto.response;
 
+import java.util.Date;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,4 +14,6 @@ import lombok.NoArgsConstructor;
 public class IntrospectResponse {
     private boolean valid;
     private String username;
+    private String scope;
+    private Date expiryTime;
 }
@@ -0,0 +1,21 @@
+package com.hau.identity_service.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PasswordHashReportResponse {
+    private long total;
+    // Số hash sẽ được băm lại ở lần đăng nhập tiếp theo
+    private long outdated;
+    private Map<String, Long> formats;
+    private LocalDateTime generatedAt;
+}
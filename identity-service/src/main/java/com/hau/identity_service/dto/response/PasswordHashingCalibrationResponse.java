@@ -0,0 +1,26 @@
+package com.hau.identity_service.dto.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PasswordHashingCalibrationResponse {
+    private String selected;
+    private long latencyBudgetMillis;
+    private List<Measurement> measurements;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Measurement {
+        private String configuration;
+        private double millis;
+    }
+}
@@ -0,0 +1,19 @@
+package com.hau.identity_service.dto.response;
+
+import java.util.Date;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevocationListResponse {
+    // Thời điểm (theo đồng hồ server) bắt đầu truy vấn, client dùng làm mốc "since" cho lần đồng bộ tiếp theo
+    private Date syncedAt;
+    private List<RevokedTokenResponse> tokens;
+}
@@ -0,0 +1,17 @@
+package com.hau.identity_service.dto.response;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevokedTokenResponse {
+    private String jti;
+    private Date expiryTime;
+}
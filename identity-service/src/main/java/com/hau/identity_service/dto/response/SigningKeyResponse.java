@@ -0,0 +1,20 @@
+package com.hau.identity_service.dto.response;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SigningKeyResponse {
+    private String kid;
+    private String algorithm;
+    private boolean active;
+    private Instant createdAt;
+    private Instant retiredAt;
+}
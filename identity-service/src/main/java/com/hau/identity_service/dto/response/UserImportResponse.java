@@ -0,0 +1,40 @@
+package com.hau.identity_service.dto.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportResponse {
+    private int total;
+    private int created;
+    private int failed;
+    private long elapsedMillis;
+    private List<RowResult> rows;
+
+    public enum Status {
+        CREATED,
+        // Username đã tồn tại trong database hoặc lặp lại trong chính file import
+        DUPLICATE,
+        INVALID,
+        FAILED
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowResult {
+        // Số thứ tự dòng dữ liệu, bắt đầu từ 1
+        private int row;
+        private String username;
+        private Status status;
+        private String message;
+    }
+}
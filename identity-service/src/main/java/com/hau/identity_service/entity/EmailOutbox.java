@@ -0,0 +1,78 @@
+package com.hau.identity_service.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import lombok.*;
+
+/**
+ * Email chờ gửi, được ghi cùng transaction với nghiệp vụ tạo ra nó. Email gửi thành công bị xóa khỏi bảng; email gửi
+ * lỗi quá số lần cho phép được giữ lại với trạng thái {@link Status#DEAD} để kiểm tra trong
+ * {@code email.outbox.deadRetentionDays} ngày. Khi chuyển DEAD, biến template và nội dung (có thể chứa OTP) bị xóa,
+ * chỉ giữ người nhận, tiêu đề, template và lỗi cuối.
+ *
+ * <p>Email từ template biên dịch sẵn chỉ lưu tên template và biến (JSON), nội dung được dựng lúc gửi; các email khác
+ * lưu sẵn HTML trong {@code htmlBody}.
+ */
+@Builder
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        name = "email_outbox",
+        indexes = @Index(name = "idx_email_outbox_status_next_attempt_at", columnList = "status, next_attempt_at"))
+public class EmailOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(length = 100)
+    private String template;
+
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String templateVariables;
+
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String htmlBody;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    private Instant createdAt;
+
+    public enum Status {
+        PENDING,
+        DEAD
+    }
+}
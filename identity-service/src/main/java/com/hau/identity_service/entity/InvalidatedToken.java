@@ -4,8 +4,11 @@ import java.util.Date;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
+import org.hibernate.annotations.CreationTimestamp;
+
 import lombok.*;
 
 @Builder
@@ -14,10 +17,19 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "invalidated_token")
+@Table(
+        name = "invalidated_token",
+        indexes = {
+            @Index(name = "idx_invalidated_token_invalidated_at", columnList = "invalidated_at"),
+            @Index(name = "idx_invalidated_token_expiry_date", columnList = "expiry_date")
+        })
 public class InvalidatedToken {
     @Id
     private String id;
 
+    // Mốc cuối token còn dùng được, kể cả để làm mới (iat + expirationRefreshMinutes), không chỉ exp của access token
     private Date expiryDate;
+
+    @CreationTimestamp
+    private Date invalidatedAt;
 }
@@ -0,0 +1,39 @@
+package com.hau.identity_service.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.*;
+
+/**
+ * Khóa ký JWT dùng chung cho mọi node, do {@code KeyRing} ghi khi xoay khóa. {@code keyMaterial} là secret HMAC
+ * (Base64) hoặc private JWK (JSON) với khóa bất đối xứng, được mã hóa AES-GCM bằng {@code jwt.keyEncryptionKey}.
+ * Khóa chưa bị ngừng dùng và tạo gần nhất là khóa đang ký.
+ */
+@Builder
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "jwt_signing_key")
+public class JwtSigningKey {
+    @Id
+    @Column(length = 100)
+    private String kid;
+
+    @Column(nullable = false, length = 16)
+    private String algorithm;
+
+    @Column(nullable = false, length = 8192)
+    private String keyMaterial;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant retiredAt;
+}
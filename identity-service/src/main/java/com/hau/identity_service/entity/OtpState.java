@@ -0,0 +1,43 @@
+package com.hau.identity_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import lombok.*;
+
+/**
+ * Bảng dùng bởi {@code JdbcOtpStore}; entity chỉ để Hibernate tạo schema, mọi truy cập đi qua SQL trong store. Các
+ * thời điểm là epoch millis, {@code otp = 0} nghĩa là không có OTP đang chờ xác thực.
+ */
+@Builder
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "otp_state", indexes = @Index(name = "idx_otp_state_evict_at", columnList = "evict_at"))
+public class OtpState {
+    @Id
+    private String username;
+
+    @Column(nullable = false)
+    private int otp;
+
+    @Column(nullable = false)
+    private long otpExpiresAt;
+
+    @Column(nullable = false)
+    private long lastRequestAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private long resetConsumedAt;
+
+    @Column(nullable = false)
+    private long evictAt;
+}
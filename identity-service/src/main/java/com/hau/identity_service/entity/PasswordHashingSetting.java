@@ -0,0 +1,38 @@
+package com.hau.identity_service.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.*;
+
+/**
+ * Cấu hình băm mật khẩu đang dùng, dùng chung cho mọi node. Chỉ có một dòng, do {@code AdaptivePasswordEncoder} ghi
+ * khi admin hiệu chỉnh; {@code encoder} là mô tả ứng viên của {@code PasswordHashingCalibrator}, ví dụ
+ * "bcrypt cost=12".
+ */
+@Builder
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "password_hashing_setting")
+public class PasswordHashingSetting {
+    public static final String CURRENT = "current";
+
+    @Id
+    @Column(length = 16)
+    private String id;
+
+    @Column(nullable = false, length = 100)
+    private String encoder;
+
+    private long latencyBudgetMillis;
+
+    @Column(nullable = false)
+    private Instant calibratedAt;
+}
@@ -16,7 +16,8 @@ import lombok.*;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "users")
+// Index (created_at, id) phục vụ phân trang theo cursor sắp xếp theo thời gian tạo
+@Table(name = "users", indexes = @Index(name = "idx_users_created_at_id", columnList = "created_at, id"))
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
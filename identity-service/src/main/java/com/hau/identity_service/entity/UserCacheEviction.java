@@ -0,0 +1,55 @@
+package com.hau.identity_service.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import lombok.*;
+
+/**
+ * Lệnh loại entry khỏi {@code UserResponseCache} hoặc {@code UserIdCache}, được ghi cùng transaction với thay đổi
+ * user/role/permission để các node khác đọc lại và loại theo. Bản ghi cũ hơn
+ * {@code user.responseCache.evictionRetentionMinutes} bị xóa định kỳ.
+ */
+@Builder
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        name = "user_cache_eviction",
+        indexes = @Index(name = "idx_user_cache_eviction_created_at", columnList = "created_at"))
+public class UserCacheEviction {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Type type;
+
+    // Id user, username, hoặc tên role/permission
+    @Column(nullable = false)
+    private String target;
+
+    @CreationTimestamp
+    private Instant createdAt;
+
+    public enum Type {
+        USER,
+        ROLE,
+        PERMISSION,
+        USERNAME
+    }
+}
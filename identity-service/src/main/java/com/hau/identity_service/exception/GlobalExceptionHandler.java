@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -67,6 +68,16 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    // Xử lý lỗi tạm thời (quá tải, bị giới hạn tần suất), báo client thời điểm nên thử lại
+    @ExceptionHandler(RetryLaterException.class)
+    public ResponseEntity<ErrorsResponse> handleRetryLaterException(RetryLaterException ex) {
+        ErrorsResponse errorResponse =
+                new ErrorsResponse(ex.getHttpStatus().value(), ex.getMessage(), null, LocalDateTime.now());
+        return ResponseEntity.status(ex.getHttpStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
     // Xử lý lỗi khi không tìm thấy tài nguyên
     @ExceptionHandler(AppException.class)
     public ResponseEntity<ErrorsResponse> handleAppException(AppException ex) {
@@ -0,0 +1,16 @@
+package com.hau.identity_service.exception;
+
+import org.springframework.http.HttpStatus;
+
+import lombok.Getter;
+
+// Lỗi tạm thời (quá tải, bị giới hạn tần suất): trả kèm Retry-After để client biết khi nào thử lại
+@Getter
+public class RetryLaterException extends AppException {
+    private final long retryAfterSeconds;
+
+    public RetryLaterException(HttpStatus httpStatus, String message, long retryAfterSeconds) {
+        super(httpStatus, message, null);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,11 @@
+package com.hau.identity_service.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Quá tải tạm thời: trả 503 kèm Retry-After để client thử lại sau
+public class ServiceUnavailableException extends RetryLaterException {
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, message, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,35 @@
+package com.hau.identity_service.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import com.hau.identity_service.entity.EmailOutbox;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // lock.timeout = -2 là SKIP LOCKED: các worker (kể cả ở node khác) không lấy trùng email và không chờ nhau
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from EmailOutbox e where e.status = :status and e.nextAttemptAt <= :now order by e.nextAttemptAt")
+    List<EmailOutbox> findDueForUpdate(
+            @Param("status") EmailOutbox.Status status, @Param("now") Instant now, Limit limit);
+
+    long countByStatus(EmailOutbox.Status status);
+
+    // Với email DEAD, nextAttemptAt là hạn giữ của lần gửi cuối, xấp xỉ thời điểm bị chuyển DEAD
+    @Modifying
+    @Query("delete from EmailOutbox e where e.status = :status and e.nextAttemptAt < :cutoff")
+    int deleteByStatusAndNextAttemptAtBefore(
+            @Param("status") EmailOutbox.Status status, @Param("cutoff") Instant cutoff);
+}
@@ -1,12 +1,32 @@
 package com.hau.identity_service.repository;
 
 import java.util.Date;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.hau.identity_service.entity.InvalidatedToken;
 
 public interface InvalidatedTokenRepository extends JpaRepository<InvalidatedToken, String> {
-    List<InvalidatedToken> findByExpiryDateLessThanEqual(Date expiryDate);
+    List<InvalidatedToken> findByExpiryDateAfter(Date expiryDate);
+
+    List<InvalidatedToken> findByInvalidatedAtGreaterThanEqual(Date invalidatedAt);
+
+    @Query("select t.id from InvalidatedToken t where t.id in :ids")
+    Set<String> findIdsByIdIn(@Param("ids") Collection<String> ids);
+
+    // Xóa tối đa limit token đã hết hạn trong một câu lệnh và một transaction ngắn, đi qua index expiry_date
+    @Transactional
+    @Modifying
+    @Query(
+            value = "delete from invalidated_token where id in "
+                    + "(select id from invalidated_token where expiry_date <= :cutoff limit :limit)",
+            nativeQuery = true)
+    int deleteExpiredChunk(@Param("cutoff") Date cutoff, @Param("limit") int limit);
 }
@@ -0,0 +1,41 @@
+package com.hau.identity_service.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.hau.identity_service.entity.JwtSigningKey;
+
+public interface JwtSigningKeyRepository extends JpaRepository<JwtSigningKey, String> {
+
+    // Insert thuần thay cho save(): kid trùng (kể cả do node khác vừa ghi) báo lỗi thay vì ghi đè khóa đã có
+    @Modifying
+    @Query(
+            value = "insert into jwt_signing_key (kid, algorithm, key_material, created_at, retired_at) "
+                    + "values (:kid, :algorithm, :keyMaterial, :createdAt, null)",
+            nativeQuery = true)
+    void insert(
+            @Param("kid") String kid,
+            @Param("algorithm") String algorithm,
+            @Param("keyMaterial") String keyMaterial,
+            @Param("createdAt") Instant createdAt);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update JwtSigningKey k set k.retiredAt = :retiredAt where k.retiredAt is null and k.createdAt < :createdAt")
+    int retireCreatedBefore(@Param("createdAt") Instant createdAt, @Param("retiredAt") Instant retiredAt);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update JwtSigningKey k set k.retiredAt = :retiredAt where k.kid = :kid and k.retiredAt is null")
+    int retire(@Param("kid") String kid, @Param("retiredAt") Instant retiredAt);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update JwtSigningKey k set k.keyMaterial = :keyMaterial where k.kid = :kid")
+    int updateKeyMaterial(@Param("kid") String kid, @Param("keyMaterial") String keyMaterial);
+
+    @Modifying(clearAutomatically = true)
+    @Query("delete from JwtSigningKey k where k.retiredAt < :cutoff")
+    int deleteRetiredBefore(@Param("cutoff") Instant cutoff);
+}
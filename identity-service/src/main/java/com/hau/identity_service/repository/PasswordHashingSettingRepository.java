@@ -0,0 +1,7 @@
+package com.hau.identity_service.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.hau.identity_service.entity.PasswordHashingSetting;
+
+public interface PasswordHashingSettingRepository extends JpaRepository<PasswordHashingSetting, String> {}
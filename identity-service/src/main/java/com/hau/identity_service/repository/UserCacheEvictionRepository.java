@@ -0,0 +1,21 @@
+package com.hau.identity_service.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hau.identity_service.entity.UserCacheEviction;
+
+public interface UserCacheEvictionRepository extends JpaRepository<UserCacheEviction, Long> {
+    List<UserCacheEviction> findByCreatedAtGreaterThanEqual(Instant createdAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UserCacheEviction e where e.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -1,9 +1,16 @@
 package com.hau.identity_service.repository;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.hau.identity_service.entity.User;
@@ -11,4 +18,24 @@ import com.hau.identity_service.entity.User;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
     Optional<User> findByUsername(String username);
+
+    // Dùng cho đăng nhập/làm mới token: lấy user, roles và permissions trong một truy vấn
+    @EntityGraph(attributePaths = {"roles", "roles.permissions"})
+    Optional<User> findWithAuthoritiesByUsername(String username);
+
+    @Query("select u.id from User u where u.username = :username")
+    Optional<Integer> findIdByUsername(@Param("username") String username);
+
+    @Query("select u.username from User u where u.username in :usernames")
+    Set<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("select u.password from User u")
+    Stream<String> streamAllPasswords();
+
+    @Modifying
+    @Query("update User u set u.password = :newPassword where u.id = :id and u.password = :currentPassword")
+    int updatePasswordIfUnchanged(
+            @Param("id") Integer id,
+            @Param("currentPassword") String currentPassword,
+            @Param("newPassword") String newPassword);
 }
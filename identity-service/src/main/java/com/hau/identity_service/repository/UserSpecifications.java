@@ -0,0 +1,92 @@
+package com.hau.identity_service.repository;
+
+import java.util.Locale;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import com.hau.identity_service.entity.User;
+
+/**
+ * Điều kiện lọc danh sách user. Các điều kiện tìm kiếm luôn so sánh trên {@code lower(cột)} để khớp với index biểu
+ * thức do {@link com.hau.identity_service.config.UserSearchIndexInitializer} tạo trên PostgreSQL.
+ */
+public final class UserSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private UserSpecifications() {}
+
+    public enum SearchMode {
+        // lower(username) = x: btree idx_users_username_lower
+        EXACT,
+        // lower(username) LIKE 'x%': btree idx_users_username_lower (text_pattern_ops)
+        PREFIX,
+        // lower(username) LIKE '%x%': GIN trigram, cần ít nhất 3 ký tự để index có ích
+        CONTAINS
+    }
+
+    /** Bộ lọc chung của danh sách user (phân trang offset, cursor và export); tham số rỗng thì bỏ qua. */
+    public static Specification<User> search(String username, String email, SearchMode searchMode, Integer gender) {
+        Specification<User> spec = Specification.where(null);
+
+        if (StringUtils.hasText(username)) {
+            spec = spec.and(usernameMatches(username, searchMode));
+        }
+
+        if (StringUtils.hasText(email)) {
+            spec = spec.and(emailMatches(email, searchMode));
+        }
+
+        if (gender != null) {
+            spec = spec.and(genderEquals(gender));
+        }
+        return spec;
+    }
+
+    public static Specification<User> usernameMatches(String term, SearchMode mode) {
+        return matches("username", term, mode);
+    }
+
+    public static Specification<User> emailMatches(String term, SearchMode mode) {
+        return matches("email", term, mode);
+    }
+
+    public static Specification<User> genderEquals(Integer gender) {
+        return (root, query, cb) -> cb.equal(root.get("gender"), gender);
+    }
+
+    private static Specification<User> matches(String attribute, String term, SearchMode mode) {
+        String normalized = term.trim().toLowerCase(Locale.ROOT);
+        return (root, query, cb) -> {
+            Expression<String> column = cb.lower(root.get(attribute));
+            return switch (mode) {
+                case EXACT -> cb.equal(column, normalized);
+                case PREFIX -> like(cb, column, escapeLike(normalized) + "%");
+                case CONTAINS -> like(cb, column, "%" + escapeLike(normalized) + "%");
+            };
+        };
+    }
+
+    private static Predicate like(
+            CriteriaBuilder cb, Expression<String> column, String pattern) {
+        return cb.like(column, pattern, LIKE_ESCAPE);
+    }
+
+    // Ký tự đại diện do người dùng nhập được so khớp nguyên văn, tránh "%" biến tìm theo tiền tố thành quét toàn bảng
+    static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,223 @@
+package com.hau.identity_service.security;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.hau.identity_service.entity.PasswordHashingSetting;
+import com.hau.identity_service.repository.PasswordHashingSettingRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link DelegatingPasswordEncoder} với thuật toán và cost được chọn qua {@link PasswordHashingCalibrator}. Hash mới
+ * có tiền tố {@code {id}}; hash bcrypt cũ không có tiền tố vẫn kiểm tra được và được coi là cần nâng cấp.
+ *
+ * <p>Việc hiệu chỉnh chỉ chạy khi admin gọi {@link #recalibrate()}, kết quả được lưu vào bảng
+ * {@code password_hashing_setting} và mọi node nạp lại sau mỗi {@code password.hashing.settingRefreshSeconds}. Nhờ
+ * vậy các node luôn băm cùng một cấu hình thay vì mỗi node tự đo rồi băm lại hash của node khác qua lại. Chưa hiệu
+ * chỉnh lần nào thì dùng bcrypt cost=10 như trước.
+ */
+@Component
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+public class AdaptivePasswordEncoder implements PasswordEncoder {
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[abxy]?\\$(\\d\\d)\\$.*");
+    private static final Pattern ARGON2_HASH = Pattern.compile("^\\$(argon2\\w*)\\$v=\\d+\\$([^$]+)\\$.*");
+
+    // Thứ tự ưu tiên, thuật toán đầu tiên có cấu hình nằm trong ngân sách sẽ được chọn
+    @Value("${password.hashing.algorithms:bcrypt}")
+    private String algorithms;
+
+    @Value("${password.hashing.latencyBudgetMillis:250}")
+    private long latencyBudgetMillis;
+
+    private final PasswordHashingSettingRepository settingRepository;
+    private final PasswordHashingCalibrator calibrator = new PasswordHashingCalibrator();
+    private final ReentrantLock settingLock = new ReentrantLock();
+
+    private volatile DelegatingPasswordEncoder delegate;
+    private volatile PasswordHashingCalibrator.Calibration calibration;
+
+    @PostConstruct
+    void init() {
+        // Không đọc được bảng thì dừng khởi động: tự chọn cấu hình riêng sẽ làm các node băm khác nhau
+        PasswordHashingCalibrator.Calibration stored = loadSetting();
+        apply(stored != null
+                ? stored
+                : new PasswordHashingCalibrator.Calibration(
+                        PasswordHashingCalibrator.bcrypt(10), latencyBudgetMillis, List.of()));
+    }
+
+    public PasswordHashingCalibrator.Calibration recalibrate() {
+        settingLock.lock();
+        try {
+            PasswordHashingCalibrator.Calibration result =
+                    calibrator.calibrate(Arrays.asList(algorithms.split(",")), latencyBudgetMillis);
+            settingRepository.save(PasswordHashingSetting.builder()
+                    .id(PasswordHashingSetting.CURRENT)
+                    .encoder(result.selected().description())
+                    .latencyBudgetMillis(result.latencyBudgetMillis())
+                    .calibratedAt(Instant.now())
+                    .build());
+            apply(result);
+            return result;
+        } finally {
+            settingLock.unlock();
+        }
+    }
+
+    // Nhận cấu hình do node khác hiệu chỉnh
+    @Scheduled(
+            fixedDelayString = "${password.hashing.settingRefreshSeconds:60}",
+            initialDelayString = "${password.hashing.settingRefreshSeconds:60}",
+            timeUnit = TimeUnit.SECONDS)
+    public void sync() {
+        settingLock.lock();
+        try {
+            PasswordHashingCalibrator.Calibration stored = loadSetting();
+            if (stored != null && !stored.selected().description().equals(calibration.selected().description())) {
+                apply(stored);
+            }
+        } catch (DataAccessException | IllegalStateException e) {
+            log.warn("Không thể nạp cấu hình băm mật khẩu: {}", e.getMessage());
+        } finally {
+            settingLock.unlock();
+        }
+    }
+
+    public PasswordHashingCalibrator.Calibration calibration() {
+        return calibration;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return delegate.matches(rawPassword, encodedPassword);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Mô tả định dạng của một hash đã lưu, ví dụ "bcrypt cost=10 (không có tiền tố)" hay "argon2id m=19456,t=2,p=1".
+     */
+    public static String describe(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return "trống";
+        }
+        String id = null;
+        String hash = encodedPassword;
+        if (encodedPassword.startsWith("{")) {
+            int end = encodedPassword.indexOf('}');
+            if (end > 0) {
+                id = encodedPassword.substring(1, end);
+                hash = encodedPassword.substring(end + 1);
+            }
+        }
+        if (id != null && id.startsWith("pbkdf2-")) {
+            return "pbkdf2-sha256 iterations=" + id.substring("pbkdf2-".length());
+        }
+        Matcher bcrypt = BCRYPT_HASH.matcher(hash);
+        if (bcrypt.matches()) {
+            return "bcrypt cost=" + Integer.parseInt(bcrypt.group(1)) + (id == null ? " (không có tiền tố)" : "");
+        }
+        Matcher argon2 = ARGON2_HASH.matcher(hash);
+        if (argon2.matches()) {
+            return argon2.group(1) + " " + argon2.group(2);
+        }
+        return "không xác định" + (id != null ? " {" + id + "}" : "");
+    }
+
+    /**
+     * Hash có định dạng mà encoder kiểm tra được, dùng khi nhận hash mang từ hệ thống khác sang: {@code {bcrypt}...},
+     * {@code {argon2}...}, bcrypt không có tiền tố, và PBKDF2 chỉ ở dạng {@code {pbkdf2-<số vòng lặp>}...} với số vòng
+     * lặp thuộc {@link PasswordHashingCalibrator#PBKDF2_ITERATIONS} (hex của salt 16 byte và hash SHA-256). Id
+     * {@code {pbkdf2}} mặc định của Spring không được nhận vì không ghi số vòng lặp.
+     */
+    public static boolean isSupportedHash(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        if (encodedPassword.startsWith("{")) {
+            int end = encodedPassword.indexOf('}');
+            if (end < 0) {
+                return false;
+            }
+            String id = encodedPassword.substring(1, end);
+            String hash = encodedPassword.substring(end + 1);
+            return switch (id) {
+                case "bcrypt" -> BCRYPT_HASH.matcher(hash).matches();
+                case "argon2" -> ARGON2_HASH.matcher(hash).matches();
+                default -> !hash.isEmpty()
+                        && Arrays.stream(PasswordHashingCalibrator.PBKDF2_ITERATIONS)
+                                .anyMatch(iterations -> PasswordHashingCalibrator.pbkdf2Id(iterations).equals(id));
+            };
+        }
+        // Không có tiền tố: chỉ bcrypt, giống hash cũ trong bảng users
+        return BCRYPT_HASH.matcher(encodedPassword).matches();
+    }
+
+    private PasswordHashingCalibrator.Calibration loadSetting() {
+        return settingRepository
+                .findById(PasswordHashingSetting.CURRENT)
+                .map(setting -> new PasswordHashingCalibrator.Calibration(
+                        PasswordHashingCalibrator.candidate(setting.getEncoder())
+                                .orElseThrow(() -> new IllegalStateException(
+                                        "Cấu hình băm mật khẩu không hợp lệ: " + setting.getEncoder())),
+                        setting.getLatencyBudgetMillis(),
+                        List.of()))
+                .orElse(null);
+    }
+
+    private void apply(PasswordHashingCalibrator.Calibration result) {
+        PasswordHashingCalibrator.Candidate selected = result.selected();
+        PasswordEncoder selectedEncoder = selected.encoder().get();
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(10));
+        int[] argon2Default = PasswordHashingCalibrator.ARGON2_PARAMETERS[0];
+        encoders.put("argon2", PasswordHashingCalibrator.argon2(argon2Default[0], argon2Default[1]).encoder().get());
+        for (int iterations : PasswordHashingCalibrator.PBKDF2_ITERATIONS) {
+            encoders.put(PasswordHashingCalibrator.pbkdf2Id(iterations), PasswordHashingCalibrator.pbkdf2(iterations)
+                    .encoder()
+                    .get());
+        }
+        // Encoder được chọn quyết định cả việc hash nào cần nâng cấp (upgradeEncoding)
+        encoders.put(selected.id(), selectedEncoder);
+
+        DelegatingPasswordEncoder delegatingPasswordEncoder = new DelegatingPasswordEncoder(selected.id(), encoders);
+        // Hash bcrypt lưu trước đây không có tiền tố {bcrypt}
+        delegatingPasswordEncoder.setDefaultPasswordEncoderForMatches(encoders.get("bcrypt"));
+
+        delegate = delegatingPasswordEncoder;
+        calibration = result;
+        log.info("Băm mật khẩu bằng {}", selected.description());
+    }
+}
@@ -0,0 +1,103 @@
+package com.hau.identity_service.security;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Xác định IP của client khi service đứng sau gateway. {@code X-Forwarded-For} chỉ được tin khi request đến trực tiếp
+ * từ một proxy trong {@code login.throttle.trustedProxies}; header được đọc từ phải sang trái, bỏ qua các proxy tin
+ * cậy, địa chỉ đầu tiên không phải proxy là client. Request từ proxy mà không có header thì không xác định được client,
+ * trả về {@code null} để {@link LoginThrottle} bỏ qua việc đếm theo IP thay vì khóa chung IP của gateway.
+ */
+@Component
+public class ClientIpResolver {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+    private static final Pattern IPV4 =
+            Pattern.compile("^((25[0-5]|2[0-4]\\d|1?\\d?\\d)\\.){3}(25[0-5]|2[0-4]\\d|1?\\d?\\d)$");
+
+    // Dạng "10.0.0.0/8,192.168.1.10", để trống thì luôn dùng địa chỉ kết nối
+    @Value("${login.throttle.trustedProxies:}")
+    private String trustedProxies;
+
+    private final List<IpAddressMatcher> proxies = new ArrayList<>();
+
+    @PostConstruct
+    void init() {
+        if (!StringUtils.hasText(trustedProxies)) {
+            return;
+        }
+        for (String proxy : trustedProxies.split(",")) {
+            if (StringUtils.hasText(proxy)) {
+                proxies.add(new IpAddressMatcher(proxy.trim()));
+            }
+        }
+    }
+
+    public String resolve(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!isTrustedProxy(remoteAddr)) {
+            // Client kết nối thẳng: header do chính client gửi, không được tin
+            return remoteAddr;
+        }
+        String forwardedFor = request.getHeader(FORWARDED_FOR);
+        if (!StringUtils.hasText(forwardedFor)) {
+            return null;
+        }
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!isIpLiteral(hop)) {
+                return null;
+            }
+            if (!isTrustedProxy(hop)) {
+                return hop;
+            }
+        }
+        // Mọi địa chỉ đều là proxy nội bộ
+        return null;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        if (!isIpLiteral(address)) {
+            return false;
+        }
+        try {
+            for (IpAddressMatcher proxy : proxies) {
+                if (proxy.matches(address)) {
+                    return true;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Địa chỉ IPv6 sai định dạng
+            return false;
+        }
+        return false;
+    }
+
+    // Chỉ nhận địa chỉ IP dạng số để IpAddressMatcher không phải tra DNS cho tên miền trong header
+    private static boolean isIpLiteral(String address) {
+        if (address == null || address.isEmpty() || address.length() > 45) {
+            return false;
+        }
+        if (address.indexOf(':') < 0) {
+            return IPV4.matcher(address).matches();
+        }
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != '.' && c != ':') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package com.hau.identity_service.security;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.hau.identity_service.cache.StringHashing;
+
+/**
+ * Count-min sketch cho chuỗi với bộ nhớ cố định ({@code depth × width} số int), an toàn khi nhiều luồng cùng ghi.
+ * Ước lượng không bao giờ thấp hơn giá trị thật; dùng conservative update để giảm sai số do va chạm.
+ */
+final class CountMinSketch {
+    private final AtomicIntegerArray counters;
+    private final int depth;
+    private final int width;
+
+    CountMinSketch(int depth, int width) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("width phải là lũy thừa của 2: " + width);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.counters = new AtomicIntegerArray(depth * width);
+    }
+
+    int add(String key) {
+        int[] indexes = indexes(key);
+        int estimate = Integer.MAX_VALUE;
+        for (int index : indexes) {
+            estimate = Math.min(estimate, counters.get(index));
+        }
+        int target = estimate + 1;
+        // Chỉ tăng các ô đang nhỏ hơn giá trị mới, các ô đã lớn hơn là do va chạm
+        for (int index : indexes) {
+            counters.accumulateAndGet(index, target, Math::max);
+        }
+        return target;
+    }
+
+    int estimate(String key) {
+        int estimate = Integer.MAX_VALUE;
+        for (int index : indexes(key)) {
+            estimate = Math.min(estimate, counters.get(index));
+        }
+        return estimate;
+    }
+
+    private int[] indexes(String key) {
+        long h1 = StringHashing.hash(key);
+        long h2 = StringHashing.mix(h1);
+        int[] indexes = new int[depth];
+        for (int row = 0; row < depth; row++) {
+            indexes[row] = row * width + (int) ((h1 + row * h2) & (width - 1));
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,90 @@
+package com.hau.identity_service.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Mã hóa {@code key_material} của bảng {@code jwt_signing_key} bằng AES-256-GCM với khóa suy ra (SHA-256) từ
+ * {@code jwt.keyEncryptionKey}, để bản sao database hoặc backup không đủ để ký token. {@code kid} được dùng làm AAD nên
+ * không thể chép ciphertext của khóa này sang dòng khác. Giá trị lưu có dạng {@code enc:v1:<Base64(iv || ciphertext)>};
+ * giá trị không có tiền tố là khóa ghi trước khi có mã hóa.
+ */
+final class KeyMaterialCipher {
+
+    private static final String PREFIX = "enc:v1:";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKey key;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private KeyMaterialCipher(SecretKey key) {
+        this.key = key;
+    }
+
+    /** @return {@code null} nếu chưa cấu hình khóa mã hóa */
+    static KeyMaterialCipher of(String keyEncryptionKey) {
+        if (!StringUtils.hasText(keyEncryptionKey)) {
+            return null;
+        }
+        if (keyEncryptionKey.length() < 32) {
+            throw new IllegalStateException("jwt.keyEncryptionKey phải dài ít nhất 32 ký tự");
+        }
+        try {
+            byte[] derived = MessageDigest.getInstance("SHA-256")
+                    .digest(keyEncryptionKey.getBytes(StandardCharsets.UTF_8));
+            return new KeyMaterialCipher(new SecretKeySpec(derived, "AES"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+
+    static boolean isEncrypted(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    String encrypt(String kid, String keyMaterial) {
+        byte[] iv = new byte[IV_LENGTH];
+        secureRandom.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+            byte[] ciphertext = cipher.doFinal(keyMaterial.getBytes(StandardCharsets.UTF_8));
+            byte[] stored = ByteBuffer.allocate(iv.length + ciphertext.length)
+                    .put(iv)
+                    .put(ciphertext)
+                    .array();
+            return PREFIX + Base64.getEncoder().encodeToString(stored);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Không mã hóa được khóa " + kid + ": " + e.getMessage(), e);
+        }
+    }
+
+    String decrypt(String kid, String stored) {
+        try {
+            byte[] decoded = Base64.getDecoder().decode(stored.substring(PREFIX.length()));
+            if (decoded.length <= IV_LENGTH) {
+                throw new IllegalArgumentException("Khóa " + kid + " đã mã hóa không hợp lệ");
+            }
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, decoded, 0, IV_LENGTH));
+            cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+            byte[] plaintext = cipher.doFinal(decoded, IV_LENGTH, decoded.length - IV_LENGTH);
+            return new String(plaintext, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            // Sai jwt.keyEncryptionKey hoặc dữ liệu bị sửa
+            throw new IllegalArgumentException("Không giải mã được khóa " + kid + ": " + e.getMessage(), e);
+        }
+    }
+}
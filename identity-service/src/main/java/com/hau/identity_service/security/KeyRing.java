@@ -0,0 +1,616 @@
+package com.hau.identity_service.security;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import com.hau.identity_service.entity.JwtSigningKey;
+import com.hau.identity_service.repository.JwtSigningKeyRepository;
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.*;
+import com.nimbusds.jose.jwk.*;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tập khóa dùng để ký/xác thực JWT. Mỗi khóa có một {@code kid}; signer/verifier được tạo sẵn một lần và dùng lại
+ * (các lớp signer/verifier của Nimbus an toàn đa luồng). Token không có {@code kid} (phát hành trước khi có key ring)
+ * được xác thực bằng {@code jwt.signerKey}.
+ *
+ * <p>{@code jwt.algorithm} chọn thuật toán cho khóa ký: HS512 (mặc định), RS256, ES256 hoặc EdDSA. Khi dùng khóa bất
+ * đối xứng, khóa HMAC cũ vẫn được giữ để xác thực các token đã phát hành trước đó, và public key được công bố qua
+ * {@link #jwkSet()}.
+ *
+ * <p>Khóa tạo khi xoay khóa được lưu trong bảng {@code jwt_signing_key} dùng chung cho mọi node, không chỉ trong bộ
+ * nhớ: mỗi node nạp lại bảng sau mỗi {@code jwt.keyRefreshSeconds} và ngay khi gặp {@code kid} lạ, nên token ký trên
+ * node này xác thực được trên node khác và sau khi khởi động lại. Khóa đang ký là khóa trong bảng chưa bị ngừng dùng,
+ * đúng thuật toán và tạo gần nhất (hoặc {@code jwt.activeKid} nếu được cấu hình); mọi node chọn cùng một khóa. Khóa
+ * trong {@code jwt.signerKey}/{@code jwt.keys} vẫn do cấu hình quản lý.
+ *
+ * <p>Secret HMAC và private JWK trong bảng được mã hóa bằng {@code jwt.keyEncryptionKey} (xem
+ * {@link KeyMaterialCipher}); khóa này chỉ nằm trong cấu hình/biến môi trường, không nằm trong database. Không cấu hình
+ * thì không ghi được khóa mới vào bảng. Khóa ghi ở dạng rõ trước đây được mã hóa lại khi khởi động.
+ */
+@Component
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+public class KeyRing {
+
+    private static final JWSAlgorithm HMAC_ALGORITHM = JWSAlgorithm.HS512;
+    private static final List<JWSAlgorithm> SUPPORTED_ALGORITHMS =
+            List.of(JWSAlgorithm.HS512, JWSAlgorithm.RS256, JWSAlgorithm.ES256, JWSAlgorithm.EdDSA);
+
+    private final JwtSigningKeyRepository signingKeyRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${jwt.signerKey}")
+    private String signerKey;
+
+    @Value("${jwt.signerKeyId:default}")
+    private String signerKeyId;
+
+    // Dạng "kid1:secret1,kid2:secret2"
+    @Value("${jwt.keys:}")
+    private String configuredKeys;
+
+    @Value("${jwt.activeKid:}")
+    private String activeKid;
+
+    @Value("${jwt.algorithm:HS512}")
+    private String algorithmName;
+
+    // File JWK set của phiên bản trước; nếu có, các khóa trong file được nhập vào bảng jwt_signing_key khi khởi động
+    @Value("${jwt.jwkSetPath:}")
+    private String jwkSetPath;
+
+    @Value("${jwt.keyEncryptionKey:}")
+    private String keyEncryptionKey;
+
+    @Value("${jwt.expirationRefreshMinutes}")
+    private long expirationRefreshMinutes;
+
+    // Khoảng cách tối thiểu giữa hai lần nạp lại do gặp kid lạ, để token rác không biến thành tải lên database
+    @Value("${jwt.unknownKidReloadIntervalMillis:1000}")
+    private long unknownKidReloadIntervalMillis;
+
+    private final ReentrantLock keysLock = new ReentrantLock();
+
+    private JWSAlgorithm algorithm;
+    private TransactionTemplate transactionTemplate;
+    private KeyMaterialCipher keyMaterialCipher;
+    private Map<String, SigningKey> configKeys;
+    private volatile Map<String, SigningKey> keys = Map.of();
+    private volatile SigningKey legacyKey;
+    private volatile SigningKey activeKey;
+    private volatile PublicKeySet publicKeySet;
+    private volatile long lastReloadNanos;
+
+    @PostConstruct
+    void init() {
+        algorithm = JWSAlgorithm.parse(algorithmName);
+        if (!SUPPORTED_ALGORITHMS.contains(algorithm)) {
+            throw new IllegalStateException("jwt.algorithm không được hỗ trợ: " + algorithmName);
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        keyMaterialCipher = KeyMaterialCipher.of(keyEncryptionKey);
+
+        Map<String, SigningKey> configured = new HashMap<>();
+        if (StringUtils.hasText(signerKey)) {
+            legacyKey = createHmacKey(signerKeyId, signerKey.getBytes(StandardCharsets.UTF_8), Instant.now());
+            configured.put(legacyKey.kid(), legacyKey);
+        } else if (isHmac()) {
+            throw new IllegalStateException("jwt.signerKey là bắt buộc khi jwt.algorithm là HS512");
+        }
+
+        if (StringUtils.hasText(configuredKeys)) {
+            for (String entry : configuredKeys.split(",")) {
+                String[] parts = entry.trim().split(":", 2);
+                if (parts.length != 2) {
+                    throw new IllegalStateException("Cấu hình jwt.keys không hợp lệ: " + entry);
+                }
+                SigningKey key = createHmacKey(
+                        parts[0].trim(), parts[1].trim().getBytes(StandardCharsets.UTF_8), Instant.now());
+                configured.put(key.kid(), key);
+            }
+        }
+        configKeys = Map.copyOf(configured);
+
+        encryptPlaintextKeys();
+        if (!isHmac()) {
+            importJwkSetFile();
+        }
+        // Không có nguồn khóa chung thì không khởi động, tránh mỗi node tự ký bằng khóa riêng
+        if (!reload()) {
+            throw new IllegalStateException("Không đọc được khóa ký từ bảng jwt_signing_key");
+        }
+        if (activeKey == null && !isHmac() && !StringUtils.hasText(activeKid)) {
+            createFirstAsymmetricKey();
+        }
+
+        if (activeKey == null) {
+            throw new IllegalStateException("Không tìm thấy khóa jwt.activeKid: " + activeKid);
+        }
+        if (!activeKey.header().getAlgorithm().equals(algorithm)) {
+            throw new IllegalStateException("Khóa " + activeKey.kid() + " không dùng thuật toán " + algorithm);
+        }
+        log.info("Key ring khởi tạo với {} khóa, khóa đang ký: {} ({})", keys.size(), activeKey.kid(), algorithm);
+    }
+
+    public String sign(JWTClaimsSet claimsSet) throws JOSEException {
+        SigningKey key = activeKey;
+        JWSObject jwsObject = new JWSObject(key.header(), new Payload(claimsSet.toJSONObject()));
+        jwsObject.sign(key.signer());
+        return jwsObject.serialize();
+    }
+
+    public boolean verify(JWSObject jwsObject) throws JOSEException {
+        String kid = jwsObject.getHeader().getKeyID();
+        SigningKey key = find(kid);
+        // Khóa vừa được node khác tạo: nạp lại bảng thay vì từ chối token
+        if (key == null && kid != null && reloadForUnknownKid()) {
+            key = find(kid);
+        }
+        // Thuật toán trong header phải khớp với khóa, tránh nhầm lẫn HMAC/bất đối xứng
+        return key != null
+                && key.header().getAlgorithm().equals(jwsObject.getHeader().getAlgorithm())
+                && jwsObject.verify(key.verifier());
+    }
+
+    public SigningKey find(String kid) {
+        if (kid == null) {
+            return legacyKey;
+        }
+        return keys.get(kid);
+    }
+
+    public SigningKey active() {
+        return activeKey;
+    }
+
+    public Collection<SigningKey> keys() {
+        return keys.values();
+    }
+
+    // Public key của các khóa bất đối xứng còn dùng để xác thực, kèm ETag tính sẵn
+    public PublicKeySet jwkSet() {
+        return publicKeySet;
+    }
+
+    /**
+     * Thêm khóa mới vào bảng dùng chung và chuyển sang ký bằng khóa đó; các khóa cũ hơn trong bảng được đánh dấu ngừng
+     * dùng trong cùng transaction. Khóa cũ vẫn xác thực được cho tới khi mọi token nó đã ký hết hạn làm mới, nên không
+     * có người dùng nào bị đăng xuất. Khóa chỉ được dùng sau khi đã lưu thành công. Với thuật toán bất đối xứng, cặp
+     * khóa luôn được sinh mới.
+     *
+     * <p>Với HS512, {@code secret} là bắt buộc: service dùng identity-client chỉ xác thực được token bằng secret
+     * khai báo trong {@code identity.client.keys}, nên cặp {@code kid:secret} phải được phân phối cho các service đó
+     * trước khi xoay, nếu không mọi token ký bằng khóa mới đều phải introspect từ xa.
+     */
+    public SigningKey rotate(String kid, String secret) {
+        keysLock.lock();
+        try {
+            if (StringUtils.hasText(activeKid)) {
+                throw new IllegalArgumentException("jwt.activeKid đang cố định khóa ký, bỏ cấu hình này để xoay khóa");
+            }
+            if (keys.containsKey(kid)) {
+                throw new IllegalArgumentException("kid đã tồn tại: " + kid);
+            }
+            if (keyMaterialCipher == null) {
+                throw new IllegalArgumentException("Chưa cấu hình jwt.keyEncryptionKey, không thể lưu khóa ký mới");
+            }
+            Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            String keyMaterial;
+            if (isHmac()) {
+                if (!StringUtils.hasText(secret)) {
+                    throw new IllegalArgumentException("secret là bắt buộc khi xoay khóa HS512, khai báo cùng"
+                            + " kid:secret trong identity.client.keys");
+                }
+                byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+                // Kiểm tra độ dài secret trước khi lưu
+                createHmacKey(kid, secretBytes, now);
+                keyMaterial = Base64.getEncoder().encodeToString(secretBytes);
+            } else {
+                if (StringUtils.hasText(secret)) {
+                    throw new IllegalArgumentException("Không thể dùng secret khi jwt.algorithm là " + algorithm);
+                }
+                keyMaterial = generateJwk(kid).toJSONString();
+            }
+
+            SigningKey previous = activeKey;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    signingKeyRepository.insert(kid, algorithm.getName(), encrypt(kid, keyMaterial), now);
+                    signingKeyRepository.retireCreatedBefore(now, now);
+                });
+            } catch (DataIntegrityViolationException e) {
+                throw new IllegalArgumentException("kid đã tồn tại: " + kid);
+            }
+            if (!reload()) {
+                throw new IllegalStateException("Đã lưu khóa " + kid + " nhưng chưa nạp lại được bảng jwt_signing_key");
+            }
+            log.info("Đã xoay khóa ký JWT: {} -> {}", previous.kid(), activeKey.kid());
+            return keys.get(kid);
+        } finally {
+            keysLock.unlock();
+        }
+    }
+
+    public void retire(String kid) {
+        keysLock.lock();
+        try {
+            if (configKeys.containsKey(kid)) {
+                throw new IllegalArgumentException(
+                        "Khóa " + kid + " nằm trong cấu hình, gỡ khỏi jwt.signerKey/jwt.keys để ngừng dùng");
+            }
+            if (activeKey.kid().equals(kid)) {
+                throw new IllegalArgumentException("Không thể thu hồi khóa đang dùng để ký");
+            }
+            Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            transactionTemplate.executeWithoutResult(status -> signingKeyRepository.retire(kid, now));
+            reload();
+        } finally {
+            keysLock.unlock();
+        }
+    }
+
+    @Scheduled(
+            fixedDelayString = "${jwt.keyRefreshSeconds:30}",
+            initialDelayString = "${jwt.keyRefreshSeconds:30}",
+            timeUnit = TimeUnit.SECONDS)
+    public void sync() {
+        reload();
+    }
+
+    @Scheduled(fixedRate = 60, timeUnit = TimeUnit.MINUTES)
+    public void purgeRetiredKeys() {
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(expirationRefreshMinutes));
+        try {
+            Integer deleted = transactionTemplate.execute(status -> signingKeyRepository.deleteRetiredBefore(cutoff));
+            if (deleted != null && deleted > 0) {
+                log.info("Đã xóa {} khóa ký ngừng dùng trước {}", deleted, cutoff);
+                reload();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Không thể xóa khóa ký đã ngừng dùng: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Dựng lại tập khóa từ cấu hình và bảng {@code jwt_signing_key}. Signer/verifier của khóa đã nạp trước đó được dùng
+     * lại; khi database không phản hồi, tập khóa hiện tại được giữ nguyên.
+     *
+     * @return {@code false} nếu không đọc được bảng
+     */
+    boolean reload() {
+        keysLock.lock();
+        try {
+            List<JwtSigningKey> records;
+            try {
+                records = signingKeyRepository.findAll();
+            } catch (DataAccessException e) {
+                log.warn("Không đọc được khóa ký từ database, giữ tập khóa hiện tại: {}", e.getMessage());
+                return false;
+            }
+
+            Map<String, SigningKey> loaded = new HashMap<>(configKeys);
+            for (JwtSigningKey record : records) {
+                if (configKeys.containsKey(record.getKid())) {
+                    log.warn(
+                            "Khóa {} vừa có trong cấu hình vừa có trong bảng jwt_signing_key, dùng cấu hình",
+                            record.getKid());
+                    continue;
+                }
+                SigningKey key = keys.get(record.getKid());
+                if (key == null) {
+                    try {
+                        key = fromRecord(record);
+                    } catch (IllegalArgumentException e) {
+                        log.error(
+                                "Bỏ qua khóa {} không hợp lệ trong bảng jwt_signing_key: {}",
+                                record.getKid(),
+                                e.getMessage());
+                        continue;
+                    }
+                }
+                if (!Objects.equals(key.retiredAt(), record.getRetiredAt())) {
+                    key = key.retire(record.getRetiredAt());
+                }
+                loaded.put(key.kid(), key);
+            }
+
+            keys = Map.copyOf(loaded);
+            SigningKey selected = selectActive();
+            if (selected != null) {
+                activeKey = selected;
+            }
+            refreshPublicKeySet();
+            lastReloadNanos = System.nanoTime();
+            return true;
+        } finally {
+            keysLock.unlock();
+        }
+    }
+
+    private boolean reloadForUnknownKid() {
+        keysLock.lock();
+        try {
+            long sinceLastReload = System.nanoTime() - lastReloadNanos;
+            return sinceLastReload >= TimeUnit.MILLISECONDS.toNanos(unknownKidReloadIntervalMillis) && reload();
+        } finally {
+            keysLock.unlock();
+        }
+    }
+
+    private boolean isHmac() {
+        return HMAC_ALGORITHM.equals(algorithm);
+    }
+
+    private SigningKey selectActive() {
+        if (StringUtils.hasText(activeKid)) {
+            return keys.get(activeKid);
+        }
+        return keys.values().stream()
+                .filter(key -> !configKeys.containsKey(key.kid())
+                        && key.retiredAt() == null
+                        && key.header().getAlgorithm().equals(algorithm))
+                .max(Comparator.comparing(SigningKey::createdAt).thenComparing(SigningKey::kid))
+                .orElse(isHmac() ? legacyKey : null);
+    }
+
+    // Node đầu tiên khởi động với thuật toán bất đối xứng tạo cặp khóa; node khởi động cùng lúc có thể tạo thêm khóa
+    // nhưng mọi node vẫn chọn cùng một khóa đang ký sau khi nạp lại
+    private void createFirstAsymmetricKey() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        String kid = algorithm.getName().toLowerCase() + "-" + now.getEpochSecond();
+        String keyMaterial = encrypt(kid, generateJwk(kid).toJSONString());
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> signingKeyRepository.insert(kid, algorithm.getName(), keyMaterial, now));
+            log.info("Đã tạo khóa ký {} và lưu vào bảng jwt_signing_key", kid);
+        } catch (DataIntegrityViolationException e) {
+            log.info("Khóa {} vừa được node khác tạo", kid);
+        }
+        if (!reload()) {
+            throw new IllegalStateException("Không đọc được khóa ký từ bảng jwt_signing_key");
+        }
+    }
+
+    private void importJwkSetFile() {
+        if (!StringUtils.hasText(jwkSetPath) || !Files.exists(Path.of(jwkSetPath))) {
+            return;
+        }
+        List<JWK> jwks;
+        try {
+            jwks = JWKSet.load(Path.of(jwkSetPath).toFile()).getKeys();
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Không đọc được jwt.jwkSetPath: " + jwkSetPath, e);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (JWK jwk : jwks) {
+                Instant createdAt = jwk.getIssueTime() != null ? jwk.getIssueTime().toInstant() : Instant.now();
+                SigningKey key = createAsymmetricKey(jwk, createdAt);
+                if (!signingKeyRepository.existsById(key.kid())) {
+                    signingKeyRepository.insert(
+                            key.kid(),
+                            key.header().getAlgorithm().getName(),
+                            encrypt(key.kid(), jwk.toJSONString()),
+                            createdAt.truncatedTo(ChronoUnit.MILLIS));
+                    log.info("Đã nhập khóa {} từ {} vào bảng jwt_signing_key", key.kid(), jwkSetPath);
+                }
+            }
+        });
+    }
+
+    // Khóa có sẵn trong bảng ở dạng rõ (ghi trước khi có mã hóa) được mã hóa lại tại chỗ
+    private void encryptPlaintextKeys() {
+        List<JwtSigningKey> plaintext;
+        try {
+            plaintext = signingKeyRepository.findAll().stream()
+                    .filter(record -> !KeyMaterialCipher.isEncrypted(record.getKeyMaterial()))
+                    .toList();
+        } catch (DataAccessException e) {
+            log.warn("Không đọc được bảng jwt_signing_key để mã hóa khóa cũ: {}", e.getMessage());
+            return;
+        }
+        if (plaintext.isEmpty()) {
+            return;
+        }
+        if (keyMaterialCipher == null) {
+            log.warn(
+                    "{} khóa trong bảng jwt_signing_key chưa được mã hóa, cấu hình jwt.keyEncryptionKey",
+                    plaintext.size());
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> plaintext.forEach(record -> signingKeyRepository
+                .updateKeyMaterial(record.getKid(), encrypt(record.getKid(), record.getKeyMaterial()))));
+        log.info("Đã mã hóa {} khóa ký cũ trong bảng jwt_signing_key", plaintext.size());
+    }
+
+    private String encrypt(String kid, String keyMaterial) {
+        if (keyMaterialCipher == null) {
+            throw new IllegalStateException("Chưa cấu hình jwt.keyEncryptionKey, không thể lưu khóa ký vào database");
+        }
+        return keyMaterialCipher.encrypt(kid, keyMaterial);
+    }
+
+    private String decrypt(JwtSigningKey record) {
+        if (!KeyMaterialCipher.isEncrypted(record.getKeyMaterial())) {
+            return record.getKeyMaterial();
+        }
+        if (keyMaterialCipher == null) {
+            throw new IllegalArgumentException("khóa đã mã hóa nhưng chưa cấu hình jwt.keyEncryptionKey");
+        }
+        return keyMaterialCipher.decrypt(record.getKid(), record.getKeyMaterial());
+    }
+
+    private SigningKey fromRecord(JwtSigningKey record) {
+        String keyMaterial = decrypt(record);
+        if (HMAC_ALGORITHM.getName().equals(record.getAlgorithm())) {
+            return createHmacKey(record.getKid(), Base64.getDecoder().decode(keyMaterial), record.getCreatedAt());
+        }
+        try {
+            return createAsymmetricKey(JWK.parse(keyMaterial), record.getCreatedAt());
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("JWK không hợp lệ: " + e.getMessage(), e);
+        }
+    }
+
+    private void refreshPublicKeySet() {
+        List<JWK> publicKeys = keys.values().stream()
+                .map(SigningKey::jwk)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(JWK::getKeyID))
+                .map(JWK::toPublicJWK)
+                .toList();
+        String json = new JWKSet(publicKeys).toString();
+        publicKeySet = new PublicKeySet(json, "\"" + sha256(json) + "\"");
+    }
+
+    private JWK generateJwk(String kid) {
+        try {
+            Instant now = Instant.now();
+            if (JWSAlgorithm.RS256.equals(algorithm)) {
+                return new RSAKeyGenerator(2048)
+                        .keyID(kid)
+                        .keyUse(KeyUse.SIGNATURE)
+                        .algorithm(algorithm)
+                        .issueTime(Date.from(now))
+                        .generate();
+            }
+            if (JWSAlgorithm.ES256.equals(algorithm)) {
+                return new ECKeyGenerator(Curve.P_256)
+                        .keyID(kid)
+                        .keyUse(KeyUse.SIGNATURE)
+                        .algorithm(algorithm)
+                        .issueTime(Date.from(now))
+                        .generate();
+            }
+            return new OctetKeyPairGenerator(Curve.Ed25519)
+                    .keyID(kid)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(algorithm)
+                    .issueTime(Date.from(now))
+                    .generate();
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Không sinh được khóa " + algorithm + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static SigningKey createHmacKey(String kid, byte[] secret, Instant createdAt) {
+        try {
+            SecretKey secretKey = new SecretKeySpec(secret, "HmacSHA512");
+            return new SigningKey(
+                    kid,
+                    new JWSHeader.Builder(HMAC_ALGORITHM).keyID(kid).build(),
+                    null,
+                    new MACSigner(secretKey),
+                    new MACVerifier(secretKey),
+                    createdAt,
+                    null);
+        } catch (JOSEException e) {
+            throw new IllegalArgumentException("Khóa " + kid + " không hợp lệ: " + e.getMessage(), e);
+        }
+    }
+
+    private static SigningKey createAsymmetricKey(JWK jwk, Instant createdAt) {
+        String kid = jwk.getKeyID();
+        if (!StringUtils.hasText(kid)) {
+            throw new IllegalArgumentException("Khóa trong JWK set phải có kid");
+        }
+        try {
+            JWSAlgorithm keyAlgorithm;
+            JWSSigner signer;
+            JWSVerifier verifier;
+            if (jwk instanceof RSAKey rsaKey) {
+                keyAlgorithm = JWSAlgorithm.RS256;
+                signer = new RSASSASigner(rsaKey);
+                verifier = new RSASSAVerifier(rsaKey.toRSAPublicKey());
+            } else if (jwk instanceof ECKey ecKey && Curve.P_256.equals(ecKey.getCurve())) {
+                keyAlgorithm = JWSAlgorithm.ES256;
+                signer = new ECDSASigner(ecKey);
+                verifier = new ECDSAVerifier(ecKey.toPublicJWK());
+            } else if (jwk instanceof OctetKeyPair okp && Curve.Ed25519.equals(okp.getCurve())) {
+                keyAlgorithm = JWSAlgorithm.EdDSA;
+                signer = new Ed25519Signer(okp);
+                verifier = new Ed25519Verifier(okp.toPublicJWK());
+            } else {
+                throw new IllegalArgumentException("Loại khóa không được hỗ trợ: " + kid);
+            }
+            return new SigningKey(
+                    kid,
+                    new JWSHeader.Builder(keyAlgorithm).keyID(kid).build(),
+                    jwk,
+                    signer,
+                    verifier,
+                    createdAt,
+                    null);
+        } catch (JOSEException e) {
+            throw new IllegalArgumentException("Khóa " + kid + " không hợp lệ: " + e.getMessage(), e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+
+    /**
+     * @param jwk private JWK của khóa bất đối xứng, {@code null} với khóa HMAC (không bao giờ được công bố)
+     */
+    public record SigningKey(
+            String kid,
+            JWSHeader header,
+            JWK jwk,
+            JWSSigner signer,
+            JWSVerifier verifier,
+            Instant createdAt,
+            Instant retiredAt) {
+
+        SigningKey retire(Instant at) {
+            return new SigningKey(kid, header, jwk, signer, verifier, createdAt, at);
+        }
+    }
+
+    public record PublicKeySet(String json, String etag) {}
+}
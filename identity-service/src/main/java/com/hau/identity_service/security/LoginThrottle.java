@@ -0,0 +1,250 @@
+package com.hau.identity_service.security;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hau.identity_service.exception.RetryLaterException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Đếm số lần đăng nhập sai theo username và IP để chặn dò mật khẩu trước khi tốn truy vấn database và bcrypt.
+ *
+ * <p>Số lần sai được đếm bằng hai count-min sketch theo cửa sổ thời gian (cửa sổ hiện tại và cửa sổ trước), nên bộ
+ * nhớ cố định dù có hàng triệu username khác nhau và trạng thái tự hết hạn sau tối đa hai cửa sổ. Sketch chỉ ước lượng
+ * dư: khi nhiều username khác nhau cùng sai, va chạm đẩy ước lượng của user vô can lên ngưỡng. Vì vậy sketch chỉ dùng
+ * để lọc nhanh; trước khi từ chối, số lần sai được xác nhận bằng bộ đếm chính xác trong Caffeine, giới hạn
+ * {@code trackedKeys} khóa. Khi bộ đếm đầy, chính sách W-TinyLFU giữ lại các khóa sai thường xuyên (đang bị dò) thay vì
+ * các khóa chỉ sai một lần.
+ *
+ * <p>Sau {@code delayAfterFailures} lần sai, mỗi lần thử phải cách lần sai trước một khoảng tăng gấp đôi; đạt
+ * {@code lockoutFailures} thì username bị khóa tạm thời. IP có ngưỡng khóa riêng, cao hơn vì nhiều người có thể dùng
+ * chung một IP.
+ */
+@Component
+@RequiredArgsConstructor
+public class LoginThrottle {
+
+    private static final int SKETCH_DEPTH = 4;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${login.throttle.windowMinutes:15}")
+    private long windowMinutes;
+
+    @Value("${login.throttle.sketchWidth:65536}")
+    private int sketchWidth;
+
+    @Value("${login.throttle.delayAfterFailures:3}")
+    private int delayAfterFailures;
+
+    @Value("${login.throttle.baseDelayMillis:1000}")
+    private long baseDelayMillis;
+
+    @Value("${login.throttle.maxDelaySeconds:60}")
+    private long maxDelaySeconds;
+
+    @Value("${login.throttle.lockoutFailures:10}")
+    private int lockoutFailures;
+
+    @Value("${login.throttle.ipLockoutFailures:100}")
+    private int ipLockoutFailures;
+
+    @Value("${login.throttle.trackedKeys:100000}")
+    private long trackedKeys;
+
+    private final ReentrantLock rotationLock = new ReentrantLock();
+
+    private volatile Window window;
+    // Số lần sai chính xác và thời điểm sai gần nhất của từng username/IP
+    private Cache<String, Failures> failures;
+
+    private Counter delayedCounter;
+    private Counter lockedCounter;
+    private Counter unconfirmedCounter;
+
+    @PostConstruct
+    void init() {
+        long now = System.currentTimeMillis();
+        window = new Window(newSketch(), newSketch(), now, now - windowMillis());
+        failures = Caffeine.newBuilder()
+                .maximumSize(trackedKeys)
+                .expireAfterWrite(Duration.ofMillis(2 * windowMillis()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, failures, "login.throttle.failures");
+        delayedCounter = Counter.builder("login.throttle.rejected")
+                .tag("reason", "delay")
+                .register(meterRegistry);
+        lockedCounter = Counter.builder("login.throttle.rejected")
+                .tag("reason", "lockout")
+                .register(meterRegistry);
+        unconfirmedCounter = Counter.builder("login.throttle.unconfirmed")
+                .description("Số lần sketch vượt ngưỡng nhưng bộ đếm chính xác không xác nhận (va chạm)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ném {@link RetryLaterException} (429 + Retry-After) nếu username hoặc IP đang bị khóa hay phải chờ thêm.
+     */
+    public void check(String username, String clientIp) {
+        Window current = window;
+        long now = System.currentTimeMillis();
+
+        if (clientIp != null) {
+            String ipKey = ipKey(clientIp);
+            Failures ipFailures = confirmed(ipKey, ipLockoutFailures, current);
+            if (ipFailures != null) {
+                lockedCounter.increment();
+                throw tooManyRequests(ipFailures.retryAfterSeconds(ipLockoutFailures, current, now, windowMillis()));
+            }
+        }
+
+        String userKey = userKey(username);
+        Failures userFailures = confirmed(userKey, delayAfterFailures, current);
+        if (userFailures == null) {
+            return;
+        }
+        if (userFailures.total() >= lockoutFailures) {
+            lockedCounter.increment();
+            throw tooManyRequests(userFailures.retryAfterSeconds(lockoutFailures, current, now, windowMillis()));
+        }
+        long elapsed = now - userFailures.lastFailureAt();
+        long delay = delayMillis(userFailures.total());
+        if (elapsed < delay) {
+            delayedCounter.increment();
+            throw tooManyRequests(Math.max(1, TimeUnit.MILLISECONDS.toSeconds(delay - elapsed + 999)));
+        }
+    }
+
+    public void recordFailure(String username, String clientIp) {
+        Window current = window;
+        long now = System.currentTimeMillis();
+        recordFailure(userKey(username), current, now);
+        if (clientIp != null) {
+            recordFailure(ipKey(clientIp), current, now);
+        }
+    }
+
+    // Đăng nhập đúng thì bỏ độ trễ; số lần sai vẫn giữ tới khi cửa sổ trôi qua để không lách được ngưỡng khóa
+    public void recordSuccess(String username) {
+        failures.asMap().computeIfPresent(userKey(username), (key, recorded) -> recorded.withoutDelay());
+    }
+
+    @Scheduled(fixedRateString = "${login.throttle.windowMinutes:15}", timeUnit = TimeUnit.MINUTES)
+    public void rotate() {
+        rotationLock.lock();
+        try {
+            Window current = window;
+            window = new Window(newSketch(), current.current(), System.currentTimeMillis(), current.startedAt());
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+
+    private void recordFailure(String key, Window current, long now) {
+        current.current().add(key);
+        failures.asMap().compute(key, (k, recorded) -> Failures.in(recorded, current).increment(now));
+    }
+
+    /**
+     * Số lần sai đã xác nhận của {@code key} nếu đạt {@code threshold}, ngược lại {@code null}. Sketch không bao giờ
+     * ước lượng thiếu nên chỉ cần tra bộ đếm chính xác khi sketch đã vượt ngưỡng.
+     */
+    private Failures confirmed(String key, int threshold, Window current) {
+        if (current.estimate(key) < threshold) {
+            return null;
+        }
+        Failures recorded = failures.getIfPresent(key);
+        Failures exact = recorded == null ? null : Failures.in(recorded, current);
+        if (exact == null || exact.total() < threshold) {
+            unconfirmedCounter.increment();
+            return null;
+        }
+        return exact;
+    }
+
+    private long delayMillis(int failures) {
+        int exponent = Math.min(30, failures - delayAfterFailures);
+        return Math.min(Duration.ofSeconds(maxDelaySeconds).toMillis(), baseDelayMillis << exponent);
+    }
+
+    private long windowMillis() {
+        return Duration.ofMinutes(windowMinutes).toMillis();
+    }
+
+    private CountMinSketch newSketch() {
+        return new CountMinSketch(SKETCH_DEPTH, sketchWidth);
+    }
+
+    private static String userKey(String username) {
+        return "u:" + (username == null ? "" : username.toLowerCase(Locale.ROOT));
+    }
+
+    private static String ipKey(String clientIp) {
+        return "ip:" + clientIp;
+    }
+
+    private static RetryLaterException tooManyRequests(long retryAfterSeconds) {
+        return new RetryLaterException(
+                HttpStatus.TOO_MANY_REQUESTS, "Đăng nhập sai quá nhiều lần, vui lòng thử lại sau", retryAfterSeconds);
+    }
+
+    private record Window(
+            CountMinSketch current, CountMinSketch previous, long startedAt, long previousStartedAt) {
+
+        int estimate(String key) {
+            return current.estimate(key) + previous.estimate(key);
+        }
+    }
+
+    // Số lần sai trong cửa sổ hiện tại và cửa sổ trước, theo cùng ranh giới cửa sổ với sketch
+    private record Failures(long windowStartedAt, int current, int previous, long lastFailureAt) {
+
+        // Dời bộ đếm ghi ở cửa sổ cũ sang cửa sổ đang dùng
+        static Failures in(Failures recorded, Window window) {
+            if (recorded == null) {
+                return new Failures(window.startedAt(), 0, 0, 0);
+            }
+            // Cửa sổ của bản ghi mới hơn khi một luồng khác vừa ghi sau lần xoay
+            if (recorded.windowStartedAt >= window.startedAt()) {
+                return recorded;
+            }
+            int previous = recorded.windowStartedAt == window.previousStartedAt() ? recorded.current : 0;
+            return new Failures(window.startedAt(), 0, previous, recorded.lastFailureAt);
+        }
+
+        int total() {
+            return current + previous;
+        }
+
+        Failures increment(long now) {
+            return new Failures(windowStartedAt, current + 1, previous, now);
+        }
+
+        Failures withoutDelay() {
+            return new Failures(windowStartedAt, current, previous, 0);
+        }
+
+        // Nếu riêng cửa sổ hiện tại đã vượt ngưỡng thì phải chờ thêm một cửa sổ nữa sau lần xoay tới
+        long retryAfterSeconds(int threshold, Window window, long now, long windowMillis) {
+            long untilRotation = Math.max(0, window.startedAt() + windowMillis - now);
+            long wait = current >= threshold ? untilRotation + windowMillis : untilRotation;
+            return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(wait));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.hau.identity_service.security;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Đo thời gian băm của các mức cost trên phần cứng hiện tại và chọn mức mạnh nhất còn nằm trong ngân sách độ trễ.
+ * Ứng viên của mỗi thuật toán được xếp theo độ mạnh tăng dần, nên việc đo dừng ngay ở mức đầu tiên vượt ngân sách.
+ */
+@Slf4j
+public class PasswordHashingCalibrator {
+
+    public static final int[] BCRYPT_STRENGTHS = {10, 11, 12, 13, 14};
+    // {memory (KiB), iterations}, bắt đầu từ mức tối thiểu OWASP khuyến nghị cho Argon2id
+    public static final int[][] ARGON2_PARAMETERS = {{19456, 2}, {19456, 3}, {47104, 2}, {47104, 3}, {65536, 3}};
+    public static final int[] PBKDF2_ITERATIONS = {310_000, 600_000, 1_000_000, 2_000_000};
+
+    private static final String SAMPLE_PASSWORD = "calibration-Password-123";
+    private static final int MEASURED_RUNS = 3;
+
+    public Calibration calibrate(List<String> algorithms, long latencyBudgetMillis) {
+        List<Measurement> measurements = new ArrayList<>();
+        Candidate fallback = null;
+
+        for (String algorithm : algorithms) {
+            List<Candidate> candidates = candidates(algorithm.trim().toLowerCase());
+            if (fallback == null && !candidates.isEmpty()) {
+                fallback = candidates.get(0);
+            }
+            Candidate best = null;
+            for (Candidate candidate : candidates) {
+                double millis = measure(candidate.encoder().get());
+                measurements.add(new Measurement(candidate.id(), candidate.description(), millis));
+                if (millis > latencyBudgetMillis) {
+                    break;
+                }
+                best = candidate;
+            }
+            if (best != null) {
+                log.info("Chọn {} ({}) với ngân sách {}ms", best.id(), best.description(), latencyBudgetMillis);
+                return new Calibration(best, latencyBudgetMillis, measurements);
+            }
+        }
+
+        if (fallback == null) {
+            throw new IllegalStateException("Không có thuật toán băm mật khẩu hợp lệ: " + algorithms);
+        }
+        log.warn("Không có cấu hình nào nằm trong ngân sách {}ms, dùng {}", latencyBudgetMillis, fallback.description());
+        return new Calibration(fallback, latencyBudgetMillis, measurements);
+    }
+
+    static List<Candidate> candidates(String algorithm) {
+        return switch (algorithm) {
+            case "bcrypt" -> Arrays.stream(BCRYPT_STRENGTHS)
+                    .mapToObj(PasswordHashingCalibrator::bcrypt)
+                    .toList();
+            case "argon2" -> Arrays.stream(ARGON2_PARAMETERS)
+                    .map(parameters -> argon2(parameters[0], parameters[1]))
+                    .toList();
+            case "pbkdf2" -> Arrays.stream(PBKDF2_ITERATIONS)
+                    .mapToObj(PasswordHashingCalibrator::pbkdf2)
+                    .toList();
+            default -> throw new IllegalArgumentException("Thuật toán băm không được hỗ trợ: " + algorithm);
+        };
+    }
+
+    // Tìm lại ứng viên theo mô tả đã lưu trong bảng password_hashing_setting
+    public static Optional<Candidate> candidate(String description) {
+        return Stream.of("argon2", "bcrypt", "pbkdf2")
+                .flatMap(algorithm -> candidates(algorithm).stream())
+                .filter(candidate -> candidate.description().equals(description))
+                .findFirst();
+    }
+
+    public static Candidate bcrypt(int strength) {
+        return new Candidate("bcrypt", "bcrypt cost=" + strength, () -> new BCryptPasswordEncoder(strength));
+    }
+
+    public static Candidate argon2(int memory, int iterations) {
+        return new Candidate(
+                "argon2",
+                "argon2id m=" + memory + ",t=" + iterations + ",p=1",
+                () -> new Argon2PasswordEncoder(16, 32, 1, memory, iterations));
+    }
+
+    // PBKDF2 không lưu số vòng lặp trong hash, nên mỗi mức có id riêng để hash cũ vẫn kiểm tra được
+    public static Candidate pbkdf2(int iterations) {
+        return new Candidate(
+                pbkdf2Id(iterations),
+                "pbkdf2-sha256 iterations=" + iterations,
+                () -> new Pbkdf2PasswordEncoder(
+                        "", 16, iterations, Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+    }
+
+    public static String pbkdf2Id(int iterations) {
+        return "pbkdf2-" + iterations;
+    }
+
+    private static double measure(PasswordEncoder encoder) {
+        // Lần đầu để JIT và khởi tạo SecureRandom, không tính
+        String hash = encoder.encode(SAMPLE_PASSWORD);
+        long[] samples = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            encoder.matches(SAMPLE_PASSWORD, hash);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[MEASURED_RUNS / 2] / 1_000_000.0;
+    }
+
+    public record Candidate(String id, String description, Supplier<PasswordEncoder> encoder) {}
+
+    public record Measurement(String id, String description, double millis) {}
+
+    public record Calibration(Candidate selected, long latencyBudgetMillis, List<Measurement> measurements) {}
+}
@@ -3,22 +3,30 @@ package com.hau.identity_service.service;
 import java.text.ParseException;
 import java.time.LocalDateTime;
 import java.util.Date;
+import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import com.hau.identity_service.cache.TokenDenylist;
+import com.hau.identity_service.cache.VerifiedTokenCache;
 import com.hau.identity_service.dto.request.AuthenticationRequest;
+import com.hau.identity_service.dto.request.BatchIntrospectRequest;
 import com.hau.identity_service.dto.request.IntrospectRequest;
 import com.hau.identity_service.dto.request.LogoutRequest;
 import com.hau.identity_service.dto.response.ApiResponse;
 import com.hau.identity_service.dto.response.AuthenticationResponse;
 import com.hau.identity_service.dto.response.IntrospectResponse;
+import com.hau.identity_service.dto.response.RevocationListResponse;
+import com.hau.identity_service.dto.response.RevokedTokenResponse;
 import com.hau.identity_service.entity.InvalidatedToken;
 import com.hau.identity_service.entity.User;
 import com.hau.identity_service.exception.AppException;
 import com.hau.identity_service.repository.InvalidatedTokenRepository;
 import com.hau.identity_service.repository.UserRepository;
+import com.hau.identity_service.security.LoginThrottle;
 import com.nimbusds.jose.*;
 
 import lombok.RequiredArgsConstructor;
@@ -32,15 +40,34 @@ public class AuthenticationService {
     private final InvalidatedTokenRepository invalidatedTokenRepository;
     private final PasswordEncoder passwordEncoder;
     private final TokenService tokenService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenDenylist tokenDenylist;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginThrottle loginThrottle;
+
+    @Value("${jwt.introspect.batchMaxSize:100}")
+    private int introspectBatchMaxSize;
 
     public ApiResponse<AuthenticationResponse> authenticate(AuthenticationRequest authenticationRequest) {
-        User user = userRepository
-                .findByUsername(authenticationRequest.getUsername())
-                .orElse(null);
+        return authenticate(authenticationRequest, null);
+    }
+
+    public ApiResponse<AuthenticationResponse> authenticate(
+            AuthenticationRequest authenticationRequest, String clientIp) {
+        String username = authenticationRequest.getUsername();
+        // Chặn trước khi truy vấn database và chạy bcrypt
+        loginThrottle.check(username, clientIp);
+
+        User user = userRepository.findWithAuthoritiesByUsername(username).orElse(null);
 
         if (user == null || !passwordEncoder.matches(authenticationRequest.getPassword(), user.getPassword())) {
+            loginThrottle.recordFailure(username, clientIp);
             throw new AppException(HttpStatus.BAD_REQUEST, "Tên đăng nhập hoặc mật khẩu không chính xác", null);
         }
+        loginThrottle.recordSuccess(username);
+        if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+            passwordHashingService.rehash(user.getId(), user.getPassword(), authenticationRequest.getPassword());
+        }
 
         String token;
         try {
@@ -63,11 +90,13 @@ public class AuthenticationService {
     public ApiResponse<Void> logout(LogoutRequest logoutRequest) throws ParseException {
         var signToken = tokenService.verifyToken(logoutRequest.getToken(), true);
         String jit = signToken.getJWTClaimsSet().getJWTID();
-        Date expiryTime = signToken.getJWTClaimsSet().getExpirationTime();
+        Date expiryTime = tokenService.revocationExpiry(signToken.getJWTClaimsSet());
 
         InvalidatedToken invalidatedToken =
                 InvalidatedToken.builder().id(jit).expiryDate(expiryTime).build();
         invalidatedTokenRepository.save(invalidatedToken);
+        tokenDenylist.revoke(jit, expiryTime);
+        verifiedTokenCache.evict(logoutRequest.getToken());
         return ApiResponse.<Void>builder()
                 .status(HttpStatus.OK.value())
                 .message("Đăng xuất thành công")
@@ -102,6 +131,46 @@ public class AuthenticationService {
         }
     }
 
+    public ApiResponse<List<IntrospectResponse>> introspectBatch(BatchIntrospectRequest batchIntrospectRequest) {
+        List<String> tokens = batchIntrospectRequest.getTokens();
+        if (tokens.size() > introspectBatchMaxSize) {
+            throw new AppException(
+                    HttpStatus.BAD_REQUEST, "Số lượng token tối đa cho mỗi lần kiểm tra là " + introspectBatchMaxSize, null);
+        }
+
+        return ApiResponse.<List<IntrospectResponse>>builder()
+                .status(HttpStatus.OK.value())
+                .message("Kiểm tra token thành công")
+                .result(tokenService.validateTokens(tokens))
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    public ApiResponse<RevocationListResponse> getRevocations(Long since) {
+        Date now = new Date();
+        List<InvalidatedToken> invalidatedTokens = since == null
+                ? invalidatedTokenRepository.findByExpiryDateAfter(now)
+                : invalidatedTokenRepository.findByInvalidatedAtGreaterThanEqual(new Date(since));
+
+        List<RevokedTokenResponse> tokens = invalidatedTokens.stream()
+                .filter(token -> token.getExpiryDate() != null && token.getExpiryDate().after(now))
+                .map(token -> RevokedTokenResponse.builder()
+                        .jti(token.getId())
+                        .expiryTime(token.getExpiryDate())
+                        .build())
+                .toList();
+
+        return ApiResponse.<RevocationListResponse>builder()
+                .status(HttpStatus.OK.value())
+                .message("Lấy danh sách token bị thu hồi thành công")
+                .result(RevocationListResponse.builder()
+                        .syncedAt(now)
+                        .tokens(tokens)
+                        .build())
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
     private ApiResponse<IntrospectResponse> buildErrorResponse(String message) {
         return ApiResponse.<IntrospectResponse>builder()
                 .status(HttpStatus.BAD_REQUEST.value())
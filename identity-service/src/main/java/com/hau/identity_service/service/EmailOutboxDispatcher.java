@@ -0,0 +1,352 @@
+package com.hau.identity_service.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.DataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hau.identity_service.cache.CompiledEmailTemplate;
+import com.hau.identity_service.cache.EmailTemplateCache;
+import com.hau.identity_service.entity.EmailOutbox;
+import com.hau.identity_service.repository.EmailOutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gửi email trong outbox theo lô. Mỗi lô được gửi qua một kết nối SMTP duy nhất ({@code JavaMailSender.send(MimeMessage...)}
+ * mở một {@code Transport} cho cả lô). Số worker chạy song song bị giới hạn bởi {@code email.outbox.concurrency}.
+ *
+ * <p>Email được nhận bằng {@code SELECT ... FOR UPDATE SKIP LOCKED} và giữ bằng cách lùi {@code nextAttemptAt} thêm
+ * {@code leaseSeconds}, nên nếu node chết giữa chừng email sẽ được gửi lại sau khi hết hạn giữ. Email gửi lỗi được thử
+ * lại với backoff lũy thừa có jitter; quá {@code maxAttempts} lần thì chuyển sang {@link EmailOutbox.Status#DEAD} và bị
+ * xóa sau {@code deadRetentionDays} ngày. Số email tồn theo trạng thái được đếm định kỳ và công bố qua gauge
+ * {@code email.outbox.backlog}.
+ */
+@Component
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutboxDispatcher implements AutoCloseable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<Map<String, String>> VARIABLES_TYPE = new TypeReference<>() {};
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailTemplateCache emailTemplateCache;
+    private final JavaMailSender javaMailSender;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${email.outbox.batchSize:50}")
+    private int batchSize;
+
+    @Value("${email.outbox.concurrency:2}")
+    private int concurrency;
+
+    @Value("${email.outbox.maxAttempts:8}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.retryBaseDelaySeconds:30}")
+    private long retryBaseDelaySeconds;
+
+    @Value("${email.outbox.retryMaxDelaySeconds:3600}")
+    private long retryMaxDelaySeconds;
+
+    @Value("${email.outbox.leaseSeconds:120}")
+    private long leaseSeconds;
+
+    @Value("${email.outbox.deadRetentionDays:7}")
+    private long deadRetentionDays;
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService executor;
+    private Semaphore workers;
+
+    private Counter sentCounter;
+    private Counter retryCounter;
+    private Counter deadCounter;
+    private Timer batchTimer;
+
+    // Đếm từ database theo lịch thay vì mỗi lần đọc gauge
+    private final AtomicLong pendingBacklog = new AtomicLong();
+    private final AtomicLong deadBacklog = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        workers = new Semaphore(concurrency);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        sentCounter = Counter.builder("email.outbox.sent").register(meterRegistry);
+        retryCounter = Counter.builder("email.outbox.failed").tag("outcome", "retry").register(meterRegistry);
+        deadCounter = Counter.builder("email.outbox.failed").tag("outcome", "dead").register(meterRegistry);
+        batchTimer = Timer.builder("email.outbox.batch").register(meterRegistry);
+        Gauge.builder("email.outbox.backlog", pendingBacklog, AtomicLong::get)
+                .tag("status", "pending")
+                .register(meterRegistry);
+        Gauge.builder("email.outbox.backlog", deadBacklog, AtomicLong::get)
+                .tag("status", "dead")
+                .register(meterRegistry);
+    }
+
+    /** Khởi động một worker nếu còn chỗ; worker tự gọi thêm worker khi lô vừa nhận đầy (còn email tồn). */
+    @Scheduled(fixedDelayString = "${email.outbox.pollIntervalMillis:5000}")
+    public void dispatch() {
+        if (workers.tryAcquire()) {
+            executor.execute(this::runWorker);
+        }
+    }
+
+    /** Gửi hết email đến hạn trên luồng hiện tại, trả về số email đã nhận xử lý. */
+    public int drain() {
+        int total = 0;
+        int claimed;
+        do {
+            claimed = deliverBatch();
+            total += claimed;
+        } while (claimed == batchSize);
+        return total;
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.backlogRefreshSeconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void refreshBacklog() {
+        try {
+            pendingBacklog.set(emailOutboxRepository.countByStatus(EmailOutbox.Status.PENDING));
+            deadBacklog.set(emailOutboxRepository.countByStatus(EmailOutbox.Status.DEAD));
+        } catch (DataAccessException e) {
+            log.warn("Không thể đếm email tồn trong outbox: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${email.outbox.purgeCron:0 30 3 * * *}")
+    public int purgeDead() {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(deadRetentionDays));
+        Integer deleted = transactionTemplate.execute(status -> emailOutboxRepository
+                .deleteByStatusAndNextAttemptAtBefore(EmailOutbox.Status.DEAD, cutoff));
+        if (deleted != null && deleted > 0) {
+            log.info("Đã xóa {} email DEAD trước {}", deleted, cutoff);
+        }
+        return deleted == null ? 0 : deleted;
+    }
+
+    private void runWorker() {
+        try {
+            int claimed;
+            do {
+                claimed = deliverBatch();
+                if (claimed == batchSize) {
+                    dispatch();
+                }
+            } while (claimed == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Email outbox worker failed: {}", e.getMessage(), e);
+        } finally {
+            workers.release();
+        }
+    }
+
+    private int deliverBatch() {
+        List<EmailOutbox> batch = claimBatch();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<Long, String> failures = new HashMap<>();
+        Map<Long, String> permanentFailures = new HashMap<>();
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        List<Long> messageIds = new ArrayList<>(batch.size());
+        for (EmailOutbox email : batch) {
+            try {
+                messages.add(toMimeMessage(email));
+                messageIds.add(email.getId());
+            } catch (MessagingException | MailException e) {
+                // Địa chỉ hoặc nội dung sai thì gửi lại cũng không thành công
+                permanentFailures.put(email.getId(), describe(e));
+            }
+        }
+
+        if (!messages.isEmpty()) {
+            try {
+                javaMailSender.send(messages.toArray(MimeMessage[]::new));
+            } catch (MailSendException e) {
+                Map<Object, Exception> failedMessages = e.getFailedMessages();
+                for (int i = 0; i < messages.size(); i++) {
+                    Exception failure = failedMessages.get(messages.get(i));
+                    if (failure != null) {
+                        failures.put(messageIds.get(i), describe(failure));
+                    }
+                }
+                if (failedMessages.isEmpty()) {
+                    messageIds.forEach(id -> failures.put(id, describe(e)));
+                }
+            } catch (MailException e) {
+                // Lỗi kết nối hoặc xác thực SMTP: cả lô chưa được gửi
+                messageIds.forEach(id -> failures.put(id, describe(e)));
+            }
+        }
+
+        List<Long> sentIds = messageIds.stream()
+                .filter(id -> !failures.containsKey(id))
+                .toList();
+        recordResults(sentIds, failures, permanentFailures);
+        sample.stop(batchTimer);
+        if (!failures.isEmpty() || !permanentFailures.isEmpty()) {
+            log.warn(
+                    "Email outbox batch: {} sent, {} failed, {} rejected",
+                    sentIds.size(),
+                    failures.size(),
+                    permanentFailures.size());
+        }
+        return batch.size();
+    }
+
+    private List<EmailOutbox> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<EmailOutbox> due =
+                    emailOutboxRepository.findDueForUpdate(EmailOutbox.Status.PENDING, now, Limit.of(batchSize));
+            for (EmailOutbox email : due) {
+                email.setAttempts(email.getAttempts() + 1);
+                email.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+            }
+            return due;
+        });
+    }
+
+    private void recordResults(List<Long> sentIds, Map<Long, String> failures, Map<Long, String> permanentFailures) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sentIds.isEmpty()) {
+                emailOutboxRepository.deleteAllByIdInBatch(sentIds);
+            }
+            List<Long> failedIds = new ArrayList<>(failures.keySet());
+            failedIds.addAll(permanentFailures.keySet());
+            Instant now = Instant.now();
+            for (EmailOutbox email : emailOutboxRepository.findAllById(failedIds)) {
+                boolean permanent = permanentFailures.containsKey(email.getId());
+                email.setLastError(
+                        truncate(permanent ? permanentFailures.get(email.getId()) : failures.get(email.getId())));
+                if (permanent || email.getAttempts() >= maxAttempts) {
+                    email.setStatus(EmailOutbox.Status.DEAD);
+                    // Không giữ OTP hay link đặt lại mật khẩu trong bản ghi chỉ dùng để kiểm tra
+                    email.setTemplateVariables(null);
+                    email.setHtmlBody(null);
+                    deadCounter.increment();
+                    log.error(
+                            "Email {} to {} moved to dead letter after {} attempt(s): {}",
+                            email.getId(),
+                            email.getRecipient(),
+                            email.getAttempts(),
+                            email.getLastError());
+                } else {
+                    email.setNextAttemptAt(now.plus(backoff(email.getAttempts())));
+                    retryCounter.increment();
+                }
+            }
+        });
+        sentCounter.increment(sentIds.size());
+    }
+
+    private MimeMessage toMimeMessage(EmailOutbox email) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        if (email.getTemplate() == null) {
+            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
+            helper.setTo(email.getRecipient());
+            helper.setSubject(email.getSubject());
+            helper.setText(email.getHtmlBody(), true);
+            return mimeMessage;
+        }
+
+        CompiledEmailTemplate template = emailTemplateCache
+                .get(email.getTemplate())
+                .orElseThrow(() -> new MessagingException("Không tìm thấy template " + email.getTemplate()));
+        Map<String, String> variables = readVariables(email.getTemplateVariables());
+
+        // multipart/alternative: phần text trước, HTML sau; nội dung đọc thẳng từ các đoạn byte của template
+        MimeMultipart alternative = new MimeMultipart("alternative");
+        alternative.addBodyPart(bodyPart(template.text(variables)));
+        alternative.addBodyPart(bodyPart(template.html(variables)));
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "UTF-8");
+        helper.setTo(email.getRecipient());
+        helper.setSubject(email.getSubject());
+        mimeMessage.setContent(alternative);
+        return mimeMessage;
+    }
+
+    private static MimeBodyPart bodyPart(DataSource dataSource) throws MessagingException {
+        MimeBodyPart part = new MimeBodyPart();
+        part.setDataHandler(new DataHandler(dataSource));
+        return part;
+    }
+
+    private static Map<String, String> readVariables(String json) throws MessagingException {
+        try {
+            return json == null ? Map.of() : objectMapper.readValue(json, VARIABLES_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new MessagingException("Biến của email không hợp lệ", e);
+        }
+    }
+
+    // Backoff lũy thừa (base, 2 x base, 4 x base, ...) có trần, jitter trong nửa trên của khoảng chờ
+    private Duration backoff(int attempts) {
+        long delay = retryBaseDelaySeconds << Math.min(attempts - 1, 20);
+        delay = Math.min(delay, retryMaxDelaySeconds);
+        long millis = TimeUnit.SECONDS.toMillis(delay);
+        return Duration.ofMillis(millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1));
+    }
+
+    private static String describe(Exception e) {
+        return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    private static String truncate(String value) {
+        return value == null || value.length() <= 1000 ? value : value.substring(0, 1000);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -1,42 +1,80 @@
 package com.hau.identity_service.service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hau.identity_service.cache.CompiledEmailTemplate;
+import com.hau.identity_service.cache.EmailTemplateCache;
+import com.hau.identity_service.entity.EmailOutbox;
+import com.hau.identity_service.repository.EmailOutboxRepository;
+
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Ghi email vào outbox trong transaction của caller; {@link EmailOutboxDispatcher} gửi đi sau khi transaction commit,
+ * nên email không bị mất khi restart và không được gửi nếu nghiệp vụ rollback.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmailService {
 
-    private final JavaMailSender javaMailSender;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
     private final TemplateEngine templateEngine;
+    private final EmailTemplateCache emailTemplateCache;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailOutboxDispatcher emailOutboxDispatcher;
 
-    @Async
+    @Transactional
     public void sendHtmlEmail(String to, String subject, String templateName, Context context) {
-        log.info("Đang gửi email tới {}", to);
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        EmailOutbox.EmailOutboxBuilder email = EmailOutbox.builder()
+                .recipient(to)
+                .subject(subject)
+                .status(EmailOutbox.Status.PENDING)
+                .nextAttemptAt(Instant.now());
+
+        // Template biên dịch sẵn: chỉ lưu biến, nội dung HTML/text được dựng từ cache lúc gửi
+        Optional<CompiledEmailTemplate> compiled = emailTemplateCache.get(templateName);
+        if (compiled.isPresent()) {
+            Map<String, String> variables = new LinkedHashMap<>();
+            for (String name : compiled.get().variableNames()) {
+                Object value = context.getVariable(name);
+                variables.put(name, value == null ? null : value.toString());
+            }
+            email.template(templateName).templateVariables(toJson(variables));
+        } else {
+            email.htmlBody(templateEngine.process(templateName, context));
+        }
+        emailOutboxRepository.save(email.build());
+        log.info("Đã đưa email '{}' tới {} vào hàng đợi", subject, to);
+
+        // Không chờ tới lần quét định kỳ: đánh thức dispatcher ngay khi email đã commit
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                emailOutboxDispatcher.dispatch();
+            }
+        });
+    }
+
+    private static String toJson(Map<String, String> variables) {
         try {
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
-            helper.setTo(to);
-            helper.setSubject(subject);
-            String htmlContent = templateEngine.process(templateName, context);
-            helper.setText(htmlContent, true);
-            javaMailSender.send(mimeMessage);
-            log.info("Async Email '{}' gửi thành công tới {}", subject, to);
-        } catch (MessagingException e) {
-            log.error("Async Email gửi không thành công từ '{}' đến {}: {}", subject, to, e.getMessage(), e);
-        } catch (Exception e) {
-            log.error("Đã xảy ra lỗi khi gửi email từ '{}' đến {}: {}", subject, to, e.getMessage(), e);
+            return objectMapper.writeValueAsString(variables);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không ghi được biến của email", e);
         }
     }
 }
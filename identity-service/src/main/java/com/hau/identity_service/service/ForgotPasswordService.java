@@ -1,22 +1,23 @@
 package com.hau.identity_service.service;
 
+import java.security.SecureRandom;
 import java.text.ParseException;
-import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
-import java.util.Map;
-import java.util.Random;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.thymeleaf.context.Context;
 
+import com.hau.identity_service.cache.OtpStore;
+import com.hau.identity_service.cache.OtpStore.IssueResult;
 import com.hau.identity_service.dto.request.ForgotPasswordRequest;
 import com.hau.identity_service.dto.request.ResetPasswordWithTokenRequest;
 import com.hau.identity_service.dto.request.VerifyOtpRequest;
@@ -24,10 +25,10 @@ import com.hau.identity_service.dto.response.ApiResponse;
 import com.hau.identity_service.dto.response.VerifyOtpResponse;
 import com.hau.identity_service.entity.User;
 import com.hau.identity_service.exception.AppException;
+import com.hau.identity_service.exception.ServiceUnavailableException;
 import com.hau.identity_service.repository.UserRepository;
+import com.hau.identity_service.security.KeyRing;
 import com.nimbusds.jose.*;
-import com.nimbusds.jose.crypto.MACSigner;
-import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 
@@ -41,9 +42,8 @@ public class ForgotPasswordService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
-
-    @Value("${jwt.signerKey}")
-    private String signerKey;
+    private final KeyRing keyRing;
+    private final OtpStore otpStore;
 
     @Value("${jwt.issuer}")
     private String issuer;
@@ -54,52 +54,42 @@ public class ForgotPasswordService {
     @Value("${jwt.otpExpiryMinutes}")
     private long otpExpiryMinutes;
 
-    @Value("${jwt.otpRequestCooldownMinutes}")
-    private long otpRequestCooldownMinutes;
-
-    private static final Random random = new Random();
+    private static final SecureRandom random = new SecureRandom();
     private static final String PURPOSE_CLAIM = "purpose";
     private static final String PURPOSE_VALUE = "PASSWORD_RESET";
 
-    private final Map<String, String> otpCache = new ConcurrentHashMap<>();
-    private final Map<String, LocalDateTime> otpExpiryCache = new ConcurrentHashMap<>();
-
-    private final Map<String, LocalDateTime> otpRequestTimestamps = new ConcurrentHashMap<>();
-
-    private final Map<String, LocalDateTime> usedResetTokens = new ConcurrentHashMap<>();
-
+    // OTP và email trong outbox được ghi cùng một transaction: JdbcOtpStore ghi trong transaction, InMemoryOtpStore
+    // hoàn tác OTP vừa cấp nếu transaction rollback (ví dụ không ghi được outbox)
+    @Transactional
     public ApiResponse<String> sendOtp(ForgotPasswordRequest forgotPasswordRequest) {
         String username = forgotPasswordRequest.getUsername();
-
-        // --- Rate Limiting Check ---
-        LocalDateTime lastRequestTime = otpRequestTimestamps.get(username);
         LocalDateTime now = LocalDateTime.now();
-        if (lastRequestTime != null) {
-            Duration timeSinceLastRequest = Duration.between(lastRequestTime, now);
-            if (timeSinceLastRequest.toMinutes() < otpRequestCooldownMinutes) {
-                long waitMinutes = otpRequestCooldownMinutes - timeSinceLastRequest.toMinutes();
-                log.warn("Rate limit hit for OTP request by user: {}. Wait {} more minute(s).", username, waitMinutes);
-                return ApiResponse.<String>builder()
-                        .status(HttpStatus.TOO_MANY_REQUESTS.value())
-                        .message("Bạn vừa yêu cầu OTP gần đây. Vui lòng đợi " + waitMinutes
-                                + " phút nữa trước khi thử lại.")
-                        .result(null)
-                        .timestamp(now)
-                        .build();
-            }
+
+        // Kiểm tra sớm để không truy vấn database khi đang trong thời gian chờ; issue() kiểm tra lại nguyên tử
+        long waitMillis = otpStore.cooldownRemaining(username, System.currentTimeMillis());
+        if (waitMillis > 0) {
+            return buildCooldownResponse(username, waitMillis);
         }
-        // --- End Rate Limiting Check ---
 
         User user = userRepository
                 .findByUsername(username)
                 .orElseThrow(() -> new AppException(
                         HttpStatus.NOT_FOUND, "Không tìm thấy người dùng với username: " + username, null));
 
-        String otp = generateOtp();
-        otpCache.put(username, otp);
-        otpExpiryCache.put(username, now.plusMinutes(otpExpiryMinutes));
+        int otp = generateOtp();
+        IssueResult issueResult = otpStore.issue(username, otp, System.currentTimeMillis());
+        switch (issueResult.status()) {
+            case COOLDOWN -> {
+                return buildCooldownResponse(username, issueResult.retryAfterMillis());
+            }
+            case CAPACITY_EXCEEDED -> {
+                log.warn("OTP store is full, rejecting OTP request for user {}", username);
+                throw new ServiceUnavailableException("Hệ thống đang quá tải, vui lòng thử lại sau.", 60);
+            }
+            case ISSUED -> {}
+        }
 
-        log.info("Generated OTP for user {}. Triggering async email.", username);
+        log.info("Generated OTP for user {}. Queueing email.", username);
 
         Context context = new Context();
         context.setVariable("username", username);
@@ -111,9 +101,6 @@ public class ForgotPasswordService {
 
         emailService.sendHtmlEmail(user.getEmail(), emailSubject, templateName, context);
 
-        // Update the timestamp *after* successfully processing the request
-        otpRequestTimestamps.put(username, now);
-
         return ApiResponse.<String>builder()
                 .status(HttpStatus.OK.value())
                 .message("Yêu cầu gửi OTP đã được xử lý. Vui lòng kiểm tra email của bạn.")
@@ -127,33 +114,29 @@ public class ForgotPasswordService {
         String username = verifyOtpRequest.getUsername();
         int otp = verifyOtpRequest.getOtp(); // Get OTP from request
 
-        String cachedOtp = otpCache.get(username);
-        LocalDateTime expiryTime = otpExpiryCache.get(username);
         LocalDateTime now = LocalDateTime.now();
 
-        // --- Logic using the extracted username ---
-        if (cachedOtp == null) {
-            log.warn("Verify OTP attempt for user '{}' failed: No OTP found in cache.", username);
-            return buildVerifyOtpErrorResponse("OTP không hợp lệ hoặc chưa được yêu cầu. Vui lòng thử lại.");
-        }
-
-        if (expiryTime != null && now.isAfter(expiryTime)) {
-            log.warn("Verify OTP attempt for user '{}' failed: OTP expired.", username);
-            otpCache.remove(username);
-            otpExpiryCache.remove(username);
-            return buildVerifyOtpErrorResponse("OTP đã hết hạn. Vui lòng yêu cầu OTP mới.");
-        }
-
-        if (!cachedOtp.equals(String.valueOf(otp))) {
-            log.warn("Verify OTP attempt for user '{}' failed: Incorrect OTP.", username);
-            // Consider adding rate limiting for failed attempts here
-            return buildVerifyOtpErrorResponse("OTP không chính xác. Vui lòng thử lại.");
+        // OTP được xóa khỏi store ngay trong lần xác thực đúng, hết hạn hoặc nhập sai quá số lần cho phép
+        switch (otpStore.verify(username, otp, System.currentTimeMillis())) {
+            case MISSING -> {
+                log.warn("Verify OTP attempt for user '{}' failed: No OTP found in cache.", username);
+                return buildVerifyOtpErrorResponse("OTP không hợp lệ hoặc chưa được yêu cầu. Vui lòng thử lại.");
+            }
+            case EXPIRED -> {
+                log.warn("Verify OTP attempt for user '{}' failed: OTP expired.", username);
+                return buildVerifyOtpErrorResponse("OTP đã hết hạn. Vui lòng yêu cầu OTP mới.");
+            }
+            case INCORRECT -> {
+                log.warn("Verify OTP attempt for user '{}' failed: Incorrect OTP.", username);
+                return buildVerifyOtpErrorResponse("OTP không chính xác. Vui lòng thử lại.");
+            }
+            case TOO_MANY_ATTEMPTS -> {
+                log.warn("Verify OTP attempt for user '{}' failed: too many incorrect attempts.", username);
+                return buildVerifyOtpErrorResponse("Nhập sai OTP quá nhiều lần. Vui lòng yêu cầu OTP mới.");
+            }
+            case VERIFIED -> {}
         }
-        // --- End Logic ---
 
-        // OTP is correct, remove it from cache
-        otpCache.remove(username);
-        otpExpiryCache.remove(username);
         log.info("OTP successfully verified for user '{}'.", username);
 
         // Generate Password Reset JWT
@@ -181,16 +164,22 @@ public class ForgotPasswordService {
         String username;
         String jti; // JWT ID
         Date tokenExpiry;
+        Date issueTime;
 
         JWTClaimsSet claimsSet;
         try {
             claimsSet = validatePasswordResetToken(verificationToken); // Validation now includes blacklist check
             username = claimsSet.getSubject();
             jti = claimsSet.getJWTID(); // Get JTI
-            tokenExpiry = claimsSet.getExpirationTime(); // Get expiry for blacklist
-
-            if (username == null || username.trim().isEmpty() || jti == null || tokenExpiry == null) {
-                log.error("Validated password reset token is missing critical claims (sub, jti, or exp).");
+            tokenExpiry = claimsSet.getExpirationTime();
+            issueTime = claimsSet.getIssueTime();
+
+            if (username == null
+                    || username.trim().isEmpty()
+                    || jti == null
+                    || tokenExpiry == null
+                    || issueTime == null) {
+                log.error("Validated password reset token is missing critical claims (sub, jti, exp or iat).");
                 throw new AppException(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi xử lý mã xác nhận.", null);
             }
         } catch (AppException e) {
@@ -216,18 +205,20 @@ public class ForgotPasswordService {
                     HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi không mong đợi: Không tìm thấy người dùng.", null);
         });
 
+        // Đánh dấu đã dùng trước khi đổi mật khẩu để hai request đồng thời với cùng mã không cùng thành công
+        if (!otpStore.consumeReset(username, issueTime.getTime(), System.currentTimeMillis())) {
+            log.warn("Attempt to reuse already used password reset token. User: {}, JTI: {}", username, jti);
+            return ApiResponse.<String>builder()
+                    .status(HttpStatus.BAD_REQUEST.value())
+                    .message("Mã xác nhận đã được sử dụng. Vui lòng thực hiện lại quy trình quên mật khẩu.")
+                    .result(null)
+                    .timestamp(LocalDateTime.now())
+                    .build();
+        }
+
         user.setPassword(passwordEncoder.encode(resetPasswordWithTokenRequest.getNewPassword()));
         userRepository.save(user);
-
-        // --- Add token JTI to blacklist after successful password reset ---
-        // Store with original expiry time to allow potential cleanup later
-        usedResetTokens.put(
-                jti,
-                tokenExpiry.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDateTime());
-        log.info("Password successfully reset for user {}. Token JTI {} blacklisted.", username, jti);
-        // Note: In a production/scaled environment, consider a more robust blacklist (e.g., Redis with TTL)
-        // and a cleanup mechanism for the in-memory map if used long-term.
-        // --- End blacklist update ---
+        log.info("Password successfully reset for user {}. Token JTI {} consumed.", username, jti);
 
         return ApiResponse.<String>builder()
                 .status(HttpStatus.OK.value())
@@ -240,7 +231,6 @@ public class ForgotPasswordService {
     // --- Helper Methods ---
 
     private String generatePasswordResetToken(String username) throws JOSEException {
-        JWSHeader jwsHeader = new JWSHeader(JWSAlgorithm.HS512);
         JWTClaimsSet jwtClaimsSet = new JWTClaimsSet.Builder()
                 .subject(username)
                 .issuer(issuer)
@@ -252,17 +242,13 @@ public class ForgotPasswordService {
                 .jwtID(UUID.randomUUID().toString()) // Ensure unique JTI is generated
                 .build();
 
-        Payload payload = new Payload(jwtClaimsSet.toJSONObject());
-        JWSObject jwsObject = new JWSObject(jwsHeader, payload);
-        jwsObject.sign(new MACSigner(signerKey.getBytes()));
-        return jwsObject.serialize();
+        return keyRing.sign(jwtClaimsSet);
     }
 
     private JWTClaimsSet validatePasswordResetToken(String token) throws ParseException, JOSEException, AppException {
         SignedJWT signedJWT = SignedJWT.parse(token);
-        JWSVerifier verifier = new MACVerifier(signerKey.getBytes());
 
-        boolean signatureValid = signedJWT.verify(verifier);
+        boolean signatureValid = keyRing.verify(signedJWT);
         if (!signatureValid) {
             log.warn("Invalid password reset token signature received.");
             throw new AppException(HttpStatus.BAD_REQUEST, "Mã xác nhận không hợp lệ (chữ ký sai).", null);
@@ -272,8 +258,12 @@ public class ForgotPasswordService {
         String jti = claimsSet.getJWTID();
         String tokenUsername = claimsSet.getSubject(); // Get username for logging context
 
-        // --- Check Blacklist (Single-Use) ---
-        if (jti != null && usedResetTokens.containsKey(jti)) {
+        // --- Check Single-Use ---
+        // Mã phát hành trước (hoặc cùng giây với) lần đặt lại mật khẩu gần nhất của người dùng coi như đã dùng
+        Date issuedAt = claimsSet.getIssueTime();
+        if (tokenUsername != null
+                && issuedAt != null
+                && otpStore.isResetConsumed(tokenUsername, issuedAt.getTime())) {
             log.warn("Attempt to reuse already used password reset token. User: {}, JTI: {}", tokenUsername, jti);
             // Consider 409 Conflict, but 400 is also common.
             throw new AppException(
@@ -281,7 +271,7 @@ public class ForgotPasswordService {
                     "Mã xác nhận đã được sử dụng. Vui lòng thực hiện lại quy trình quên mật khẩu.",
                     null);
         }
-        // --- End Blacklist Check ---
+        // --- End Single-Use Check ---
 
         Date expirationTime = claimsSet.getExpirationTime();
         if (expirationTime == null || expirationTime.before(new Date())) {
@@ -333,9 +323,19 @@ public class ForgotPasswordService {
         return claimsSet;
     }
 
-    private String generateOtp() {
-        int otpValue = 100000 + random.nextInt(900000);
-        return String.valueOf(otpValue);
+    private int generateOtp() {
+        return 100000 + random.nextInt(900000);
+    }
+
+    private ApiResponse<String> buildCooldownResponse(String username, long waitMillis) {
+        long waitMinutes = Math.max(1, TimeUnit.MILLISECONDS.toMinutes(waitMillis + TimeUnit.MINUTES.toMillis(1) - 1));
+        log.warn("Rate limit hit for OTP request by user: {}. Wait {} more minute(s).", username, waitMinutes);
+        return ApiResponse.<String>builder()
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .message("Bạn vừa yêu cầu OTP gần đây. Vui lòng đợi " + waitMinutes + " phút nữa trước khi thử lại.")
+                .result(null)
+                .timestamp(LocalDateTime.now())
+                .build();
     }
 
     private ApiResponse<VerifyOtpResponse> buildVerifyOtpErrorResponse(String message) {
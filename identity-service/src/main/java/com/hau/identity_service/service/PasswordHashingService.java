@@ -0,0 +1,125 @@
+package com.hau.identity_service.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hau.identity_service.dto.response.ApiResponse;
+import com.hau.identity_service.dto.response.PasswordHashReportResponse;
+import com.hau.identity_service.dto.response.PasswordHashingCalibrationResponse;
+import com.hau.identity_service.exception.AppException;
+import com.hau.identity_service.repository.UserRepository;
+import com.hau.identity_service.security.AdaptivePasswordEncoder;
+import com.hau.identity_service.security.PasswordHashingCalibrator;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordHashingService {
+    private final AdaptivePasswordEncoder adaptivePasswordEncoder;
+    private final PasswordEncoder passwordEncoder;
+    private final UserRepository userRepository;
+
+    public ApiResponse<PasswordHashingCalibrationResponse> calibrate() {
+        PasswordHashingCalibrator.Calibration calibration;
+        try {
+            calibration = adaptivePasswordEncoder.recalibrate();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new AppException(HttpStatus.BAD_REQUEST, e.getMessage(), null);
+        }
+        return ApiResponse.<PasswordHashingCalibrationResponse>builder()
+                .status(HttpStatus.OK.value())
+                .message("Hiệu chỉnh băm mật khẩu thành công")
+                .result(toCalibrationResponse(calibration))
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    public ApiResponse<PasswordHashingCalibrationResponse> getCalibration() {
+        return ApiResponse.<PasswordHashingCalibrationResponse>builder()
+                .status(HttpStatus.OK.value())
+                .message("Lấy cấu hình băm mật khẩu thành công")
+                .result(toCalibrationResponse(adaptivePasswordEncoder.calibration()))
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public ApiResponse<PasswordHashReportResponse> getHashReport() {
+        return ApiResponse.<PasswordHashReportResponse>builder()
+                .status(HttpStatus.OK.value())
+                .message("Thống kê định dạng mật khẩu thành công")
+                .result(buildHashReport())
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    // Băm lại mật khẩu theo cấu hình hiện tại sau khi đăng nhập thành công, không làm chậm request đăng nhập
+    @Async
+    @Transactional
+    public void rehash(Integer userId, String currentHash, String rawPassword) {
+        try {
+            String newHash = passwordEncoder.encode(rawPassword);
+            // Chỉ cập nhật nếu mật khẩu chưa bị đổi trong lúc băm
+            if (userRepository.updatePasswordIfUnchanged(userId, currentHash, newHash) == 1) {
+                log.info("Đã băm lại mật khẩu của user {}", userId);
+            }
+        } catch (AppException e) {
+            log.warn("Bỏ qua băm lại mật khẩu của user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${password.hashing.reportCron:0 0 3 * * *}")
+    @Transactional(readOnly = true)
+    public void logHashReport() {
+        PasswordHashReportResponse report = buildHashReport();
+        log.info(
+                "Định dạng mật khẩu: tổng {}, cần băm lại {}, chi tiết {}",
+                report.getTotal(),
+                report.getOutdated(),
+                report.getFormats());
+    }
+
+    private PasswordHashReportResponse buildHashReport() {
+        Map<String, Long> formats = new TreeMap<>();
+        long total = 0;
+        long outdated = 0;
+        try (Stream<String> passwords = userRepository.streamAllPasswords()) {
+            for (String password : (Iterable<String>) passwords::iterator) {
+                total++;
+                formats.merge(AdaptivePasswordEncoder.describe(password), 1L, Long::sum);
+                if (password != null && adaptivePasswordEncoder.upgradeEncoding(password)) {
+                    outdated++;
+                }
+            }
+        }
+        return PasswordHashReportResponse.builder()
+                .total(total)
+                .outdated(outdated)
+                .formats(formats)
+                .generatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private PasswordHashingCalibrationResponse toCalibrationResponse(PasswordHashingCalibrator.Calibration calibration) {
+        return PasswordHashingCalibrationResponse.builder()
+                .selected(calibration.selected().description())
+                .latencyBudgetMillis(calibration.latencyBudgetMillis())
+                .measurements(calibration.measurements().stream()
+                        .map(measurement -> new PasswordHashingCalibrationResponse.Measurement(
+                                measurement.description(), measurement.millis()))
+                        .toList())
+                .build();
+    }
+}
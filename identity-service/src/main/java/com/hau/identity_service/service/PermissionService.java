@@ -6,6 +6,8 @@ import java.util.List;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import com.hau.identity_service.cache.RoleScopeIndex;
+import com.hau.identity_service.cache.UserResponseCache;
 import com.hau.identity_service.dto.request.PermissionCreationRequest;
 import com.hau.identity_service.dto.response.ApiResponse;
 import com.hau.identity_service.dto.response.PermissionResponse;
@@ -22,10 +24,14 @@ public class PermissionService {
 
     private final PermissionRepository permissionRepository;
     private final PermissionMapper permissionMapper;
+    private final RoleScopeIndex roleScopeIndex;
+    private final UserResponseCache userResponseCache;
 
     public ApiResponse<PermissionResponse> createPermission(PermissionCreationRequest permissionCreationRequest) {
         Permission permission = permissionMapper.toPermission(permissionCreationRequest);
         permissionRepository.save(permission);
+        roleScopeIndex.invalidate();
+        userResponseCache.evictUsersWithPermission(permission.getName());
         return ApiResponse.<PermissionResponse>builder()
                 .status(HttpStatus.CREATED.value())
                 .message("Tạo mới quyền thành công")
@@ -52,6 +58,8 @@ public class PermissionService {
                 .orElseThrow(
                         () -> new AppException(HttpStatus.NOT_FOUND, "Không tìm thấy quyền với tên: " + name, null));
         permissionRepository.delete(permission);
+        roleScopeIndex.invalidate();
+        userResponseCache.evictUsersWithPermission(name);
         return ApiResponse.<PermissionResponse>builder()
                 .status(HttpStatus.OK.value())
                 .message("Xóa quyền thành công")
@@ -8,6 +8,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import com.hau.identity_service.cache.RoleScopeIndex;
+import com.hau.identity_service.cache.UserResponseCache;
 import com.hau.identity_service.dto.request.RoleCreationRequest;
 import com.hau.identity_service.dto.response.ApiResponse;
 import com.hau.identity_service.dto.response.RoleResponse;
@@ -27,6 +29,8 @@ public class RoleService {
     private final RoleRepository roleRepository;
     private final PermissionRepository permissionRepository;
     private final RoleMapper roleMapper;
+    private final RoleScopeIndex roleScopeIndex;
+    private final UserResponseCache userResponseCache;
 
     public ApiResponse<RoleResponse> createRole(RoleCreationRequest request) {
         var role = roleMapper.toRole(request);
@@ -42,6 +46,9 @@ public class RoleService {
         }
         role.setPermissions(new HashSet<>(permissions));
         roleRepository.save(role);
+        roleScopeIndex.invalidate();
+        // Role cùng tên được ghi đè thì user đang có role này cũng đổi permissions
+        userResponseCache.evictUsersWithRole(role.getName());
         return ApiResponse.<RoleResponse>builder()
                 .status(HttpStatus.CREATED.value())
                 .message("Tạo role thành công")
@@ -68,6 +75,8 @@ public class RoleService {
                 .orElseThrow(
                         () -> new AppException(HttpStatus.NOT_FOUND, "Không tìm thấy role với tên: " + name, null));
         roleRepository.delete(role);
+        roleScopeIndex.invalidate();
+        userResponseCache.evictUsersWithRole(name);
         return ApiResponse.<RoleResponse>builder()
                 .status(HttpStatus.OK.value())
                 .message("Xóa role thành công")
@@ -0,0 +1,83 @@
+package com.hau.identity_service.service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.hau.identity_service.dto.request.SigningKeyRotationRequest;
+import com.hau.identity_service.dto.response.ApiResponse;
+import com.hau.identity_service.dto.response.SigningKeyResponse;
+import com.hau.identity_service.exception.AppException;
+import com.hau.identity_service.security.KeyRing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SigningKeyService {
+    private final KeyRing keyRing;
+
+    public ApiResponse<List<SigningKeyResponse>> getAllKeys() {
+        List<SigningKeyResponse> keys = keyRing.keys().stream()
+                .sorted(Comparator.comparing(KeyRing.SigningKey::createdAt))
+                .map(this::toSigningKeyResponse)
+                .toList();
+        return ApiResponse.<List<SigningKeyResponse>>builder()
+                .status(HttpStatus.OK.value())
+                .message("Lấy danh sách khóa ký thành công")
+                .result(keys)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    public ApiResponse<SigningKeyResponse> rotateKey(SigningKeyRotationRequest request) {
+        KeyRing.SigningKey key;
+        try {
+            key = keyRing.rotate(request.getKid(), request.getSecret());
+        } catch (IllegalArgumentException e) {
+            throw new AppException(HttpStatus.BAD_REQUEST, e.getMessage(), null);
+        }
+        return ApiResponse.<SigningKeyResponse>builder()
+                .status(HttpStatus.CREATED.value())
+                .message("Xoay khóa ký thành công")
+                .result(toSigningKeyResponse(key))
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    public ApiResponse<SigningKeyResponse> retireKey(String kid) {
+        if (keyRing.find(kid) == null) {
+            throw new AppException(HttpStatus.NOT_FOUND, "Không tìm thấy khóa với kid: " + kid, null);
+        }
+        try {
+            keyRing.retire(kid);
+        } catch (IllegalArgumentException e) {
+            throw new AppException(HttpStatus.BAD_REQUEST, e.getMessage(), null);
+        }
+        return ApiResponse.<SigningKeyResponse>builder()
+                .status(HttpStatus.OK.value())
+                .message("Ngừng sử dụng khóa thành công")
+                .result(null)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    public KeyRing.PublicKeySet getPublicKeySet() {
+        return keyRing.jwkSet();
+    }
+
+    private SigningKeyResponse toSigningKeyResponse(KeyRing.SigningKey key) {
+        return SigningKeyResponse.builder()
+                .kid(key.kid())
+                .algorithm(key.header().getAlgorithm().getName())
+                .active(key.kid().equals(keyRing.active().kid()))
+                .createdAt(key.createdAt())
+                .retiredAt(key.retiredAt())
+                .build();
+    }
+}
@@ -3,20 +3,27 @@ package com.hau.identity_service.service;
 import java.text.ParseException;
 import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
-import java.util.StringJoiner;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
 
+import com.hau.identity_service.cache.RoleScopeIndex;
+import com.hau.identity_service.cache.TokenDenylist;
+import com.hau.identity_service.cache.VerifiedTokenCache;
 import com.hau.identity_service.dto.request.RefreshTokenRequest;
 import com.hau.identity_service.dto.response.ApiResponse;
 import com.hau.identity_service.dto.response.AuthenticationResponse;
@@ -26,12 +33,13 @@ import com.hau.identity_service.entity.User;
 import com.hau.identity_service.exception.AppException;
 import com.hau.identity_service.repository.InvalidatedTokenRepository;
 import com.hau.identity_service.repository.UserRepository;
+import com.hau.identity_service.security.KeyRing;
 import com.nimbusds.jose.*;
-import com.nimbusds.jose.crypto.MACSigner;
-import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -40,8 +48,8 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class TokenService {
 
-    @Value("${jwt.signerKey}")
-    private String signerKey;
+    // Id của user trong token, để kiểm tra quyền sở hữu mà không cần truy vấn database
+    public static final String USER_ID_CLAIM = "uid";
 
     @Value("${jwt.issuer}")
     private String issuer;
@@ -54,17 +62,37 @@ public class TokenService {
 
     private final InvalidatedTokenRepository invalidatedTokenRepository;
     private final UserRepository userRepository;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenDenylist tokenDenylist;
+    private final KeyRing keyRing;
+    private final RoleScopeIndex roleScopeIndex;
+    private final MeterRegistry meterRegistry;
 
-    private JWTClaimsSet validateTokenClaims(String token, boolean isRefresh) throws AppException {
+    @Value("${jwt.cleanup.batchSize:5000}")
+    private int cleanupBatchSize;
+
+    @Value("${jwt.cleanup.pauseMillis:100}")
+    private long cleanupPauseMillis;
+
+    private static final MappedJwtClaimSetConverter CLAIM_SET_CONVERTER =
+            MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
+
+    private SignedJWT validateTokenClaims(String token, boolean isRefresh) throws AppException {
+        return validateTokenClaims(token, isRefresh, true);
+    }
+
+    // Parse và xác thực chữ ký đúng một lần; mọi kiểm tra claim chạy trên claim set đã parse
+    private SignedJWT validateTokenClaims(String token, boolean isRefresh, boolean checkRevocation)
+            throws AppException {
         try {
-            JWSVerifier verifier = new MACVerifier(signerKey.getBytes());
             SignedJWT signedJWT = SignedJWT.parse(token);
-            JWTClaimsSet claimsSet = signedJWT.getJWTClaimsSet();
 
-            if (!signedJWT.verify(verifier)) {
+            if (!keyRing.verify(signedJWT)) {
                 throw new AppException(HttpStatus.BAD_REQUEST, "Chữ ký token không hợp lệ", null);
             }
 
+            JWTClaimsSet claimsSet = signedJWT.getJWTClaimsSet();
+
             Date expirationTime = (isRefresh)
                     ? new Date(claimsSet
                             .getIssueTime()
@@ -85,11 +113,11 @@ public class TokenService {
                 throw new AppException(HttpStatus.BAD_REQUEST, "Token chưa có hiệu lực", null);
             }
 
-            if (invalidatedTokenRepository.existsById(claimsSet.getJWTID())) {
+            if (checkRevocation && tokenDenylist.isRevoked(claimsSet.getJWTID())) {
                 throw new AppException(HttpStatus.BAD_REQUEST, "Token đã hết hiệu lực", null);
             }
 
-            return claimsSet;
+            return signedJWT;
 
         } catch (ParseException | JOSEException e) {
             throw new AppException(HttpStatus.BAD_REQUEST, "Token không hợp lệ", null);
@@ -97,9 +125,23 @@ public class TokenService {
     }
 
     public SignedJWT verifyToken(String token, boolean isRefresh) throws AppException {
+        return validateTokenClaims(token, isRefresh);
+    }
+
+    /**
+     * Giải mã token cho bộ lọc xác thực: tạo {@link Jwt} của Spring trực tiếp từ claim set đã xác thực, không parse
+     * hay verify lại như {@code NimbusJwtDecoder}.
+     */
+    public Jwt decode(String token) throws AppException {
+        SignedJWT signedJWT = validateTokenClaims(token, false);
         try {
-            validateTokenClaims(token, isRefresh);
-            return SignedJWT.parse(token);
+            Map<String, Object> headers = signedJWT.getHeader().toJSONObject();
+            Map<String, Object> claims =
+                    CLAIM_SET_CONVERTER.convert(signedJWT.getJWTClaimsSet().toJSONObject());
+            return Jwt.withTokenValue(token)
+                    .headers(h -> h.putAll(headers))
+                    .claims(c -> c.putAll(claims))
+                    .build();
         } catch (ParseException e) {
             throw new AppException(HttpStatus.BAD_REQUEST, "Token không hợp lệ", null);
         }
@@ -110,18 +152,60 @@ public class TokenService {
             return IntrospectResponse.builder().valid(false).build(); // Use the builder directly
         }
         try {
-            JWTClaimsSet claimsSet = validateTokenClaims(token, false);
-            return IntrospectResponse.builder()
-                    .valid(true)
-                    .username(claimsSet.getSubject())
-                    .build();
-        } catch (AppException e) {
+            JWTClaimsSet claimsSet = validateTokenClaims(token, false).getJWTClaimsSet();
+            return toIntrospectResponse(claimsSet);
+        } catch (AppException | ParseException e) {
             return IntrospectResponse.builder().valid(false).build(); // Consistent error handling
         }
     }
 
+    /**
+     * Giống {@link #validateToken(String)} cho từng token, nhưng kiểm tra thu hồi cho cả lô bằng một lần tra cứu.
+     * Kết quả giữ đúng thứ tự đầu vào.
+     */
+    public List<IntrospectResponse> validateTokens(List<String> tokens) {
+        List<JWTClaimsSet> claimsSets = new ArrayList<>(tokens.size());
+        Set<String> jwtIds = new HashSet<>();
+        for (String token : tokens) {
+            JWTClaimsSet claimsSet = null;
+            if (token != null && !token.isEmpty()) {
+                try {
+                    claimsSet = validateTokenClaims(token, false, false).getJWTClaimsSet();
+                    jwtIds.add(claimsSet.getJWTID());
+                } catch (AppException | ParseException e) {
+                    claimsSet = null;
+                }
+            }
+            claimsSets.add(claimsSet);
+        }
+
+        Set<String> revoked = tokenDenylist.findRevoked(jwtIds);
+
+        List<IntrospectResponse> responses = new ArrayList<>(claimsSets.size());
+        for (JWTClaimsSet claimsSet : claimsSets) {
+            if (claimsSet == null || revoked.contains(claimsSet.getJWTID())) {
+                responses.add(IntrospectResponse.builder().valid(false).build());
+                continue;
+            }
+            try {
+                responses.add(toIntrospectResponse(claimsSet));
+            } catch (ParseException e) {
+                responses.add(IntrospectResponse.builder().valid(false).build());
+            }
+        }
+        return responses;
+    }
+
+    private IntrospectResponse toIntrospectResponse(JWTClaimsSet claimsSet) throws ParseException {
+        return IntrospectResponse.builder()
+                .valid(true)
+                .username(claimsSet.getSubject())
+                .scope(claimsSet.getStringClaim("scope"))
+                .expiryTime(claimsSet.getExpirationTime())
+                .build();
+    }
+
     public String generateToken(User user) throws JOSEException {
-        JWSHeader jwsHeader = new JWSHeader(JWSAlgorithm.HS512);
         JWTClaimsSet jwtClaimsSet = new JWTClaimsSet.Builder()
                 .subject(user.getUsername())
                 .issuer(issuer)
@@ -129,13 +213,11 @@ public class TokenService {
                 .expirationTime(new Date(
                         Instant.now().plus(expiration, ChronoUnit.MINUTES).toEpochMilli()))
                 .claim("scope", buildScope(user))
+                .claim(USER_ID_CLAIM, user.getId())
                 .jwtID(UUID.randomUUID().toString())
                 .build();
 
-        Payload payload = new Payload(jwtClaimsSet.toJSONObject());
-        JWSObject jwsObject = new JWSObject(jwsHeader, payload);
-        jwsObject.sign(new MACSigner(signerKey.getBytes()));
-        return jwsObject.serialize();
+        return keyRing.sign(jwtClaimsSet);
     }
 
     public ApiResponse<AuthenticationResponse> refreshToken(RefreshTokenRequest refreshTokenRequest)
@@ -143,15 +225,17 @@ public class TokenService {
         SignedJWT signedJWT = verifyToken(refreshTokenRequest.getToken(), true);
 
         String jwtId = signedJWT.getJWTClaimsSet().getJWTID();
-        Date expiryTime = signedJWT.getJWTClaimsSet().getExpirationTime();
+        Date expiryTime = revocationExpiry(signedJWT.getJWTClaimsSet());
 
         invalidatedTokenRepository.save(
                 InvalidatedToken.builder().id(jwtId).expiryDate(expiryTime).build());
+        tokenDenylist.revoke(jwtId, expiryTime);
+        verifiedTokenCache.evict(refreshTokenRequest.getToken());
 
         String username = signedJWT.getJWTClaimsSet().getSubject();
         log.info("Refresh token for user: {}", username);
         User user = userRepository
-                .findByUsername(username)
+                .findWithAuthoritiesByUsername(username)
                 .orElseThrow(() -> new AppException(HttpStatus.BAD_REQUEST, "Người dùng không tồn tại", null));
 
         String token = generateToken(user);
@@ -168,25 +252,62 @@ public class TokenService {
                 .build();
     }
 
-    private String buildScope(User user) {
-        StringJoiner stringJoiner = new StringJoiner(" ");
-        if (!CollectionUtils.isEmpty(user.getRoles())) {
-            user.getRoles().forEach(role -> {
-                stringJoiner.add("ROLE_" + role.getName());
-                if (!CollectionUtils.isEmpty(role.getPermissions())) {
-                    role.getPermissions().forEach(permission -> stringJoiner.add(permission.getName()));
-                }
-            });
+    /**
+     * Hạn giữ JTI trong danh sách thu hồi: token vẫn dùng được để làm mới tới {@code iat + expirationRefreshMinutes},
+     * lâu hơn {@code exp} của access token, nên JTI phải được giữ tới mốc muộn hơn trong hai mốc.
+     */
+    public Date revocationExpiry(JWTClaimsSet claimsSet) {
+        Date expirationTime = claimsSet.getExpirationTime();
+        if (claimsSet.getIssueTime() == null) {
+            return expirationTime;
         }
-        return stringJoiner.toString();
+        Date refreshExpirationTime = Date.from(
+                claimsSet.getIssueTime().toInstant().plus(expirationRefresh, ChronoUnit.MINUTES));
+        return expirationTime == null || refreshExpirationTime.after(expirationTime)
+                ? refreshExpirationTime
+                : expirationTime;
     }
 
+    private String buildScope(User user) {
+        return roleScopeIndex.scopeOf(user.getRoles());
+    }
+
+    /**
+     * Xóa token đã hết hạn theo từng lô {@code jwt.cleanup.batchSize} hàng, mỗi lô một câu DELETE trong transaction
+     * riêng và nghỉ {@code jwt.cleanup.pauseMillis} giữa hai lô để không giữ lock lâu hay dồn tải lên database.
+     *
+     * @return số hàng đã xóa
+     */
     @Scheduled(fixedRate = 1440, timeUnit = TimeUnit.MINUTES)
-    public void cleanupExpiredTokens() {
-        LocalDateTime now = LocalDateTime.now();
-        Date date = Date.from(now.atZone(ZoneId.systemDefault()).toInstant());
-        List<InvalidatedToken> expiredTokens = invalidatedTokenRepository.findByExpiryDateLessThanEqual(date);
-        invalidatedTokenRepository.deleteAll(expiredTokens);
-        log.info("Cleaned up {} expired tokens.", expiredTokens.size()); // Use SLF4J
+    public long cleanupExpiredTokens() {
+        Date cutoff = new Date();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long deleted = 0;
+        int chunks = 0;
+        int chunkDeleted;
+        do {
+            chunkDeleted = invalidatedTokenRepository.deleteExpiredChunk(cutoff, cleanupBatchSize);
+            deleted += chunkDeleted;
+            chunks++;
+        } while (chunkDeleted == cleanupBatchSize && pauseBetweenChunks());
+
+        long elapsedNanos = sample.stop(meterRegistry.timer("jwt.revocation.cleanup"));
+        meterRegistry.counter("jwt.revocation.cleanup.deleted").increment(deleted);
+        log.info(
+                "Cleaned up {} expired tokens in {} chunk(s), {} ms",
+                deleted,
+                chunks,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        return deleted;
+    }
+
+    private boolean pauseBetweenChunks() {
+        try {
+            Thread.sleep(cleanupPauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 }
@@ -0,0 +1,82 @@
+package com.hau.identity_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.exception.AppException;
+
+/**
+ * Vị trí của user cuối cùng trong trang trước, mã hóa thành chuỗi base64url để client chỉ việc gửi lại. Cursor chứa cả
+ * thứ tự sắp xếp nên không thể dùng cursor của thứ tự này cho thứ tự khác.
+ */
+public record UserCursor(Order order, LocalDateTime createdAt, Integer id) {
+
+    private static final String VERSION = "v1";
+
+    public enum Order {
+        // Sắp theo id (khóa chính)
+        ID,
+        // Sắp theo (created_at, id), dùng index idx_users_created_at_id
+        CREATED_AT
+    }
+
+    static UserCursor after(Order order, User user) {
+        return new UserCursor(order, user.getCreatedAt(), user.getId());
+    }
+
+    static Sort sort(Order order) {
+        return order == Order.ID ? Sort.by("id") : Sort.by("createdAt", "id");
+    }
+
+    static KeysetScrollPosition position(Order order, String token) {
+        if (token == null || token.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+        return decode(token, order).toPosition();
+    }
+
+    String encode() {
+        String value = order == Order.ID
+                ? String.join("|", VERSION, order.name(), id.toString())
+                : String.join("|", VERSION, order.name(), createdAt.toString(), id.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private KeysetScrollPosition toPosition() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        if (order == Order.CREATED_AT) {
+            keys.put("createdAt", createdAt);
+        }
+        keys.put("id", id);
+        return ScrollPosition.forward(keys);
+    }
+
+    private static UserCursor decode(String token, Order expectedOrder) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            Order order = Order.valueOf(parts[1]);
+            if (!VERSION.equals(parts[0]) || order != expectedOrder) {
+                throw invalid();
+            }
+            return order == Order.ID
+                    ? new UserCursor(order, null, Integer.valueOf(parts[2]))
+                    : new UserCursor(order, LocalDateTime.parse(parts[2]), Integer.valueOf(parts[3]));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+            throw invalid();
+        }
+    }
+
+    private static AppException invalid() {
+        return new AppException(HttpStatus.BAD_REQUEST, "Cursor không hợp lệ", null);
+    }
+}
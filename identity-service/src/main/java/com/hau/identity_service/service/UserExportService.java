@@ -0,0 +1,272 @@
+package com.hau.identity_service.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hau.identity_service.entity.User;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Xuất toàn bộ user (theo bộ lọc) ra NDJSON hoặc CSV. Dữ liệu được đọc bằng một cursor chỉ-tiến với fetch size cố định
+ * và chỉ lấy các cột cần xuất, role được tra theo từng lô id; bộ nhớ dùng chỉ phụ thuộc kích thước lô, không phụ thuộc
+ * số user.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserExportService {
+
+    private static final String[] COLUMNS = {
+        "id", "username", "email", "phone", "address", "profileImage", "gender", "createdAt", "roles"
+    };
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${user.export.fetchSize:1000}")
+    private int fetchSize;
+
+    @Value("${user.export.batchSize:500}")
+    private int batchSize;
+
+    public enum Format {
+        NDJSON(new MediaType("application", "x-ndjson", StandardCharsets.UTF_8), "ndjson"),
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    public record Row(
+            Integer id,
+            String username,
+            String email,
+            String phone,
+            String address,
+            String profileImage,
+            Integer gender,
+            LocalDateTime createdAt,
+            List<String> roles) {}
+
+    /** Ghi user theo thứ tự id vào {@code outputStream}, flush sau mỗi lô; trả về số user đã ghi. */
+    @Transactional(readOnly = true)
+    public long export(Format format, Specification<User> spec, OutputStream outputStream) throws IOException {
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+        long rows = 0;
+        rowWriter.writeHeader();
+        try (Stream<Tuple> tuples = streamRows(spec)) {
+            Iterator<Tuple> iterator = tuples.iterator();
+            List<Tuple> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    Map<Integer, List<String>> roles = rolesOf(batch);
+                    for (Tuple tuple : batch) {
+                        rowWriter.write(toRow(tuple, roles));
+                    }
+                    rows += batch.size();
+                    batch.clear();
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        log.info("Đã xuất {} user dạng {} trong {} ms", rows, format, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    private Stream<Tuple> streamRows(Specification<User> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        query.multiselect(
+                root.get("id"),
+                root.get("username"),
+                root.get("email"),
+                root.get("phone"),
+                root.get("address"),
+                root.get("profileImage"),
+                root.get("gender"),
+                root.get("createdAt"));
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(root.get("id")));
+
+        // Chỉ lấy cột, không tạo entity nên persistence context không lớn dần theo số dòng đã đọc
+        return entityManager
+                .createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private Map<Integer, List<String>> rolesOf(List<Tuple> batch) {
+        List<Integer> ids = batch.stream().map(tuple -> tuple.get(0, Integer.class)).toList();
+        Map<Integer, TreeSet<String>> sorted = new HashMap<>();
+        entityManager
+                .createQuery("select u.id, r.name from User u join u.roles r where u.id in :ids", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList()
+                .forEach(pair -> sorted.computeIfAbsent((Integer) pair[0], id -> new TreeSet<>())
+                        .add((String) pair[1]));
+        Map<Integer, List<String>> roles = new HashMap<>();
+        sorted.forEach((id, names) -> roles.put(id, List.copyOf(names)));
+        return roles;
+    }
+
+    private static Row toRow(Tuple tuple, Map<Integer, List<String>> roles) {
+        Integer id = tuple.get(0, Integer.class);
+        return new Row(
+                id,
+                tuple.get(1, String.class),
+                tuple.get(2, String.class),
+                tuple.get(3, String.class),
+                tuple.get(4, String.class),
+                tuple.get(5, String.class),
+                tuple.get(6, Integer.class),
+                tuple.get(7, LocalDateTime.class),
+                roles.getOrDefault(id, List.of()));
+    }
+
+    private interface RowWriter {
+        void writeHeader() throws IOException;
+
+        void write(Row row) throws IOException;
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            // Writer do export quản lý, generator không được đóng nó
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void writeHeader() {}
+
+        @Override
+        public void write(Row row) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", row.id());
+            generator.writeStringField("username", row.username());
+            generator.writeStringField("email", row.email());
+            generator.writeStringField("phone", row.phone());
+            generator.writeStringField("address", row.address());
+            generator.writeStringField("profileImage", row.profileImage());
+            if (row.gender() == null) {
+                generator.writeNullField("gender");
+            } else {
+                generator.writeNumberField("gender", row.gender());
+            }
+            generator.writeStringField(
+                    "createdAt", row.createdAt() == null ? null : row.createdAt().toString());
+            generator.writeArrayFieldStart("roles");
+            for (String role : row.roles()) {
+                generator.writeString(role);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.flush();
+            writer.write('\n');
+        }
+    }
+
+    private record CsvRowWriter(Writer writer) implements RowWriter {
+
+        private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+        @Override
+        public void writeHeader() throws IOException {
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(Row row) throws IOException {
+            writer.write(String.valueOf(row.id()));
+            writeField(row.username());
+            writeField(row.email());
+            writeField(row.phone());
+            writeField(row.address());
+            writeField(row.profileImage());
+            writeField(row.gender() == null ? null : row.gender().toString());
+            writeField(row.createdAt() == null ? null : row.createdAt().toString());
+            writeField(String.join(" ", row.roles()));
+            writer.write("\r\n");
+        }
+
+        // RFC 4180: trường chứa dấu phẩy, nháy kép hoặc xuống dòng được bọc trong nháy kép
+        private void writeField(String value) throws IOException {
+            writer.write(',');
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            // Chống CSV injection: Excel/LibreOffice coi ô bắt đầu bằng =, +, -, @, tab hoặc CR là công thức, nên
+            // thêm dấu nháy đơn phía trước để ô luôn được hiển thị như văn bản (số điện thoại +84... cũng bị thêm)
+            if (FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.hau.identity_service.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+
+import com.hau.identity_service.dto.request.UserImportRequest;
+import com.hau.identity_service.exception.AppException;
+
+/**
+ * Đọc file CSV (RFC 4180) có dòng tiêu đề chứa tên cột như {@link UserImportRequest}, ví dụ
+ * {@code username,password,email,phone}. Thứ tự cột tùy ý, cột không biết bị bỏ qua. Ô không chuyển được sang kiểu
+ * của trường chỉ làm dòng đó không hợp lệ, không làm hỏng cả file.
+ */
+final class UserImportCsvParser {
+
+    /** @param errors lỗi đọc của từng dòng theo chỉ số trong {@code requests} */
+    record Result(List<UserImportRequest> requests, Map<Integer, String> errors) {}
+
+    private UserImportCsvParser() {}
+
+    static Result parse(Reader reader, int maxRows) throws IOException {
+        List<List<String>> records = readRecords(reader, maxRows + 1);
+        if (records.isEmpty()) {
+            return new Result(List.of(), Map.of());
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> header = records.get(0);
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("username")) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "File CSV thiếu cột username", null);
+        }
+
+        List<UserImportRequest> requests = new ArrayList<>(records.size() - 1);
+        Map<Integer, String> errors = new HashMap<>();
+        for (int row = 1; row < records.size(); row++) {
+            List<String> record = records.get(row);
+            String gender = field(record, columns, "gender");
+            Integer parsedGender = null;
+            try {
+                parsedGender = gender == null ? null : Integer.valueOf(gender.trim());
+            } catch (NumberFormatException e) {
+                errors.put(requests.size(), "gender phải là số nguyên");
+            }
+            requests.add(UserImportRequest.builder()
+                    .username(field(record, columns, "username"))
+                    .password(field(record, columns, "password"))
+                    .passwordHash(field(record, columns, "passwordhash"))
+                    .email(field(record, columns, "email"))
+                    .phone(field(record, columns, "phone"))
+                    .address(field(record, columns, "address"))
+                    .profileImage(field(record, columns, "profileimage"))
+                    .gender(parsedGender)
+                    .build());
+        }
+        return new Result(requests, errors);
+    }
+
+    // Ô trống được coi là không có giá trị
+    private static String field(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size() || record.get(index).isEmpty()) {
+            return null;
+        }
+        return record.get(index);
+    }
+
+    private static List<List<String>> readRecords(Reader source, int maxRecords) throws IOException {
+        // Cần mark/reset để nhìn trước một ký tự
+        Reader reader = source.markSupported() ? source : new BufferedReader(source);
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldStarted = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+                fieldStarted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+                fieldStarted = true;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                if (fieldStarted || !field.isEmpty()) {
+                    record.add(field.toString());
+                    addRecord(records, record, maxRecords);
+                    record = new ArrayList<>();
+                }
+                field.setLength(0);
+                fieldStarted = false;
+            } else {
+                field.append((char) c);
+                fieldStarted = true;
+            }
+        }
+        if (quoted) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "File CSV có dấu nháy kép không được đóng", null);
+        }
+        if (fieldStarted || !field.isEmpty()) {
+            record.add(field.toString());
+            addRecord(records, record, maxRecords);
+        }
+        return records;
+    }
+
+    private static void addRecord(List<List<String>> records, List<String> record, int maxRecords) {
+        if (records.size() == maxRecords) {
+            throw new AppException(
+                    HttpStatus.BAD_REQUEST, "Mỗi lần import tối đa " + (maxRecords - 1) + " user", null);
+        }
+        records.add(record);
+    }
+}
@@ -0,0 +1,357 @@
+package com.hau.identity_service.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.hau.identity_service.cache.UserResponseCache;
+import com.hau.identity_service.dto.request.UserImportRequest;
+import com.hau.identity_service.dto.response.UserImportResponse;
+import com.hau.identity_service.dto.response.UserImportResponse.RowResult;
+import com.hau.identity_service.dto.response.UserImportResponse.Status;
+import com.hau.identity_service.exception.AppException;
+import com.hau.identity_service.repository.RoleRepository;
+import com.hau.identity_service.repository.UserRepository;
+import com.hau.identity_service.security.AdaptivePasswordEncoder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Import nhiều user trong một request. Username trùng được loại trước bằng truy vấn theo tập username, mật khẩu được
+ * băm song song trên pool riêng (không dùng chung hàng đợi với đăng nhập), rồi user được ghi bằng batch JDBC theo từng
+ * lô trong transaction riêng. Lô nào vi phạm ràng buộc (ví dụ username vừa được tạo ở request khác) thì được ghi lại
+ * từng dòng để báo lỗi đúng dòng.
+ *
+ * <p>Băm mật khẩu chiếm CPU của đăng nhập nên mỗi request chỉ được mang tối đa {@code maxPasswordRows} mật khẩu chưa
+ * băm (dòng có {@code passwordHash} không bị giới hạn này), và số import chạy đồng thời được giới hạn bằng
+ * {@code bulkhead.limits} cho {@code POST /api/v1/users/import}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserImportService {
+
+    private static final String DEFAULT_ROLE = "USER";
+    private static final String INSERT_USER = "insert into users "
+            + "(username, password, email, phone, address, profile_image, gender, created_at, updated_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] USER_ARGUMENT_TYPES = {
+        Types.VARCHAR,
+        Types.VARCHAR,
+        Types.VARCHAR,
+        Types.VARCHAR,
+        Types.VARCHAR,
+        Types.VARCHAR,
+        Types.INTEGER,
+        Types.TIMESTAMP,
+        Types.TIMESTAMP
+    };
+
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final AdaptivePasswordEncoder adaptivePasswordEncoder;
+    private final UserResponseCache userResponseCache;
+    private final Validator validator;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${user.import.maxRows:10000}")
+    private int maxRows;
+
+    @Value("${user.import.maxPasswordRows:1000}")
+    private int maxPasswordRows;
+
+    @Value("${user.import.batchSize:500}")
+    private int batchSize;
+
+    // 0 = một nửa số CPU, phần còn lại dành cho đăng nhập
+    @Value("${user.import.hashingThreads:0}")
+    private int hashingThreads;
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService hashingExecutor;
+    private Counter importedCounter;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        int threads = hashingThreads > 0
+                ? hashingThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadIndex = new AtomicInteger();
+        hashingExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-hashing-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        importedCounter = Counter.builder("user.import.created").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashingExecutor.shutdownNow();
+    }
+
+    public UserImportResponse importUsersFromCsv(InputStream inputStream) throws IOException {
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            UserImportCsvParser.Result parsed = UserImportCsvParser.parse(reader, maxRows);
+            return importUsers(parsed.requests(), parsed.errors());
+        }
+    }
+
+    public UserImportResponse importUsers(List<UserImportRequest> requests) {
+        return importUsers(requests, Map.of());
+    }
+
+    private UserImportResponse importUsers(List<UserImportRequest> requests, Map<Integer, String> parseErrors) {
+        if (requests.size() > maxRows) {
+            throw new AppException(HttpStatus.BAD_REQUEST, "Mỗi lần import tối đa " + maxRows + " user", null);
+        }
+        long passwordRows = requests.stream().filter(request -> request.getPassword() != null).count();
+        if (passwordRows > maxPasswordRows) {
+            throw new AppException(
+                    HttpStatus.BAD_REQUEST,
+                    "Mỗi lần import tối đa " + maxPasswordRows
+                            + " user có mật khẩu chưa băm, dùng passwordHash hoặc chia nhỏ file",
+                    null);
+        }
+        long start = System.currentTimeMillis();
+        RowResult[] results = new RowResult[requests.size()];
+
+        List<Integer> candidates = validate(requests, parseErrors, results);
+        rejectExistingUsernames(requests, candidates, results);
+        List<String> passwords = hashPasswords(requests, candidates, results);
+
+        boolean hasDefaultRole = roleRepository.existsById(DEFAULT_ROLE);
+        for (int from = 0; from < candidates.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, candidates.size());
+            insertBatch(requests, candidates.subList(from, to), passwords.subList(from, to), hasDefaultRole, results);
+        }
+
+        List<String> createdUsernames = new ArrayList<>();
+        for (RowResult result : results) {
+            if (result.getStatus() == Status.CREATED) {
+                createdUsernames.add(result.getUsername());
+            }
+        }
+        userResponseCache.evictUsernames(createdUsernames);
+        int created = createdUsernames.size();
+        importedCounter.increment(created);
+        long elapsedMillis = System.currentTimeMillis() - start;
+        log.info("Import {} user: {} tạo mới, {} lỗi trong {} ms", requests.size(), created,
+                requests.size() - created, elapsedMillis);
+        return UserImportResponse.builder()
+                .total(requests.size())
+                .created(created)
+                .failed(requests.size() - created)
+                .elapsedMillis(elapsedMillis)
+                .rows(List.of(results))
+                .build();
+    }
+
+    // Trả về chỉ số các dòng hợp lệ; username lặp lại trong file chỉ giữ lần xuất hiện đầu tiên
+    private List<Integer> validate(
+            List<UserImportRequest> requests, Map<Integer, String> parseErrors, RowResult[] results) {
+        List<Integer> candidates = new ArrayList<>(requests.size());
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            UserImportRequest request = requests.get(i);
+            String error = parseErrors.containsKey(i) ? parseErrors.get(i) : validationError(request);
+            if (error != null) {
+                results[i] = result(i, request, Status.INVALID, error);
+            } else if (!seen.add(request.getUsername())) {
+                results[i] = result(i, request, Status.DUPLICATE, "username lặp lại trong file import");
+            } else {
+                candidates.add(i);
+            }
+        }
+        return candidates;
+    }
+
+    private String validationError(UserImportRequest request) {
+        Set<ConstraintViolation<UserImportRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        boolean hasPassword = request.getPassword() != null;
+        boolean hasHash = request.getPasswordHash() != null;
+        if (hasPassword == hasHash) {
+            return "Cần đúng một trong hai trường password hoặc passwordHash";
+        }
+        if (hasHash && !AdaptivePasswordEncoder.isSupportedHash(request.getPasswordHash())) {
+            return "passwordHash không đúng định dạng bcrypt, argon2 hoặc pbkdf2-<số vòng lặp>";
+        }
+        return null;
+    }
+
+    private void rejectExistingUsernames(
+            List<UserImportRequest> requests, List<Integer> candidates, RowResult[] results) {
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < candidates.size(); from += batchSize) {
+            List<String> usernames = candidates.subList(from, Math.min(from + batchSize, candidates.size())).stream()
+                    .map(i -> requests.get(i).getUsername())
+                    .toList();
+            existing.addAll(userRepository.findExistingUsernames(usernames));
+        }
+        candidates.removeIf(i -> {
+            if (!existing.contains(requests.get(i).getUsername())) {
+                return false;
+            }
+            results[i] = result(i, requests.get(i), Status.DUPLICATE, "username đã tồn tại");
+            return true;
+        });
+    }
+
+    // Dòng băm lỗi được ghi FAILED và bỏ khỏi candidates; kết quả trả về cùng thứ tự với candidates còn lại
+    private List<String> hashPasswords(
+            List<UserImportRequest> requests, List<Integer> candidates, RowResult[] results) {
+        List<CompletableFuture<String>> hashes = candidates.stream()
+                .map(requests::get)
+                .map(request -> request.getPasswordHash() != null
+                        ? CompletableFuture.completedFuture(request.getPasswordHash())
+                        : CompletableFuture.supplyAsync(
+                                () -> adaptivePasswordEncoder.encode(request.getPassword()), hashingExecutor))
+                .toList();
+        List<String> passwords = new ArrayList<>(hashes.size());
+        Iterator<Integer> rows = candidates.iterator();
+        for (CompletableFuture<String> hash : hashes) {
+            int row = rows.next();
+            try {
+                passwords.add(hash.join());
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.warn("Không băm được mật khẩu của dòng {}: {}", row, cause.toString());
+                results[row] = result(row, requests.get(row), Status.FAILED, "Không băm được mật khẩu");
+                rows.remove();
+            }
+        }
+        return passwords;
+    }
+
+    private void insertBatch(
+            List<UserImportRequest> requests,
+            List<Integer> rows,
+            List<String> passwords,
+            boolean hasDefaultRole,
+            RowResult[] results) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Object[]> arguments = new ArrayList<>(rows.size());
+                for (int i = 0; i < rows.size(); i++) {
+                    arguments.add(insertArguments(requests.get(rows.get(i)), passwords.get(i), now));
+                }
+                jdbcTemplate.batchUpdate(INSERT_USER, arguments, USER_ARGUMENT_TYPES);
+                if (hasDefaultRole) {
+                    assignDefaultRole(rows.stream().map(i -> requests.get(i).getUsername()).toList());
+                }
+            });
+            for (int row : rows) {
+                results[row] = result(row, requests.get(row), Status.CREATED, null);
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Lô import {} user vi phạm ràng buộc, ghi lại từng dòng: {}", rows.size(), e.getMessage());
+            for (int i = 0; i < rows.size(); i++) {
+                insertOne(requests, rows.get(i), passwords.get(i), now, hasDefaultRole, results);
+            }
+        }
+    }
+
+    private void insertOne(
+            List<UserImportRequest> requests,
+            int row,
+            String password,
+            Timestamp now,
+            boolean hasDefaultRole,
+            RowResult[] results) {
+        UserImportRequest request = requests.get(row);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(INSERT_USER, insertArguments(request, password, now), USER_ARGUMENT_TYPES);
+                if (hasDefaultRole) {
+                    assignDefaultRole(List.of(request.getUsername()));
+                }
+            });
+            results[row] = result(row, request, Status.CREATED, null);
+        } catch (DataIntegrityViolationException e) {
+            Status status = userRepository.findExistingUsernames(List.of(request.getUsername())).isEmpty()
+                    ? Status.FAILED
+                    : Status.DUPLICATE;
+            String message = status == Status.DUPLICATE ? "username đã tồn tại" : "Dữ liệu không hợp lệ";
+            results[row] = result(row, request, status, message);
+        }
+    }
+
+    private void assignDefaultRole(List<String> usernames) {
+        String placeholders = String.join(",", Collections.nCopies(usernames.size(), "?"));
+        List<Object> arguments = new ArrayList<>(usernames.size() + 1);
+        arguments.add(DEFAULT_ROLE);
+        arguments.addAll(usernames);
+        jdbcTemplate.update(
+                "insert into users_roles (user_id, roles_name) select id, ? from users where username in ("
+                        + placeholders + ")",
+                arguments.toArray());
+    }
+
+    private static Object[] insertArguments(UserImportRequest request, String password, Timestamp now) {
+        return new Object[] {
+            request.getUsername(),
+            password,
+            request.getEmail(),
+            request.getPhone(),
+            request.getAddress(),
+            request.getProfileImage(),
+            request.getGender(),
+            now,
+            now
+        };
+    }
+
+    private static RowResult result(int index, UserImportRequest request, Status status, String message) {
+        return RowResult.builder()
+                .row(index + 1)
+                .username(request.getUsername())
+                .status(status)
+                .message(message)
+                .build();
+    }
+}
@@ -0,0 +1,207 @@
+package com.hau.identity_service.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hau.identity_service.dto.response.PermissionResponse;
+import com.hau.identity_service.dto.response.RoleResponse;
+import com.hau.identity_service.dto.response.UserResponse;
+import com.hau.identity_service.entity.User;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Đọc {@link UserResponse} mà không dựng entity {@link User}: chỉ select các cột có trong response (không đọc cột
+ * password), roles và permissions của cả trang được nạp bằng tối đa hai truy vấn theo lô thay vì lazy load từng user.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class UserQueryService {
+
+    private final EntityManager entityManager;
+
+    public Page<UserResponse> findAll(Specification<User> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        selectColumns(query, root);
+        where(spec, query, root, cb);
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query).setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<UserRow> rows =
+                typedQuery.getResultList().stream().map(UserQueryService::toRow).toList();
+        // COUNT(*) chỉ chạy khi không suy ra được tổng số từ trang hiện tại, giống findAll(spec, pageable)
+        return PageableExecutionUtils.getPage(assemble(rows), pageable, () -> count(spec));
+    }
+
+    public Optional<UserResponse> findById(Integer id) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        selectColumns(query, root);
+        query.where(cb.equal(root.get("id"), id));
+
+        return entityManager
+                .createQuery(query)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .findFirst()
+                .map(tuple -> assemble(List.of(toRow(tuple))).get(0));
+    }
+
+    /**
+     * Map các user đã đọc sẵn (ví dụ trang phân trang theo cursor) mà không chạm vào collection lazy {@code roles}:
+     * roles và permissions vẫn nạp theo lô.
+     */
+    public List<UserResponse> toResponses(Collection<User> users) {
+        return assemble(users.stream()
+                .map(user -> new UserRow(
+                        user.getId(),
+                        user.getUsername(),
+                        user.getEmail(),
+                        user.getPhone(),
+                        user.getAddress(),
+                        user.getProfileImage(),
+                        user.getGender()))
+                .toList());
+    }
+
+    private List<UserResponse> assemble(List<UserRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Set<RoleResponse>> roles = rolesOf(rows.stream().map(UserRow::id).toList());
+        return rows.stream()
+                .map(row -> UserResponse.builder()
+                        .id(String.valueOf(row.id()))
+                        .username(row.username())
+                        .email(row.email())
+                        .phone(row.phone())
+                        .address(row.address())
+                        .profileImage(row.profileImage())
+                        .gender(row.gender())
+                        .roles(roles.getOrDefault(row.id(), new LinkedHashSet<>()))
+                        .build())
+                .toList();
+    }
+
+    // Hai truy vấn cho cả lô: cặp (user, role) rồi permissions của các role xuất hiện trong lô
+    private Map<Integer, Set<RoleResponse>> rolesOf(List<Integer> ids) {
+        List<Object[]> userRoles = entityManager
+                .createQuery(
+                        "select u.id, r.name, r.description from User u join u.roles r where u.id in :ids"
+                                + " order by r.name",
+                        Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+        if (userRoles.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, RoleResponse> rolesByName = new LinkedHashMap<>();
+        for (Object[] userRole : userRoles) {
+            rolesByName.computeIfAbsent((String) userRole[1], name -> RoleResponse.builder()
+                    .name(name)
+                    .description((String) userRole[2])
+                    .permissions(new LinkedHashSet<>())
+                    .build());
+        }
+        entityManager
+                .createQuery(
+                        "select r.name, p.name, p.description from Role r join r.permissions p where r.name in :names"
+                                + " order by p.name",
+                        Object[].class)
+                .setParameter("names", rolesByName.keySet())
+                .getResultList()
+                .forEach(permission -> rolesByName
+                        .get((String) permission[0])
+                        .getPermissions()
+                        .add(PermissionResponse.builder()
+                                .name((String) permission[1])
+                                .description((String) permission[2])
+                                .build()));
+
+        Map<Integer, Set<RoleResponse>> roles = new HashMap<>();
+        for (Object[] userRole : userRoles) {
+            roles.computeIfAbsent((Integer) userRole[0], id -> new LinkedHashSet<>())
+                    .add(rolesByName.get((String) userRole[1]));
+        }
+        return roles;
+    }
+
+    private long count(Specification<User> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<User> root = query.from(User.class);
+        query.select(cb.count(root));
+        where(spec, query, root, cb);
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static void selectColumns(CriteriaQuery<Tuple> query, Root<User> root) {
+        query.multiselect(
+                root.get("id"),
+                root.get("username"),
+                root.get("email"),
+                root.get("phone"),
+                root.get("address"),
+                root.get("profileImage"),
+                root.get("gender"));
+    }
+
+    private static void where(Specification<User> spec, CriteriaQuery<?> query, Root<User> root, CriteriaBuilder cb) {
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+
+    private static UserRow toRow(Tuple tuple) {
+        return new UserRow(
+                tuple.get(0, Integer.class),
+                tuple.get(1, String.class),
+                tuple.get(2, String.class),
+                tuple.get(3, String.class),
+                tuple.get(4, String.class),
+                tuple.get(5, String.class),
+                tuple.get(6, Integer.class));
+    }
+
+    private record UserRow(
+            Integer id,
+            String username,
+            String email,
+            String phone,
+            String address,
+            String profileImage,
+            Integer gender) {}
+}
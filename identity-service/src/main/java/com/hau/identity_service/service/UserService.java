@@ -2,30 +2,39 @@ package com.hau.identity_service.service;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 
+import com.hau.identity_service.cache.UserIdCache;
+import com.hau.identity_service.cache.UserResponseCache;
 import com.hau.identity_service.dto.request.ChangePasswordRequest;
 import com.hau.identity_service.dto.request.UserCreateRequest;
 import com.hau.identity_service.dto.request.UserUpdateInfoRequest;
 import com.hau.identity_service.dto.request.UserUpdateRequest;
 import com.hau.identity_service.dto.response.ApiResponse;
+import com.hau.identity_service.dto.response.CursorPageResponse;
 import com.hau.identity_service.dto.response.UserResponse;
 import com.hau.identity_service.entity.User;
 import com.hau.identity_service.exception.AppException;
 import com.hau.identity_service.mapper.UserMapper;
 import com.hau.identity_service.repository.RoleRepository;
 import com.hau.identity_service.repository.UserRepository;
+import com.hau.identity_service.repository.UserSpecifications;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -38,6 +47,12 @@ public class UserService {
     private final RoleRepository roleRepository;
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final UserIdCache userIdCache;
+    private final UserResponseCache userResponseCache;
+    private final UserQueryService userQueryService;
+
+    @Value("${user.list.maxCursorPageSize:1000}")
+    private int maxCursorPageSize;
 
     public ApiResponse<UserResponse> createUser(UserCreateRequest userCreateRequest) {
         User user = userMapper.toUser(userCreateRequest);
@@ -46,6 +61,7 @@ public class UserService {
         user.setPassword(passwordEncoder.encode(userCreateRequest.getPassword()));
         try {
             userRepository.save(user);
+            userResponseCache.evictUsername(user.getUsername());
 
             return ApiResponse.<UserResponse>builder()
                     .status(HttpStatus.CREATED.value())
@@ -58,37 +74,63 @@ public class UserService {
         }
     }
 
-    public Page<UserResponse> getAllUsers(int pageIndex, int pageSize, String username, Integer gender) {
+    public Page<UserResponse> getAllUsers(
+            int pageIndex,
+            int pageSize,
+            String username,
+            String email,
+            UserSpecifications.SearchMode searchMode,
+            Integer gender) {
         var authentication = SecurityContextHolder.getContext().getAuthentication();
 
         log.info("Username : {}", authentication.getName());
         authentication.getAuthorities().forEach(grantedAuthority -> log.info(grantedAuthority.getAuthority()));
 
-        Specification<User> spec = Specification.where(null);
-
-        if (username != null) {
-            spec = spec.and(
-                    (root, query, cb) -> cb.like(cb.lower(root.get("username")), "%" + username.toLowerCase() + "%"));
-        }
-
-        if (gender != null) {
-            spec = spec.and((root, query, cb) -> cb.equal(root.get("gender"), gender));
-        }
+        Specification<User> spec = UserSpecifications.search(username, email, searchMode, gender);
 
         Pageable pageable = PageRequest.of(pageIndex, pageSize);
-        Page<User> userPage = userRepository.findAll(spec, pageable);
+        return userQueryService.findAll(spec, pageable);
+    }
 
-        return userPage.map(userMapper::toUserResponse);
+    /**
+     * Phân trang theo cursor: không dùng OFFSET và không chạy COUNT(*), mỗi trang chỉ đọc tiếp từ sau user cuối cùng
+     * của trang trước nên độ trễ không tăng theo số trang đã duyệt.
+     */
+    public CursorPageResponse<UserResponse> getUsersByCursor(
+            String cursor,
+            int pageSize,
+            UserCursor.Order order,
+            String username,
+            String email,
+            UserSpecifications.SearchMode searchMode,
+            Integer gender) {
+        if (pageSize < 1 || pageSize > maxCursorPageSize) {
+            throw new AppException(
+                    HttpStatus.BAD_REQUEST, "pageSize phải nằm trong khoảng 1.." + maxCursorPageSize, null);
+        }
+        Specification<User> spec = UserSpecifications.search(username, email, searchMode, gender);
+        Window<User> window = userRepository.findBy(spec, query -> query.sortBy(UserCursor.sort(order))
+                .limit(pageSize)
+                .scroll(UserCursor.position(order, cursor)));
+
+        List<User> users = window.getContent();
+        String nextCursor = window.hasNext() && !users.isEmpty()
+                ? UserCursor.after(order, users.get(users.size() - 1)).encode()
+                : null;
+        return CursorPageResponse.<UserResponse>builder()
+                .content(userQueryService.toResponses(users))
+                .size(users.size())
+                .hasNext(nextCursor != null)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     public ApiResponse<UserResponse> myInfo() {
-        var context = SecurityContextHolder.getContext();
-        String username = context.getAuthentication().getName();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
-        User user = userRepository
-                .findByUsername(username)
+        Long id = currentUserId(authentication)
                 .orElseThrow(() -> new AppException(HttpStatus.NOT_FOUND, "Không tìm thấy user", null));
-        UserResponse userResponse = userMapper.toUserResponse(user);
+        UserResponse userResponse = cachedUserResponse(id);
 
         return ApiResponse.<UserResponse>builder()
                 .status(HttpStatus.OK.value())
@@ -99,8 +141,7 @@ public class UserService {
     }
 
     public ApiResponse<UserResponse> getUserById(Long id) {
-        User user = findUserById(id);
-        UserResponse userResponse = userMapper.toUserResponse(user);
+        UserResponse userResponse = cachedUserResponse(id);
         return ApiResponse.<UserResponse>builder()
                 .status(HttpStatus.OK.value())
                 .message("Lấy thông tin user thành công")
@@ -117,6 +158,7 @@ public class UserService {
         user.setPassword(passwordEncoder.encode(userUpdateRequest.getPassword()));
 
         userRepository.save(user);
+        userResponseCache.evict(id);
         return ApiResponse.<UserResponse>builder()
                 .status(HttpStatus.OK.value())
                 .message("Cập nhật thông tin user thành công")
@@ -129,6 +171,7 @@ public class UserService {
         User user = findUserById(id);
         userMapper.toUserUpdateInfoRequest(user, userUpdateInfoRequest);
         userRepository.save(user);
+        userResponseCache.evict(id);
         return ApiResponse.<UserResponse>builder()
                 .status(HttpStatus.OK.value())
                 .message("Cập nhật thông tin user thành công")
@@ -145,6 +188,7 @@ public class UserService {
 
         user.setPassword(passwordEncoder.encode(changePasswordRequest.getNewPassword()));
         userRepository.save(user);
+        userResponseCache.evict(id);
         return ApiResponse.<UserResponse>builder()
                 .status(HttpStatus.OK.value())
                 .message("Đổi mật khẩu thành công")
@@ -156,6 +200,8 @@ public class UserService {
     public ApiResponse<UserResponse> deleteUser(Long id) {
         User user = findUserById(id);
         userRepository.delete(user);
+        userResponseCache.evictUsername(user.getUsername());
+        userResponseCache.evict(id);
         return ApiResponse.<UserResponse>builder()
                 .status(HttpStatus.OK.value())
                 .message("Xóa user thành công")
@@ -164,6 +210,12 @@ public class UserService {
                 .build();
     }
 
+    private UserResponse cachedUserResponse(Long id) {
+        return userResponseCache.get(id, () -> userQueryService
+                .findById(id.intValue())
+                .orElseThrow(() -> new AppException(HttpStatus.NOT_FOUND, "Không tìm thấy user có id: " + id, null)));
+    }
+
     public User findUserById(Long id) {
         return userRepository
                 .findById(id)
@@ -171,16 +223,19 @@ public class UserService {
     }
 
     public boolean isOwnerOfUser(Long requestedUserId, Authentication authentication) {
-        if (authentication == null || !authentication.isAuthenticated()) {
+        if (authentication == null || !authentication.isAuthenticated() || requestedUserId == null) {
             return false;
         }
-        String authenticatedUsername = authentication.getName();
-        try {
-            User requestedUser = findUserById(requestedUserId);
-            return requestedUser.getUsername().equals(authenticatedUsername);
-        } catch (AppException e) {
-            log.warn("Không tìm thấy người dùng với ID: {}", requestedUserId);
-            return false;
+        return currentUserId(authentication).map(requestedUserId::equals).orElse(false);
+    }
+
+    private Optional<Long> currentUserId(Authentication authentication) {
+        // Token mới mang sẵn id của user trong claim đã được ký
+        if (authentication.getPrincipal() instanceof Jwt jwt
+                && jwt.getClaim(TokenService.USER_ID_CLAIM) instanceof Number userId) {
+            return Optional.of(userId.longValue());
         }
+        // Token phát hành trước khi có claim uid: tra id theo username qua cache
+        return userIdCache.findId(authentication.getName());
     }
 }
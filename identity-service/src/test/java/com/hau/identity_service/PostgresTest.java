@@ -0,0 +1,33 @@
+package com.hau.identity_service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Đánh dấu test cần PostgreSQL thật thay cho H2. Mọi test loại này dùng chung một biến môi trường, ví dụ
+ * {@code POSTGRES_TEST_JDBC_URL=jdbc:postgresql://localhost:5432/identity_test?user=postgres}; không khai báo thì
+ * các test này bị bỏ qua. Schema được tạo lại khi mỗi context khởi động nên database phải dành riêng cho test.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+@EnabledIfEnvironmentVariable(named = PostgresTest.JDBC_URL_VARIABLE, matches = ".+")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(
+        properties = {
+            "spring.datasource.url=${" + PostgresTest.JDBC_URL_VARIABLE + "}",
+            "spring.jpa.hibernate.ddl-auto=create-drop"
+        })
+public @interface PostgresTest {
+
+    String JDBC_URL_VARIABLE = "POSTGRES_TEST_JDBC_URL";
+}
@@ -0,0 +1,130 @@
+package com.hau.identity_service.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.text.ParseException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * Chi phí giải mã token cho mỗi request: đường cũ (parse + verify trong validateTokenClaims, parse lại trong
+ * verifyToken, rồi NimbusJwtDecoder parse + verify lần nữa) so với đường một lượt trong TokenService.decode.
+ * Kiểm tra thu hồi được mô phỏng bằng tra cứu Set trong bộ nhớ để chỉ đo phần CPU/cấp phát của việc giải mã.
+ * Chạy main() để có cả số liệu cấp phát (GC profiler, cột gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtDecodeBenchmark {
+
+    private static final String ISSUER = "identity-service";
+    private static final MappedJwtClaimSetConverter CLAIM_SET_CONVERTER =
+            MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
+
+    private String signerKey;
+    private String token;
+    private JWSVerifier verifier;
+    private NimbusJwtDecoder nimbusJwtDecoder;
+    private final Set<String> revoked = Set.of(UUID.randomUUID().toString());
+
+    @Setup
+    public void setup() throws JOSEException {
+        byte[] key = new byte[64];
+        new SecureRandom().nextBytes(key);
+        signerKey = Base64.getEncoder().encodeToString(key);
+        SecretKeySpec secretKey = new SecretKeySpec(signerKey.getBytes(StandardCharsets.UTF_8), "HmacSHA512");
+        verifier = new MACVerifier(secretKey);
+        nimbusJwtDecoder = NimbusJwtDecoder.withSecretKey(secretKey)
+                .macAlgorithm(MacAlgorithm.HS512)
+                .build();
+
+        JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
+                .subject("benchmark")
+                .issuer(ISSUER)
+                .issueTime(new Date())
+                .expirationTime(new Date(System.currentTimeMillis() + 3_600_000))
+                .claim("scope", "ROLE_USER USER_READ USER_UPDATE")
+                .jwtID(UUID.randomUUID().toString())
+                .build();
+        JWSObject jwsObject = new JWSObject(
+                new JWSHeader.Builder(JWSAlgorithm.HS512).keyID("default").build(),
+                new Payload(claimsSet.toJSONObject()));
+        jwsObject.sign(new MACSigner(secretKey));
+        token = jwsObject.serialize();
+    }
+
+    @Benchmark
+    public Jwt tripleParse() throws Exception {
+        // validateTokenClaims
+        JWSVerifier perCallVerifier = new MACVerifier(signerKey.getBytes());
+        SignedJWT signedJWT = SignedJWT.parse(token);
+        checkClaims(signedJWT.getJWTClaimsSet());
+        if (!signedJWT.verify(perCallVerifier)) {
+            throw new IllegalStateException();
+        }
+        // verifyToken
+        SignedJWT.parse(token);
+        // NimbusJwtDecoder
+        return nimbusJwtDecoder.decode(token);
+    }
+
+    @Benchmark
+    public Jwt singlePass() throws Exception {
+        SignedJWT signedJWT = SignedJWT.parse(token);
+        if (!signedJWT.verify(verifier)) {
+            throw new IllegalStateException();
+        }
+        JWTClaimsSet claimsSet = signedJWT.getJWTClaimsSet();
+        checkClaims(claimsSet);
+        Map<String, Object> headers = signedJWT.getHeader().toJSONObject();
+        Map<String, Object> claims = CLAIM_SET_CONVERTER.convert(claimsSet.toJSONObject());
+        return Jwt.withTokenValue(token)
+                .headers(h -> h.putAll(headers))
+                .claims(c -> c.putAll(claims))
+                .build();
+    }
+
+    private void checkClaims(JWTClaimsSet claimsSet) throws ParseException {
+        Date now = new Date();
+        if (claimsSet.getExpirationTime() == null
+                || claimsSet.getExpirationTime().before(now)
+                || !ISSUER.equals(claimsSet.getIssuer())
+                || (claimsSet.getIssueTime() != null && claimsSet.getIssueTime().after(now))
+                || revoked.contains(claimsSet.getJWTID())) {
+            throw new IllegalStateException("Token không hợp lệ");
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                        .include(JwtDecodeBenchmark.class.getSimpleName())
+                        .addProfiler(GCProfiler.class)
+                        .build())
+                .run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.hau.identity_service.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+/**
+ * So sánh tạo MACSigner/MACVerifier mới cho mỗi lần gọi (cách cũ) với dùng lại instance tạo sẵn như KeyRing.
+ * Chạy bằng main() hoặc {@code java -cp ... org.openjdk.jmh.Main MacSignerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MacSignerBenchmark {
+
+    private String signerKey;
+    private JWTClaimsSet claimsSet;
+    private JWSHeader header;
+    private JWSSigner reusedSigner;
+    private JWSVerifier reusedVerifier;
+    private String token;
+
+    @Setup
+    public void setup() throws JOSEException {
+        byte[] key = new byte[64];
+        new SecureRandom().nextBytes(key);
+        signerKey = Base64.getEncoder().encodeToString(key);
+
+        SecretKeySpec secretKey = new SecretKeySpec(signerKey.getBytes(StandardCharsets.UTF_8), "HmacSHA512");
+        reusedSigner = new MACSigner(secretKey);
+        reusedVerifier = new MACVerifier(secretKey);
+        header = new JWSHeader.Builder(JWSAlgorithm.HS512).keyID("default").build();
+
+        claimsSet = new JWTClaimsSet.Builder()
+                .subject("benchmark")
+                .issuer("identity-service")
+                .issueTime(new Date())
+                .expirationTime(new Date(System.currentTimeMillis() + 3_600_000))
+                .claim("scope", "ROLE_USER")
+                .jwtID(UUID.randomUUID().toString())
+                .build();
+
+        JWSObject jwsObject = new JWSObject(header, new Payload(claimsSet.toJSONObject()));
+        jwsObject.sign(reusedSigner);
+        token = jwsObject.serialize();
+    }
+
+    @Benchmark
+    public String signPerCall() throws JOSEException {
+        JWSObject jwsObject = new JWSObject(new JWSHeader(JWSAlgorithm.HS512), new Payload(claimsSet.toJSONObject()));
+        jwsObject.sign(new MACSigner(signerKey.getBytes()));
+        return jwsObject.serialize();
+    }
+
+    @Benchmark
+    public String signReused() throws JOSEException {
+        JWSObject jwsObject = new JWSObject(header, new Payload(claimsSet.toJSONObject()));
+        jwsObject.sign(reusedSigner);
+        return jwsObject.serialize();
+    }
+
+    @Benchmark
+    public boolean verifyPerCall() throws Exception {
+        JWSVerifier verifier = new MACVerifier(signerKey.getBytes());
+        return JWSObject.parse(token).verify(verifier);
+    }
+
+    @Benchmark
+    public boolean verifyReused() throws Exception {
+        return JWSObject.parse(token).verify(reusedVerifier);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                        .include(MacSignerBenchmark.class.getSimpleName())
+                        .build())
+                .run();
+    }
+}
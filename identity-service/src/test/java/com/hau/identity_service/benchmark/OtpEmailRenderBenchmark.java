@@ -0,0 +1,133 @@
+package com.hau.identity_service.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.DataSource;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import com.hau.identity_service.cache.CompiledEmailTemplate;
+import com.hau.identity_service.cache.EmailTemplateCache;
+
+/**
+ * So sánh dựng email OTP bằng TemplateEngine (cách cũ) với template biên dịch sẵn trong EmailTemplateCache, cả riêng
+ * phần HTML lẫn toàn bộ MimeMessage ghi ra stream. Chạy bằng main() hoặc
+ * {@code java -cp ... org.openjdk.jmh.Main OtpEmailRenderBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OtpEmailRenderBenchmark {
+
+    private static final String TEMPLATE = "otp-email-template";
+
+    private SpringTemplateEngine templateEngine;
+    private CompiledEmailTemplate compiledTemplate;
+    private JavaMailSenderImpl mailSender;
+    private int otp = 100000;
+
+    @Setup
+    public void setup() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        compiledTemplate = new EmailTemplateCache().get(TEMPLATE).orElseThrow();
+        // Tạo MimeMessage qua JavaMailSenderImpl như khi chạy thật (dùng chung FileTypeMap); có mail.from thì
+        // Message-ID không phải tra hostname máy cục bộ
+        Properties properties = new Properties();
+        properties.setProperty("mail.from", "no-reply@example.com");
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setSession(Session.getInstance(properties));
+    }
+
+    @Benchmark
+    public byte[] thymeleafHtml() {
+        return templateEngine.process(TEMPLATE, context()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] precompiledHtml() {
+        return compiledTemplate.renderHtml(variables());
+    }
+
+    @Benchmark
+    public void thymeleafMimeMessage() throws MessagingException, IOException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setTo("benchmark@example.com");
+        helper.setSubject("Mã OTP xác thực quên mật khẩu");
+        helper.setText(templateEngine.process(TEMPLATE, context()), true);
+        message.saveChanges();
+        message.writeTo(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void precompiledMimeMessage() throws MessagingException, IOException {
+        Map<String, String> values = variables();
+        MimeMultipart alternative = new MimeMultipart("alternative");
+        alternative.addBodyPart(bodyPart(compiledTemplate.text(values)));
+        alternative.addBodyPart(bodyPart(compiledTemplate.html(values)));
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setTo("benchmark@example.com");
+        helper.setSubject("Mã OTP xác thực quên mật khẩu");
+        message.setContent(alternative);
+        message.saveChanges();
+        message.writeTo(OutputStream.nullOutputStream());
+    }
+
+    private Context context() {
+        Context context = new Context();
+        context.setVariable("username", "benchmark");
+        context.setVariable("otp", nextOtp());
+        context.setVariable("expiryMinutes", 5);
+        return context;
+    }
+
+    private Map<String, String> variables() {
+        return Map.of("username", "benchmark", "otp", String.valueOf(nextOtp()), "expiryMinutes", "5");
+    }
+
+    private int nextOtp() {
+        otp = otp == 999999 ? 100000 : otp + 1;
+        return otp;
+    }
+
+    private static MimeBodyPart bodyPart(DataSource dataSource) throws MessagingException {
+        MimeBodyPart part = new MimeBodyPart();
+        part.setDataHandler(new DataHandler(dataSource));
+        return part;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                        .include(OtpEmailRenderBenchmark.class.getSimpleName())
+                        .build())
+                .run();
+    }
+}
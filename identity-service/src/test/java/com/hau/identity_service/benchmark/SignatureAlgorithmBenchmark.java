@@ -0,0 +1,103 @@
+package com.hau.identity_service.benchmark;
+
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.*;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+/**
+ * Thông lượng ký/xác thực token theo từng giá trị {@code jwt.algorithm}, với signer/verifier dùng lại như KeyRing.
+ * Chạy bằng main() hoặc {@code java -cp ... org.openjdk.jmh.Main SignatureAlgorithmBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureAlgorithmBenchmark {
+
+    @Param({"HS512", "RS256", "ES256", "EdDSA"})
+    private String algorithm;
+
+    private JWSHeader header;
+    private JWSSigner signer;
+    private JWSVerifier verifier;
+    private Payload payload;
+    private String token;
+
+    @Setup
+    public void setup() throws JOSEException {
+        switch (algorithm) {
+            case "HS512" -> {
+                byte[] secret = new byte[64];
+                new SecureRandom().nextBytes(secret);
+                signer = new MACSigner(secret);
+                verifier = new MACVerifier(secret);
+            }
+            case "RS256" -> {
+                RSAKey rsaKey = new RSAKeyGenerator(2048).generate();
+                signer = new RSASSASigner(rsaKey);
+                verifier = new RSASSAVerifier(rsaKey.toRSAPublicKey());
+            }
+            case "ES256" -> {
+                ECKey ecKey = new ECKeyGenerator(Curve.P_256).generate();
+                signer = new ECDSASigner(ecKey);
+                verifier = new ECDSAVerifier(ecKey.toPublicJWK());
+            }
+            case "EdDSA" -> {
+                OctetKeyPair okp = new OctetKeyPairGenerator(Curve.Ed25519).generate();
+                signer = new Ed25519Signer(okp);
+                verifier = new Ed25519Verifier(okp.toPublicJWK());
+            }
+            default -> throw new IllegalArgumentException(algorithm);
+        }
+        header = new JWSHeader.Builder(JWSAlgorithm.parse(algorithm)).keyID("benchmark").build();
+
+        JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
+                .subject("benchmark")
+                .issuer("identity-service")
+                .issueTime(new Date())
+                .expirationTime(new Date(System.currentTimeMillis() + 3_600_000))
+                .claim("scope", "ROLE_USER")
+                .jwtID(UUID.randomUUID().toString())
+                .build();
+        payload = new Payload(claimsSet.toJSONObject());
+        token = sign();
+    }
+
+    @Benchmark
+    public String sign() throws JOSEException {
+        JWSObject jwsObject = new JWSObject(header, payload);
+        jwsObject.sign(signer);
+        return jwsObject.serialize();
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        return JWSObject.parse(token).verify(verifier);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                        .include(SignatureAlgorithmBenchmark.class.getSimpleName())
+                        .build())
+                .run();
+    }
+}
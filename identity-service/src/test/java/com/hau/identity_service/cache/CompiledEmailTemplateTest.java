@@ -0,0 +1,72 @@
+package com.hau.identity_service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+class CompiledEmailTemplateTest {
+
+    private final EmailTemplateCache emailTemplateCache = new EmailTemplateCache();
+
+    @Test
+    void rendersSameHtmlAsThymeleaf() {
+        Map<String, String> variables = Map.of("username", "alice & <bob> \"'", "otp", "123456", "expiryMinutes", "5");
+        Context context = new Context();
+        variables.forEach(context::setVariable);
+
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        CompiledEmailTemplate template =
+                emailTemplateCache.get("otp-email-template").orElseThrow();
+
+        assertThat(template.variableNames()).containsExactly("username", "otp", "expiryMinutes");
+        assertThat(new String(template.renderHtml(variables), StandardCharsets.UTF_8))
+                .isEqualTo(templateEngine.process("otp-email-template", context));
+    }
+
+    @Test
+    void dataSourceStreamsSameBytesAsRender() throws Exception {
+        CompiledEmailTemplate template =
+                emailTemplateCache.get("otp-email-template").orElseThrow();
+        Map<String, String> variables = Map.of("username", "alice", "otp", "654321", "expiryMinutes", "5");
+
+        try (InputStream html = template.html(variables).getInputStream();
+                InputStream text = template.text(variables).getInputStream()) {
+            assertThat(html.readAllBytes()).isEqualTo(template.renderHtml(variables));
+            assertThat(text.readAllBytes()).isEqualTo(template.renderText(variables));
+        }
+    }
+
+    @Test
+    void plainTextPartHasContentWithoutMarkup() {
+        CompiledEmailTemplate template =
+                emailTemplateCache.get("otp-email-template").orElseThrow();
+
+        String text = new String(
+                template.renderText(Map.of("username", "alice & <bob>", "otp", "654321", "expiryMinutes", "5")),
+                StandardCharsets.UTF_8);
+
+        assertThat(text)
+                .startsWith("Xác Thực Tài Khoản")
+                .contains("Xin chào alice & <bob>!", "654321", "Hết hạn sau 5 phút", "- Đăng nhập bằng mật khẩu mới.")
+                .doesNotContain("<strong>", "font-family", "&amp;");
+    }
+
+    @Test
+    void rejectsUnsupportedThymeleafSyntax() {
+        assertThatThrownBy(() -> CompiledEmailTemplate.compile("each", "<li th:each=\"item : ${items}\">x</li>"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
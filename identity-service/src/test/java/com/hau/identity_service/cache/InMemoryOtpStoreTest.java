@@ -0,0 +1,91 @@
+package com.hau.identity_service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.hau.identity_service.cache.OtpStore.IssueResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class InMemoryOtpStoreTest extends OtpStoreContractTest {
+
+    private InMemoryOtpStore otpStore;
+
+    @BeforeEach
+    void setUp() {
+        otpStore = new InMemoryOtpStore(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(otpStore, "otpExpiryMinutes", 5L);
+        ReflectionTestUtils.setField(otpStore, "otpRequestCooldownMinutes", 2L);
+        ReflectionTestUtils.setField(otpStore, "passwordResetTokenExpiryMinutes", 10L);
+        ReflectionTestUtils.setField(otpStore, "maxEntries", 2);
+        ReflectionTestUtils.setField(otpStore, "maxAttempts", 3);
+        ReflectionTestUtils.invokeMethod(otpStore, "init");
+    }
+
+    @Override
+    OtpStore otpStore() {
+        return otpStore;
+    }
+
+    @Test
+    void rejectsNewUsernamesWhenFull() {
+        otpStore.issue("alice", 123456, now);
+        otpStore.issue("bob", 123456, now);
+        assertThat(otpStore.issue("carol", 123456, now).status())
+                .isEqualTo(IssueResult.Status.CAPACITY_EXCEEDED);
+        assertThat(otpStore.size()).isEqualTo(2);
+    }
+
+    @Test
+    void undoesOtpIssuedInRolledBackTransaction() {
+        otpStore.issue("alice", 111111, now - 3 * MINUTE);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThat(otpStore.issue("alice", 222222, now).status()).isEqualTo(IssueResult.Status.ISSUED);
+            completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // OTP trước đó còn hiệu lực, không bị tính thời gian chờ mới
+        assertThat(otpStore.cooldownRemaining("alice", now)).isZero();
+        assertThat(otpStore.verify("alice", 111111, now)).isEqualTo(OtpStore.VerifyResult.VERIFIED);
+    }
+
+    @Test
+    void keepsOtpIssuedInCommittedTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            otpStore.issue("alice", 123456, now);
+            completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(otpStore.cooldownRemaining("alice", now)).isPositive();
+        assertThat(otpStore.verify("alice", 123456, now)).isEqualTo(OtpStore.VerifyResult.VERIFIED);
+    }
+
+    @Test
+    void sweepRemovesEntriesOnceEverythingHasExpired() {
+        otpStore.issue("alice", 123456, now);
+        otpStore.consumeReset("bob", now, now);
+
+        otpStore.sweep(now + 5 * MINUTE + 1000);
+        assertThat(otpStore.size()).isEqualTo(1);
+
+        otpStore.sweep(now + 10 * MINUTE + 1000);
+        assertThat(otpStore.size()).isZero();
+    }
+
+    private static void completeTransaction(int status) {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
@@ -0,0 +1,72 @@
+package com.hau.identity_service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.hau.identity_service.PostgresTest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Chạy bộ test chung trên PostgreSQL thật (H2 không hỗ trợ {@code ON CONFLICT ... DO UPDATE}), xem
+ * {@link PostgresTest}.
+ */
+@PostgresTest
+@DataJpaTest(
+        properties = {
+            "otp.store.type=jdbc",
+            "otp.store.maxAttempts=3",
+            "otp.store.cleanupBatchSize=1",
+            "jwt.otpExpiryMinutes=5",
+            "jwt.otpRequestCooldownMinutes=2",
+            "jwt.passwordResetTokenExpiryMinutes=10"
+        })
+@Import({JdbcOtpStore.class, JdbcOtpStoreTest.Config.class})
+class JdbcOtpStoreTest extends OtpStoreContractTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private JdbcOtpStore otpStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Test kế thừa từ lớp cha không chạy trong transaction của @DataJpaTest nên phải tự dọn bảng
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM otp_state");
+    }
+
+    @Override
+    OtpStore otpStore() {
+        return otpStore;
+    }
+
+    @Test
+    void deletesExpiredRowsInBatches() {
+        otpStore.issue("alice", 123456, now);
+        otpStore.issue("bob", 123456, now);
+        otpStore.consumeReset("carol", now, now);
+
+        assertThat(otpStore.deleteExpired(now + 5 * MINUTE)).isEqualTo(2);
+        assertThat(otpStore.cooldownRemaining("alice", now)).isZero();
+        assertThat(otpStore.isResetConsumed("carol", now)).isTrue();
+        assertThat(otpStore.deleteExpired(now + 10 * MINUTE)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,94 @@
+package com.hau.identity_service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.hau.identity_service.cache.OtpStore.IssueResult;
+import com.hau.identity_service.cache.OtpStore.VerifyResult;
+
+/**
+ * Bộ test chung cho mọi {@link OtpStore}. Lớp con cấu hình store với hạn OTP 5 phút, thời gian chờ 2 phút, hạn mã đặt
+ * lại 10 phút và tối đa 3 lần nhập sai.
+ */
+abstract class OtpStoreContractTest {
+
+    static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    final long now = System.currentTimeMillis();
+
+    abstract OtpStore otpStore();
+
+    @Test
+    void enforcesCooldownBetweenRequests() {
+        assertThat(otpStore().cooldownRemaining("alice", now)).isZero();
+        assertThat(otpStore().issue("alice", 123456, now).status()).isEqualTo(IssueResult.Status.ISSUED);
+        assertThat(otpStore().cooldownRemaining("alice", now + MINUTE)).isEqualTo(MINUTE);
+
+        IssueResult again = otpStore().issue("alice", 654321, now + MINUTE);
+        assertThat(again.status()).isEqualTo(IssueResult.Status.COOLDOWN);
+        assertThat(again.retryAfterMillis()).isEqualTo(MINUTE);
+        assertThat(otpStore().verify("alice", 123456, now + MINUTE)).isEqualTo(VerifyResult.VERIFIED);
+
+        assertThat(otpStore().issue("alice", 654321, now + 2 * MINUTE).status())
+                .isEqualTo(IssueResult.Status.ISSUED);
+        assertThat(otpStore().verify("alice", 654321, now + 2 * MINUTE)).isEqualTo(VerifyResult.VERIFIED);
+    }
+
+    @Test
+    void otpIsSingleUse() {
+        otpStore().issue("alice", 123456, now);
+        assertThat(otpStore().verify("alice", 123456, now)).isEqualTo(VerifyResult.VERIFIED);
+        assertThat(otpStore().verify("alice", 123456, now)).isEqualTo(VerifyResult.MISSING);
+        assertThat(otpStore().verify("bob", 123456, now)).isEqualTo(VerifyResult.MISSING);
+    }
+
+    @Test
+    void discardsOtpAfterTooManyAttempts() {
+        otpStore().issue("bob", 111111, now);
+        assertThat(otpStore().verify("bob", 222222, now)).isEqualTo(VerifyResult.INCORRECT);
+        assertThat(otpStore().verify("bob", 222222, now)).isEqualTo(VerifyResult.INCORRECT);
+        assertThat(otpStore().verify("bob", 222222, now)).isEqualTo(VerifyResult.TOO_MANY_ATTEMPTS);
+        assertThat(otpStore().verify("bob", 111111, now)).isEqualTo(VerifyResult.MISSING);
+    }
+
+    @Test
+    void newOtpResetsAttempts() {
+        otpStore().issue("bob", 111111, now);
+        otpStore().verify("bob", 222222, now);
+        otpStore().verify("bob", 222222, now);
+
+        otpStore().issue("bob", 333333, now + 2 * MINUTE);
+        assertThat(otpStore().verify("bob", 222222, now + 2 * MINUTE)).isEqualTo(VerifyResult.INCORRECT);
+        assertThat(otpStore().verify("bob", 333333, now + 2 * MINUTE)).isEqualTo(VerifyResult.VERIFIED);
+    }
+
+    @Test
+    void rejectsExpiredOtp() {
+        otpStore().issue("alice", 123456, now);
+        assertThat(otpStore().verify("alice", 123456, now + 6 * MINUTE)).isEqualTo(VerifyResult.EXPIRED);
+        assertThat(otpStore().verify("alice", 123456, now + 6 * MINUTE)).isEqualTo(VerifyResult.MISSING);
+    }
+
+    @Test
+    void resetTokenIsConsumedOnce() {
+        long issuedAt = now - 1000;
+        assertThat(otpStore().isResetConsumed("alice", issuedAt)).isFalse();
+        assertThat(otpStore().consumeReset("alice", issuedAt, now)).isTrue();
+        assertThat(otpStore().consumeReset("alice", issuedAt, now)).isFalse();
+        assertThat(otpStore().isResetConsumed("alice", issuedAt)).isTrue();
+        assertThat(otpStore().consumeReset("alice", now + 1000, now + 2000)).isTrue();
+    }
+
+    @Test
+    void consumedResetSurvivesNewOtp() {
+        otpStore().issue("alice", 123456, now);
+        otpStore().consumeReset("alice", now, now + 1000);
+        otpStore().issue("alice", 654321, now + 2 * MINUTE);
+
+        assertThat(otpStore().isResetConsumed("alice", now)).isTrue();
+        assertThat(otpStore().verify("alice", 654321, now + 2 * MINUTE)).isEqualTo(VerifyResult.VERIFIED);
+    }
+}
@@ -0,0 +1,127 @@
+package com.hau.identity_service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.CollectionUtils;
+
+import com.hau.identity_service.entity.Permission;
+import com.hau.identity_service.entity.Role;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.repository.RoleRepository;
+
+class RoleScopeIndexTest {
+
+    private RoleRepository roleRepository;
+    private RoleScopeIndex roleScopeIndex;
+    private List<Role> roles;
+
+    @BeforeEach
+    void setUp() {
+        roles = new ArrayList<>(List.of(
+                role("ADMIN", "USER_READ", "USER_DELETE", "ROLE_MANAGE"),
+                role("USER", "PROFILE_READ", "PROFILE_UPDATE"),
+                role("SUPPORT", "USER_READ"),
+                role("GUEST")));
+        roleRepository = mock(RoleRepository.class);
+        when(roleRepository.findAllWithPermissions()).thenAnswer(invocation -> List.copyOf(roles));
+        roleScopeIndex = new RoleScopeIndex(roleRepository);
+    }
+
+    @Test
+    void matchesLegacyBuildScopeForEveryRoleCombination() {
+        for (int mask = 0; mask < 1 << roles.size(); mask++) {
+            List<Role> userRoles = new ArrayList<>();
+            for (int i = 0; i < roles.size(); i++) {
+                if ((mask & (1 << i)) != 0) {
+                    userRoles.add(roles.get(i));
+                }
+            }
+            User user = User.builder().roles(new HashSet<>(userRoles)).build();
+            // buildScope cũ phụ thuộc thứ tự duyệt HashSet; với role và permission đã sắp theo tên thì chuỗi phải trùng
+            User orderedUser = User.builder().roles(sorted(userRoles)).build();
+
+            String scope = roleScopeIndex.scopeOf(user.getRoles());
+
+            assertThat(scope).isEqualTo(legacyBuildScope(orderedUser));
+            assertThat(tokens(scope)).containsExactlyInAnyOrderElementsOf(tokens(legacyBuildScope(user)));
+        }
+        verify(roleRepository, times(1)).findAllWithPermissions();
+    }
+
+    @Test
+    void rebuildsAfterInvalidate() {
+        Set<Role> userRoles = Set.of(roles.get(1));
+        assertThat(roleScopeIndex.scopeOf(userRoles)).isEqualTo("ROLE_USER PROFILE_READ PROFILE_UPDATE");
+
+        roles.set(1, role("USER", "PROFILE_READ"));
+        assertThat(roleScopeIndex.scopeOf(userRoles)).isEqualTo("ROLE_USER PROFILE_READ PROFILE_UPDATE");
+
+        long version = roleScopeIndex.version();
+        roleScopeIndex.invalidate();
+
+        assertThat(roleScopeIndex.version()).isGreaterThan(version);
+        assertThat(roleScopeIndex.scopeOf(userRoles)).isEqualTo("ROLE_USER PROFILE_READ");
+        verify(roleRepository, times(2)).findAllWithPermissions();
+    }
+
+    @Test
+    void rebuildsWhenRoleIsUnknown() {
+        roleScopeIndex.scopeOf(Set.of(roles.get(0)));
+        roles.add(role("AUDITOR", "AUDIT_READ"));
+
+        assertThat(roleScopeIndex.scopeOf(Set.of(roles.get(4)))).isEqualTo("ROLE_AUDITOR AUDIT_READ");
+        verify(roleRepository, times(2)).findAllWithPermissions();
+    }
+
+    @Test
+    void emptyRolesGiveEmptyScope() {
+        assertThat(roleScopeIndex.scopeOf(Set.of())).isEmpty();
+        assertThat(roleScopeIndex.scopeOf(null)).isEmpty();
+    }
+
+    // Bản sao TokenService.buildScope trước khi có RoleScopeIndex
+    private static String legacyBuildScope(User user) {
+        StringJoiner stringJoiner = new StringJoiner(" ");
+        if (!CollectionUtils.isEmpty(user.getRoles())) {
+            user.getRoles().forEach(role -> {
+                stringJoiner.add("ROLE_" + role.getName());
+                if (!CollectionUtils.isEmpty(role.getPermissions())) {
+                    role.getPermissions().forEach(permission -> stringJoiner.add(permission.getName()));
+                }
+            });
+        }
+        return stringJoiner.toString();
+    }
+
+    private static Set<Role> sorted(List<Role> roles) {
+        Set<Role> sortedRoles = new LinkedHashSet<>();
+        roles.stream().sorted(Comparator.comparing(Role::getName)).forEach(role -> {
+            Set<Permission> permissions = new LinkedHashSet<>();
+            role.getPermissions().stream()
+                    .sorted(Comparator.comparing(Permission::getName))
+                    .forEach(permissions::add);
+            sortedRoles.add(Role.builder().name(role.getName()).permissions(permissions).build());
+        });
+        return sortedRoles;
+    }
+
+    private static List<String> tokens(String scope) {
+        return scope.isEmpty() ? List.of() : Arrays.asList(scope.split(" "));
+    }
+
+    private static Role role(String name, String... permissions) {
+        Set<Permission> permissionSet = new HashSet<>();
+        for (String permission : permissions) {
+            permissionSet.add(Permission.builder().name(permission).build());
+        }
+        return Role.builder().name(name).permissions(permissionSet).build();
+    }
+}
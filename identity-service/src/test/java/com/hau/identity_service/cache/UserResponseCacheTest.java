@@ -0,0 +1,193 @@
+package com.hau.identity_service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.hau.identity_service.dto.response.PermissionResponse;
+import com.hau.identity_service.dto.response.RoleResponse;
+import com.hau.identity_service.dto.response.UserResponse;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.entity.UserCacheEviction;
+import com.hau.identity_service.repository.UserCacheEvictionRepository;
+import com.hau.identity_service.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Mỗi {@link UserResponseCache} tạo trong {@link #node()} đóng vai một node dùng chung bảng
+ * {@code user_cache_eviction}.
+ */
+@DataJpaTest
+class UserResponseCacheTest {
+
+    @Autowired
+    private UserCacheEvictionRepository evictionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserResponseCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = node();
+    }
+
+    @Test
+    void servesRepeatedLookupsFromCache() {
+        cache.get(1L, () -> load(1L, "USER", "READ"));
+        cache.get(1L, () -> load(1L, "USER", "READ"));
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsSingleUser() {
+        cache.get(1L, () -> load(1L, "USER", "READ"));
+        cache.get(2L, () -> load(2L, "USER", "READ"));
+
+        cache.evict(1L);
+        cache.get(1L, () -> load(1L, "USER", "READ"));
+        cache.get(2L, () -> load(2L, "USER", "READ"));
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void evictsOnlyUsersHoldingChangedRoleOrPermission() {
+        cache.get(1L, () -> load(1L, "ADMIN", "WRITE"));
+        cache.get(2L, () -> load(2L, "USER", "READ"));
+
+        cache.evictUsersWithRole("ADMIN");
+        cache.get(1L, () -> load(1L, "ADMIN", "WRITE"));
+        cache.get(2L, () -> load(2L, "USER", "READ"));
+        assertThat(loads).hasValue(3);
+
+        cache.evictUsersWithPermission("READ");
+        cache.get(1L, () -> load(1L, "ADMIN", "WRITE"));
+        cache.get(2L, () -> load(2L, "USER", "READ"));
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void dropsValueLoadedWhileRoleChanged() {
+        // Role bị đổi trong lúc đang nạp: giá trị trả về cho request hiện tại nhưng không được giữ trong cache
+        cache.get(1L, () -> {
+            cache.evictUsersWithRole("ADMIN");
+            return load(1L, "USER", "READ");
+        });
+        cache.get(1L, () -> load(1L, "USER", "READ"));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evictionsReachOtherNodesOnNextSync() {
+        UserResponseCache other = node();
+        other.get(1L, () -> load(1L, "USER", "READ"));
+        other.get(2L, () -> load(2L, "ADMIN", "WRITE"));
+        other.get(3L, () -> load(3L, "USER", "READ"));
+
+        cache.evict(1L);
+        cache.evictUsersWithPermission("WRITE");
+        // Chưa đồng bộ thì node kia vẫn trả bản cũ
+        other.get(1L, () -> load(1L, "USER", "READ"));
+        assertThat(loads).hasValue(3);
+
+        other.sync();
+        other.get(1L, () -> load(1L, "USER", "READ"));
+        other.get(2L, () -> load(2L, "ADMIN", "WRITE"));
+        other.get(3L, () -> load(3L, "USER", "READ"));
+        assertThat(loads).hasValue(5);
+
+        // Lần đồng bộ sau đọc lại cùng lệnh trong khoảng chồng lấn nhưng không loại lần nữa
+        other.sync();
+        other.get(1L, () -> load(1L, "USER", "READ"));
+        assertThat(loads).hasValue(5);
+    }
+
+    @Test
+    void usernameEvictionsReachOtherNodesOnNextSync() {
+        Long oldId = userRepository.save(User.builder().username("alice").password("alice").build())
+                .getId()
+                .longValue();
+        UserIdCache otherIds = idCache();
+        UserResponseCache other = node(otherIds);
+        assertThat(otherIds.findId("alice")).contains(oldId);
+
+        // User bị xóa rồi tạo lại với id mới trên node này
+        userRepository.deleteAllInBatch();
+        Long newId = userRepository.save(User.builder().username("alice").password("alice").build())
+                .getId()
+                .longValue();
+        cache.evictUsername("alice");
+        assertThat(otherIds.findId("alice")).contains(oldId);
+
+        other.sync();
+        assertThat(otherIds.findId("alice")).contains(newId);
+    }
+
+    @Test
+    void purgesOldEvictions() {
+        cache.evict(1L);
+        UserCacheEviction old = evictionRepository.save(UserCacheEviction.builder()
+                .type(UserCacheEviction.Type.USER)
+                .target("2")
+                .build());
+        old.setCreatedAt(Instant.now().minusSeconds(7200));
+        evictionRepository.saveAndFlush(old);
+
+        cache.purge();
+
+        assertThat(evictionRepository.findAll())
+                .extracting(UserCacheEviction::getTarget)
+                .containsExactly("1");
+    }
+
+    private UserResponseCache node() {
+        return node(idCache());
+    }
+
+    private UserResponseCache node(UserIdCache userIdCache) {
+        UserResponseCache node = new UserResponseCache(evictionRepository, userIdCache, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(node, "maximumSize", 100L);
+        ReflectionTestUtils.setField(node, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(node, "syncOverlapSeconds", 10L);
+        ReflectionTestUtils.setField(node, "evictionRetentionMinutes", 60L);
+        ReflectionTestUtils.invokeMethod(node, "init");
+        return node;
+    }
+
+    private UserIdCache idCache() {
+        UserIdCache idCache = new UserIdCache(userRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(idCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(idCache, "ttlMinutes", 60L);
+        ReflectionTestUtils.invokeMethod(idCache, "init");
+        return idCache;
+    }
+
+    private UserResponse load(Long id, String role, String permission) {
+        loads.incrementAndGet();
+        return UserResponse.builder()
+                .id(String.valueOf(id))
+                .username("user" + id)
+                .roles(Set.of(RoleResponse.builder()
+                        .name(role)
+                        .permissions(Set.of(PermissionResponse.builder()
+                                .name(permission)
+                                .build()))
+                        .build()))
+                .build();
+    }
+}
@@ -0,0 +1,162 @@
+package com.hau.identity_service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class VerifiedTokenCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger verifications = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new VerifiedTokenCache(meterRegistry);
+        ReflectionTestUtils.setField(cache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(cache, "maxTtlSeconds", 300L);
+        ReflectionTestUtils.setField(cache, "negativeTtlSeconds", 30L);
+        ReflectionTestUtils.setField(cache, "ticker", (Ticker) nanos::get);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+    }
+
+    @Test
+    void validTokenIsCachedUntilMaxTtl() {
+        Function<String, Jwt> verifier = valid(Instant.now().plus(Duration.ofHours(1)));
+
+        cache.get("token", verifier);
+        advance(Duration.ofSeconds(299));
+        cache.get("token", verifier);
+        assertThat(verifications).hasValue(1);
+
+        advance(Duration.ofSeconds(2));
+        cache.get("token", verifier);
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void entryNeverOutlivesTokenExpiry() {
+        // exp sớm hơn maxTtlSeconds nhiều: entry phải hết hạn cùng token
+        Function<String, Jwt> verifier = valid(Instant.now().plus(Duration.ofSeconds(10)));
+
+        cache.get("token", verifier);
+        advance(Duration.ofSeconds(9));
+        cache.get("token", verifier);
+        assertThat(verifications).hasValue(1);
+
+        advance(Duration.ofSeconds(2));
+        cache.get("token", verifier);
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void invalidTokenIsCachedForNegativeTtl() {
+        Function<String, Jwt> verifier = token -> {
+            verifications.incrementAndGet();
+            throw new BadJwtException("Chữ ký token không hợp lệ");
+        };
+
+        assertThatThrownBy(() -> cache.get("forged", verifier))
+                .isInstanceOf(BadJwtException.class)
+                .hasMessage("Chữ ký token không hợp lệ");
+        advance(Duration.ofSeconds(29));
+        assertThatThrownBy(() -> cache.get("forged", verifier))
+                .isInstanceOf(BadJwtException.class)
+                .hasMessage("Chữ ký token không hợp lệ");
+        assertThat(verifications).hasValue(1);
+
+        advance(Duration.ofSeconds(2));
+        assertThatThrownBy(() -> cache.get("forged", verifier)).isInstanceOf(BadJwtException.class);
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void infrastructureFailureIsNotCached() {
+        AtomicInteger failures = new AtomicInteger(1);
+        Function<String, Jwt> verifier = token -> {
+            if (failures.getAndDecrement() > 0) {
+                verifications.incrementAndGet();
+                throw new JwtException("Database không phản hồi");
+            }
+            return valid(Instant.now().plus(Duration.ofHours(1))).apply(token);
+        };
+
+        assertThatThrownBy(() -> cache.get("token", verifier))
+                .isInstanceOf(JwtException.class)
+                .isNotInstanceOf(BadJwtException.class);
+        // Lần sau xác thực lại ngay, không bị từ chối theo kết quả lỗi trước
+        assertThat(cache.get("token", verifier).getSubject()).isEqualTo("alice");
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void evictForcesVerificationAgain() {
+        Function<String, Jwt> verifier = valid(Instant.now().plus(Duration.ofHours(1)));
+
+        cache.get("token", verifier);
+        cache.evict("token");
+        cache.get("token", verifier);
+
+        assertThat(verifications).hasValue(2);
+    }
+
+    @Test
+    void registersCacheMeters() {
+        Function<String, Jwt> verifier = valid(Instant.now().plus(Duration.ofHours(1)));
+        cache.get("token", verifier);
+        cache.get("token", verifier);
+
+        assertThat(meterRegistry
+                        .get("cache.gets")
+                        .tag("cache", "jwt.verified-tokens")
+                        .tag("result", "hit")
+                        .functionCounter()
+                        .count())
+                .isEqualTo(1);
+        assertThat(meterRegistry
+                        .get("cache.gets")
+                        .tag("cache", "jwt.verified-tokens")
+                        .tag("result", "miss")
+                        .functionCounter()
+                        .count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.find("cache.evictions").tag("cache", "jwt.verified-tokens").meter())
+                .isNotNull();
+        assertThat(meterRegistry.find("cache.size").tag("cache", "jwt.verified-tokens").meter())
+                .isNotNull();
+    }
+
+    private Function<String, Jwt> valid(Instant expiresAt) {
+        return token -> {
+            verifications.incrementAndGet();
+            return Jwt.withTokenValue(token)
+                    .header("alg", "HS512")
+                    .subject("alice")
+                    .issuedAt(Instant.now())
+                    .expiresAt(expiresAt)
+                    .build();
+        };
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
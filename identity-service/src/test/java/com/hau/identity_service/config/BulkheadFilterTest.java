@@ -0,0 +1,75 @@
+package com.hau.identity_service.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BulkheadFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BulkheadFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new BulkheadFilter(meterRegistry);
+        ReflectionTestUtils.setField(filter, "configuredLimits", "POST /api/v1/auth/login:1");
+        ReflectionTestUtils.setField(filter, "retryAfterSeconds", 2L);
+        ReflectionTestUtils.invokeMethod(filter, "init");
+    }
+
+    @Test
+    void rejectsRequestWhenNoPermitIsLeft() throws Exception {
+        AtomicReference<MockHttpServletResponse> concurrent = new AtomicReference<>();
+
+        // Request thứ hai tới trong lúc request đầu vẫn giữ permit duy nhất
+        MockHttpServletResponse first = send((request, response) -> concurrent.set(send((r, s) -> {})));
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(concurrent.get().getStatus()).isEqualTo(503);
+        assertThat(concurrent.get().getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(concurrent.get().getContentAsString()).contains("\"status\":503");
+        assertThat(meterRegistry.get("http.bulkhead.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void releasesPermitWhenChainThrows() throws Exception {
+        assertThatThrownBy(() -> send((request, response) -> {
+                    throw new ServletException("lỗi xử lý");
+                }))
+                .isInstanceOf(ServletException.class);
+
+        assertThat(meterRegistry.get("http.bulkhead.available").gauge().value()).isEqualTo(1);
+        assertThat(send((request, response) -> {}).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void ignoresEndpointsWithoutLimit() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/auth/login");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> filter.doFilter(
+                new MockHttpServletRequest("GET", "/api/v1/auth/login"), new MockHttpServletResponse(), (r, s) -> {}));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.get("http.bulkhead.rejected").counter().count()).isZero();
+    }
+
+    private MockHttpServletResponse send(FilterChain chain) throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/v1/auth/login"), response, chain);
+        return response;
+    }
+}
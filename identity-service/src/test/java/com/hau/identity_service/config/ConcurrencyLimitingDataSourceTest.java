@@ -0,0 +1,64 @@
+package com.hau.identity_service.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.Set;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConcurrencyLimitingDataSourceTest {
+
+    @Test
+    void rejectsWhenAllPermitsAreHeldAndReleasesOnClose() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:limiter;DB_CLOSE_DELAY=-1");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        ConcurrencyLimitingDataSource dataSource =
+                new ConcurrencyLimitingDataSource(h2, 1, 50, beanFactory.getBeanProvider(MeterRegistry.class));
+
+        Connection held = dataSource.getConnection();
+        assertThat(dataSource.getActiveConnections()).isEqualTo(1);
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        assertThat(meterRegistry.get("datasource.limiter.rejected").counter().count())
+                .isEqualTo(1);
+
+        // Đóng hai lần chỉ trả một permit
+        held.close();
+        held.close();
+        assertThat(dataSource.getActiveConnections()).isZero();
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+            assertThat(dataSource.getActiveConnections()).isEqualTo(1);
+        }
+        assertThat(dataSource.getActiveConnections()).isZero();
+    }
+
+    @Test
+    void proxyEqualityUsesProxyIdentity() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:limiter-equality;DB_CLOSE_DELAY=-1");
+        ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(
+                h2, 2, 50, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+
+        try (Connection first = dataSource.getConnection();
+                Connection second = dataSource.getConnection()) {
+            Connection target = first.unwrap(Connection.class);
+
+            assertThat(first).isEqualTo(first).isNotEqualTo(second).isNotEqualTo(target);
+            assertThat(first.hashCode()).isEqualTo(System.identityHashCode(first));
+            // Dùng làm khóa trong set/map (ví dụ các connection đang mở) không bị gộp nhầm
+            assertThat(Set.of(first, second)).hasSize(2);
+        }
+    }
+}
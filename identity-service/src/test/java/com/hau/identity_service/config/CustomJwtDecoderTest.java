@@ -0,0 +1,201 @@
+package com.hau.identity_service.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Set;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.hau.identity_service.cache.RoleScopeIndex;
+import com.hau.identity_service.cache.TokenDenylist;
+import com.hau.identity_service.cache.VerifiedTokenCache;
+import com.hau.identity_service.dto.request.AuthenticationRequest;
+import com.hau.identity_service.dto.request.LogoutRequest;
+import com.hau.identity_service.dto.request.RefreshTokenRequest;
+import com.hau.identity_service.entity.Role;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.security.AdaptivePasswordEncoder;
+import com.hau.identity_service.security.KeyRing;
+import com.hau.identity_service.security.LoginThrottle;
+import com.hau.identity_service.service.AuthenticationService;
+import com.hau.identity_service.service.PasswordHashingService;
+import com.hau.identity_service.service.TokenService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * {@link CustomJwtDecoder} xác thực mỗi token một lần rồi dùng {@link VerifiedTokenCache}; đăng xuất và làm mới token
+ * phải xóa entry để token cũ bị từ chối ngay trên node đó.
+ */
+@DataJpaTest(
+        properties = {
+            "jwt.signerKey=decoder-test-signer-key-decoder-test-signer-key-0123456789abcdef",
+            "jwt.issuer=identity-service",
+            "jwt.expirationMinutes=60",
+            "jwt.expirationRefreshMinutes=120"
+        })
+@Import({
+    CustomJwtDecoder.class,
+    AuthenticationService.class,
+    TokenService.class,
+    KeyRing.class,
+    VerifiedTokenCache.class,
+    TokenDenylist.class,
+    RoleScopeIndex.class,
+    PasswordHashingService.class,
+    AdaptivePasswordEncoder.class,
+    LoginThrottle.class,
+    CustomJwtDecoderTest.Config.class
+})
+class CustomJwtDecoderTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        @Primary
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    @Autowired
+    private CustomJwtDecoder customJwtDecoder;
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Role user = Role.builder().name("USER").build();
+        entityManager.persist(user);
+        entityManager.persist(User.builder()
+                .username("alice")
+                .password(passwordEncoder.encode("alice"))
+                .roles(Set.of(user))
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void logoutEvictsCachedToken() throws Exception {
+        String token = login();
+        customJwtDecoder.decode(token);
+        CacheStats before = verifiedTokenCache.stats();
+        customJwtDecoder.decode(token);
+        assertThat(verifiedTokenCache.stats().minus(before).hitCount()).isEqualTo(1);
+
+        authenticationService.logout(LogoutRequest.builder().token(token).build());
+
+        CacheStats afterLogout = verifiedTokenCache.stats();
+        assertThatThrownBy(() -> customJwtDecoder.decode(token)).isInstanceOf(BadJwtException.class);
+        // Entry đã bị xóa nên token được xác thực lại, không lấy bản đã cache
+        assertThat(verifiedTokenCache.stats().minus(afterLogout).missCount()).isEqualTo(1);
+        assertThat(verifiedTokenCache.stats().minus(afterLogout).hitCount()).isZero();
+    }
+
+    @Test
+    void refreshEvictsCachedToken() throws Exception {
+        String token = login();
+        customJwtDecoder.decode(token);
+
+        String refreshed = tokenService
+                .refreshToken(RefreshTokenRequest.builder().token(token).build())
+                .getResult()
+                .getToken();
+
+        CacheStats afterRefresh = verifiedTokenCache.stats();
+        assertThatThrownBy(() -> customJwtDecoder.decode(token)).isInstanceOf(BadJwtException.class);
+        assertThat(verifiedTokenCache.stats().minus(afterRefresh).hitCount()).isZero();
+        assertThat(customJwtDecoder.decode(refreshed).getSubject()).isEqualTo("alice");
+    }
+
+    @Test
+    void malformedAndForgedTokensAreCachedAsInvalid() {
+        String token = login();
+        String forged = token.substring(0, token.lastIndexOf('.') + 1) + "AAAA" + token.substring(token.length() - 4);
+
+        for (String invalid : new String[] {"not-a-jwt", forged}) {
+            CacheStats before = verifiedTokenCache.stats();
+            assertThatThrownBy(() -> customJwtDecoder.decode(invalid)).isInstanceOf(BadJwtException.class);
+            assertThatThrownBy(() -> customJwtDecoder.decode(invalid)).isInstanceOf(BadJwtException.class);
+            // Lần thứ hai lấy kết quả âm từ cache, không xác thực lại
+            assertThat(verifiedTokenCache.stats().minus(before).missCount()).isEqualTo(1);
+            assertThat(verifiedTokenCache.stats().minus(before).hitCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void infrastructureFailureIsNotCached() {
+        TokenService failingTokenService = mock(TokenService.class);
+        TokenDenylist tokenDenylist = mock(TokenDenylist.class);
+        VerifiedTokenCache cache = new VerifiedTokenCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(cache, "maxTtlSeconds", 300L);
+        ReflectionTestUtils.setField(cache, "negativeTtlSeconds", 30L);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "HS512")
+                .subject("alice")
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+        when(failingTokenService.decode("token"))
+                .thenThrow(new DataAccessResourceFailureException("Database không phản hồi"))
+                .thenReturn(jwt);
+        CustomJwtDecoder decoder = new CustomJwtDecoder(failingTokenService, cache, tokenDenylist);
+
+        assertThatThrownBy(() -> decoder.decode("token"))
+                .isInstanceOf(JwtException.class)
+                .isNotInstanceOf(BadJwtException.class);
+        assertThat(decoder.decode("token")).isSameAs(jwt);
+        verify(failingTokenService, times(2)).decode("token");
+    }
+
+    private String login() {
+        return authenticationService
+                .authenticate(AuthenticationRequest.builder().username("alice").password("alice").build())
+                .getResult()
+                .getToken();
+    }
+}
@@ -0,0 +1,160 @@
+package com.hau.identity_service.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Set;
+import javax.crypto.spec.SecretKeySpec;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+
+import com.hau.identity_service.cache.RoleScopeIndex;
+import com.hau.identity_service.cache.TokenDenylist;
+import com.hau.identity_service.cache.VerifiedTokenCache;
+import com.hau.identity_service.dto.request.AuthenticationRequest;
+import com.hau.identity_service.entity.Permission;
+import com.hau.identity_service.entity.Role;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.security.AdaptivePasswordEncoder;
+import com.hau.identity_service.security.KeyRing;
+import com.hau.identity_service.security.LoginThrottle;
+import com.hau.identity_service.service.AuthenticationService;
+import com.hau.identity_service.service.PasswordHashingService;
+import com.hau.identity_service.service.TokenService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * {@link TokenService#decode} dựng {@link Jwt} trực tiếp thay cho {@link NimbusJwtDecoder} cấu hình như
+ * {@code CustomJwtDecoder} cũ; header, claim và quyền suy ra phải giống hệt để các controller không thấy khác biệt.
+ */
+@DataJpaTest(
+        properties = {
+            "jwt.signerKey=" + JwtDecodeCompatibilityTest.SIGNER_KEY,
+            "jwt.issuer=identity-service",
+            "jwt.expirationMinutes=60",
+            "jwt.expirationRefreshMinutes=120"
+        })
+@Import({
+    AuthenticationService.class,
+    TokenService.class,
+    KeyRing.class,
+    VerifiedTokenCache.class,
+    TokenDenylist.class,
+    RoleScopeIndex.class,
+    PasswordHashingService.class,
+    AdaptivePasswordEncoder.class,
+    LoginThrottle.class,
+    JwtDecodeCompatibilityTest.Config.class
+})
+class JwtDecodeCompatibilityTest {
+
+    static final String SIGNER_KEY = "compat-test-signer-key-compat-test-signer-key-0123456789abcdefgh";
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        @Primary
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final NimbusJwtDecoder nimbusJwtDecoder = NimbusJwtDecoder.withSecretKey(
+                    new SecretKeySpec(SIGNER_KEY.getBytes(StandardCharsets.UTF_8), "HS512"))
+            .macAlgorithm(MacAlgorithm.HS512)
+            .build();
+
+    private final JwtAuthenticationConverter jwtAuthenticationConverter =
+            new SecurityConfig(null).jwtAuthenticationConverter();
+
+    @BeforeEach
+    void setUp() {
+        Permission read = Permission.builder().name("USER_READ").build();
+        Permission update = Permission.builder().name("USER_UPDATE").build();
+        entityManager.persist(read);
+        entityManager.persist(update);
+        Role user = Role.builder().name("USER").permissions(Set.of(read, update)).build();
+        Role admin = Role.builder().name("ADMIN").permissions(Set.of(read)).build();
+        entityManager.persist(user);
+        entityManager.persist(admin);
+        entityManager.persist(User.builder()
+                .username("alice")
+                .password(passwordEncoder.encode("alice"))
+                .roles(Set.of(user, admin))
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void decodesSameHeadersClaimsAndAuthoritiesAsNimbusJwtDecoder() {
+        String token = authenticationService
+                .authenticate(AuthenticationRequest.builder().username("alice").password("alice").build())
+                .getResult()
+                .getToken();
+
+        Jwt decoded = tokenService.decode(token);
+        Jwt expected = nimbusJwtDecoder.decode(token);
+
+        assertThat(decoded.getTokenValue()).isEqualTo(expected.getTokenValue());
+        assertThat(decoded.getHeaders()).isEqualTo(expected.getHeaders());
+        assertThat(decoded.getClaims()).isEqualTo(expected.getClaims());
+        // Kiểu của từng claim cũng phải giống: exp/iat là Instant, uid là số
+        assertThat(decoded.getClaims().get("exp")).isInstanceOf(Instant.class);
+        assertThat(decoded.getClaims().get("iat")).isInstanceOf(Instant.class);
+        assertThat(decoded.getExpiresAt()).isEqualTo(expected.getExpiresAt());
+        assertThat(decoded.getIssuedAt()).isEqualTo(expected.getIssuedAt());
+        assertThat(decoded.getClaimAsString("scope")).isEqualTo(expected.getClaimAsString("scope"));
+        assertThat(decoded.<Object>getClaim(TokenService.USER_ID_CLAIM))
+                .isInstanceOf(Number.class)
+                .isEqualTo(expected.getClaim(TokenService.USER_ID_CLAIM));
+
+        assertThat(authorities(decoded))
+                .isEqualTo(authorities(expected))
+                .contains("ROLE_USER", "ROLE_ADMIN", "USER_READ", "USER_UPDATE");
+    }
+
+    private Set<String> authorities(Jwt jwt) {
+        AbstractAuthenticationToken authentication = jwtAuthenticationConverter.convert(jwt);
+        return Set.copyOf(authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
+    }
+}
@@ -0,0 +1,89 @@
+package com.hau.identity_service.config;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import com.hau.identity_service.controller.AuthenticationController;
+import com.hau.identity_service.dto.response.ApiResponse;
+import com.hau.identity_service.dto.response.RevocationListResponse;
+import com.hau.identity_service.security.AdaptivePasswordEncoder;
+import com.hau.identity_service.security.ClientIpResolver;
+import com.hau.identity_service.service.AuthenticationService;
+import com.hau.identity_service.service.ForgotPasswordService;
+import com.hau.identity_service.service.TokenService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Danh sách thu hồi chỉ trả cho service client đã khai báo trong {@code service.clients}.
+ */
+@WebMvcTest(
+        controllers = AuthenticationController.class,
+        properties = "service.clients=orders:{noop}orders-secret")
+@Import({SecurityConfig.class, ClientIpResolver.class, ServiceClientSecurityTest.Config.class})
+class ServiceClientSecurityTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockitoBean
+    private AuthenticationService authenticationService;
+
+    @MockitoBean
+    private ForgotPasswordService forgotPasswordService;
+
+    @MockitoBean
+    private TokenService tokenService;
+
+    @MockitoBean
+    private CustomJwtDecoder customJwtDecoder;
+
+    @MockitoBean
+    private AdaptivePasswordEncoder adaptivePasswordEncoder;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void rejectsAnonymousAndUnknownClients() throws Exception {
+        mockMvc.perform(get("/api/v1/auth/revocations")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/v1/auth/revocations").with(basic("orders", "wrong")))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void servesRegisteredServiceClient() throws Exception {
+        when(authenticationService.getRevocations(any()))
+                .thenReturn(ApiResponse.<RevocationListResponse>builder().build());
+
+        mockMvc.perform(get("/api/v1/auth/revocations").with(basic("orders", "orders-secret")))
+                .andExpect(status().isOk());
+    }
+
+    private static RequestPostProcessor basic(String username, String password) {
+        return request -> {
+            String credentials = HttpHeaders.encodeBasicAuth(username, password, null);
+            request.addHeader(HttpHeaders.AUTHORIZATION, "Basic " + credentials);
+            return request;
+        };
+    }
+}
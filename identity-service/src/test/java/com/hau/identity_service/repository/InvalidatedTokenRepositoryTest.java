@@ -0,0 +1,48 @@
+package com.hau.identity_service.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import com.hau.identity_service.entity.InvalidatedToken;
+
+@DataJpaTest
+class InvalidatedTokenRepositoryTest {
+
+    @Autowired
+    private InvalidatedTokenRepository invalidatedTokenRepository;
+
+    @Test
+    void deletesExpiredTokensInBoundedChunks() {
+        long now = System.currentTimeMillis();
+        List<InvalidatedToken> tokens = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            tokens.add(token(new Date(now - 60_000 - i)));
+        }
+        for (int i = 0; i < 5; i++) {
+            tokens.add(token(new Date(now + 60_000)));
+        }
+        invalidatedTokenRepository.saveAllAndFlush(tokens);
+
+        Date cutoff = new Date(now);
+        assertThat(invalidatedTokenRepository.deleteExpiredChunk(cutoff, 10)).isEqualTo(10);
+        assertThat(invalidatedTokenRepository.deleteExpiredChunk(cutoff, 10)).isEqualTo(10);
+        assertThat(invalidatedTokenRepository.deleteExpiredChunk(cutoff, 10)).isEqualTo(5);
+        assertThat(invalidatedTokenRepository.deleteExpiredChunk(cutoff, 10)).isZero();
+        assertThat(invalidatedTokenRepository.count()).isEqualTo(5);
+    }
+
+    private static InvalidatedToken token(Date expiryDate) {
+        return InvalidatedToken.builder()
+                .id(UUID.randomUUID().toString())
+                .expiryDate(expiryDate)
+                .build();
+    }
+}
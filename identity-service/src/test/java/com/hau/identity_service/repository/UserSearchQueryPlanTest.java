@@ -0,0 +1,182 @@
+package com.hau.identity_service.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.DataSource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hau.identity_service.PostgresTest;
+import com.hau.identity_service.config.UserSearchIndexInitializer;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.repository.UserSpecifications.SearchMode;
+
+/**
+ * Kiểm tra kế hoạch truy vấn của từng chế độ tìm kiếm trên PostgreSQL thật (xem {@link PostgresTest}). Câu SQL do
+ * Hibernate sinh ra được ghi lại rồi chạy lại với {@code EXPLAIN} cùng tham số.
+ */
+@PostgresTest
+@DataJpaTest(
+        properties = {
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                    + "com.hau.identity_service.repository.UserSearchQueryPlanTest$CapturingStatementInspector"
+        })
+@Import(UserSearchIndexInitializer.class)
+// CREATE INDEX CONCURRENTLY không chạy được trong transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserSearchQueryPlanTest {
+
+    private static final int USER_COUNT = 20_000;
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSearchIndexInitializer indexInitializer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        Long count = jdbcTemplate.queryForObject("select count(*) from users", Long.class);
+        if (count == null || count == 0) {
+            jdbcTemplate.update("insert into users (username, email, gender) "
+                    + "select 'user' || g || '_' || substr(md5(g::text), 1, 8), "
+                    + "substr(md5(g::text), 9, 8) || '.' || g || '@Example.com', g % 2 "
+                    + "from generate_series(1, " + USER_COUNT + ") g");
+            indexInitializer.run(null);
+            // Index GIN có thể đã được tạo lúc khởi động trên bảng rỗng; VACUUM đưa các dòng vừa thêm ra khỏi
+            // pending list để planner ước lượng đúng chi phí
+            jdbcTemplate.execute("vacuum analyze users");
+        }
+    }
+
+    @Test
+    void exactUsernameUsesLowerBtreeIndex() {
+        String username = "User4242_" + md5("4242").substring(0, 8);
+
+        List<User> users = search(UserSpecifications.usernameMatches(username, SearchMode.EXACT));
+
+        assertThat(users).extracting(User::getUsername).containsExactly(username.toLowerCase());
+        assertThat(explain(username.toLowerCase())).contains("idx_users_username_lower");
+    }
+
+    @Test
+    void prefixUsernameUsesLowerBtreeIndex() {
+        List<User> users = search(UserSpecifications.usernameMatches("USER4242_", SearchMode.PREFIX));
+
+        assertThat(users).extracting(User::getUsername).containsExactly("user4242_" + md5("4242").substring(0, 8));
+        assertThat(explain("user4242\\_%")).contains("idx_users_username_lower");
+    }
+
+    @Test
+    void containsUsernameUsesTrigramIndex() {
+        String fragment = md5("777").substring(1, 7);
+
+        List<User> users = search(UserSpecifications.usernameMatches(fragment, SearchMode.CONTAINS));
+
+        assertThat(users).extracting(User::getUsername).contains("user777_" + md5("777").substring(0, 8));
+        assertThat(explain("%" + fragment + "%")).contains("idx_users_username_trgm");
+    }
+
+    @Test
+    void containsEmailUsesTrigramIndex() {
+        List<User> users = search(UserSpecifications.emailMatches(".1234@example", SearchMode.CONTAINS));
+
+        assertThat(users).extracting(User::getEmail).containsExactly(md5("1234").substring(8, 16) + ".1234@Example.com");
+        assertThat(explain("%.1234@example%")).contains("idx_users_email_trgm");
+    }
+
+    @Test
+    void likeWildcardsInSearchTermAreMatchedLiterally() {
+        assertThat(search(UserSpecifications.usernameMatches("user_", SearchMode.PREFIX)))
+                .isEmpty();
+        assertThat(search(UserSpecifications.usernameMatches("%", SearchMode.CONTAINS)))
+                .isEmpty();
+    }
+
+    @Test
+    void skipsIndexesWhileAnotherNodeHoldsTheLock() throws Exception {
+        try (Connection otherNode = dataSource.getConnection()) {
+            JdbcTemplate other = new JdbcTemplate(new SingleConnectionDataSource(otherNode, true));
+            assertThat(other.queryForObject(
+                            "select pg_try_advisory_lock(?)", Boolean.class, UserSearchIndexInitializer.INDEX_LOCK_KEY))
+                    .isTrue();
+            jdbcTemplate.execute("drop index if exists idx_users_email_trgm");
+
+            // Node kia có thể đang tạo index (indisvalid = false), node này không được đụng tới
+            indexInitializer.run(null);
+            assertThat(indexExists("idx_users_email_trgm")).isFalse();
+
+            other.queryForObject(
+                    "select pg_advisory_unlock(?)", Boolean.class, UserSearchIndexInitializer.INDEX_LOCK_KEY);
+        }
+        indexInitializer.run(null);
+        assertThat(indexExists("idx_users_email_trgm")).isTrue();
+    }
+
+    private boolean indexExists(String name) {
+        return Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject("select to_regclass(?) is not null", Boolean.class, name));
+    }
+
+    private List<User> search(Specification<User> spec) {
+        CapturingStatementInspector.STATEMENTS.clear();
+        return userRepository.findAll(spec, PageRequest.of(0, PAGE_SIZE)).getContent();
+    }
+
+    // Chạy lại câu select vừa ghi lại với EXPLAIN: tham số đầu là điều kiện tìm kiếm, hai tham số sau là offset và số dòng của trang
+    private String explain(String searchParameter) {
+        String sql = CapturingStatementInspector.STATEMENTS.stream()
+                .filter(statement -> statement.startsWith("select") && !statement.contains("count("))
+                .findFirst()
+                .orElseThrow();
+        String plan = String.join(
+                "\n", jdbcTemplate.queryForList("explain " + sql, String.class, searchParameter, 0, PAGE_SIZE));
+        assertThat(plan).doesNotContain("Seq Scan");
+        return plan;
+    }
+
+    private static String md5(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            return String.format("%032x", new BigInteger(1, digest));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
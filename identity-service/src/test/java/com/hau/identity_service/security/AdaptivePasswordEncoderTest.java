@@ -0,0 +1,94 @@
+package com.hau.identity_service.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.hau.identity_service.repository.PasswordHashingSettingRepository;
+
+/**
+ * Mỗi {@link AdaptivePasswordEncoder} ở đây đóng vai một node dùng chung bảng {@code password_hashing_setting}.
+ */
+@DataJpaTest
+class AdaptivePasswordEncoderTest {
+
+    @Autowired
+    private PasswordHashingSettingRepository settingRepository;
+
+    @Test
+    void legacyHashesStillMatchAndAreMarkedForRehash() {
+        AdaptivePasswordEncoder encoder = node("bcrypt", 0);
+        String legacyHash = new BCryptPasswordEncoder(10).encode("secret");
+
+        assertThat(encoder.matches("secret", legacyHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacyHash)).isTrue();
+
+        String newHash = encoder.encode("secret");
+        assertThat(newHash).startsWith("{bcrypt}");
+        assertThat(encoder.matches("secret", newHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(newHash)).isFalse();
+    }
+
+    @Test
+    void startsWithoutCalibratingUntilRequested() {
+        AdaptivePasswordEncoder encoder = node("pbkdf2", 0);
+
+        assertThat(encoder.calibration().selected().description()).isEqualTo("bcrypt cost=10");
+        assertThat(encoder.calibration().measurements()).isEmpty();
+        assertThat(settingRepository.count()).isZero();
+    }
+
+    @Test
+    void choosesWeakestCandidateWhenNothingFitsBudget() {
+        AdaptivePasswordEncoder encoder = node("pbkdf2", 0);
+        encoder.recalibrate();
+
+        assertThat(encoder.calibration().selected().id()).isEqualTo("pbkdf2-310000");
+        String hash = encoder.encode("secret");
+        assertThat(hash).startsWith("{pbkdf2-310000}");
+        assertThat(encoder.matches("secret", hash)).isTrue();
+        assertThat(encoder.matches("secret", new BCryptPasswordEncoder(4).encode("secret"))).isTrue();
+    }
+
+    @Test
+    void calibrationIsSharedWithOtherNodesAndSurvivesRestart() {
+        AdaptivePasswordEncoder nodeA = node("pbkdf2", 0);
+        // Node B cấu hình thuật toán khác nhưng không tự hiệu chỉnh
+        AdaptivePasswordEncoder nodeB = node("bcrypt", 0);
+
+        nodeA.recalibrate();
+        nodeB.sync();
+        String hash = nodeA.encode("secret");
+
+        assertThat(nodeB.calibration().selected().id()).isEqualTo("pbkdf2-310000");
+        assertThat(nodeB.upgradeEncoding(hash)).isFalse();
+        assertThat(nodeB.matches("secret", hash)).isTrue();
+        assertThat(node("bcrypt", 0).calibration().selected().id()).isEqualTo("pbkdf2-310000");
+    }
+
+    @Test
+    void describesStoredHashFormats() {
+        assertThat(AdaptivePasswordEncoder.describe(new BCryptPasswordEncoder(10).encode("a")))
+                .isEqualTo("bcrypt cost=10 (không có tiền tố)");
+        assertThat(AdaptivePasswordEncoder.describe("{bcrypt}" + new BCryptPasswordEncoder(12).encode("a")))
+                .isEqualTo("bcrypt cost=12");
+        assertThat(AdaptivePasswordEncoder.describe(
+                        "{argon2}" + PasswordHashingCalibrator.argon2(19456, 2).encoder().get().encode("a")))
+                .isEqualTo("argon2id m=19456,t=2,p=1");
+        assertThat(AdaptivePasswordEncoder.describe("{pbkdf2-600000}abcdef"))
+                .isEqualTo("pbkdf2-sha256 iterations=600000");
+        assertThat(AdaptivePasswordEncoder.describe("plain")).isEqualTo("không xác định");
+    }
+
+    private AdaptivePasswordEncoder node(String algorithms, long latencyBudgetMillis) {
+        AdaptivePasswordEncoder encoder = new AdaptivePasswordEncoder(settingRepository);
+        ReflectionTestUtils.setField(encoder, "algorithms", algorithms);
+        ReflectionTestUtils.setField(encoder, "latencyBudgetMillis", latencyBudgetMillis);
+        ReflectionTestUtils.invokeMethod(encoder, "init");
+        return encoder;
+    }
+}
@@ -0,0 +1,79 @@
+package com.hau.identity_service.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.hau.identity_service.exception.ServiceUnavailableException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder slowEncoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slowEncoder, 1, 1, 5_000, 3, meterRegistry)) {
+            // Một tác vụ đang chạy, một tác vụ chiếm chỗ duy nhất trong hàng đợi
+            Future<String> running = callers.submit(() -> encoder.encode("running"));
+            started.await(5, TimeUnit.SECONDS);
+            Future<String> queued = callers.submit(() -> encoder.encode("queued"));
+            awaitQueued(meterRegistry, 1);
+
+            assertThatThrownBy(() -> encoder.encode("rejected"))
+                    .isInstanceOfSatisfying(
+                            ServiceUnavailableException.class,
+                            e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(3));
+            assertThat(meterRegistry.get("password.hashing.rejected").counter().count())
+                    .isEqualTo(1);
+
+            release.countDown();
+            // Chờ hàng đợi trống trước khi gửi tác vụ tiếp theo
+            running.get(5, TimeUnit.SECONDS);
+            queued.get(5, TimeUnit.SECONDS);
+            assertThat(encoder.matches("secret", "secret")).isTrue();
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    // Chờ theo gauge hàng đợi của pool thay vì ngủ một khoảng cố định
+    private static void awaitQueued(SimpleMeterRegistry meterRegistry, int expected) {
+        Gauge queued = meterRegistry.get("executor.queued").tag("name", "password.hashing").gauge();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queued.value() < expected) {
+            assertThat(System.nanoTime()).as("Hàng đợi băm mật khẩu chưa có %d tác vụ", expected).isLessThan(deadline);
+            Thread.yield();
+        }
+    }
+}
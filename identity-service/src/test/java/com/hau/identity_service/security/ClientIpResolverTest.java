@@ -0,0 +1,83 @@
+package com.hau.identity_service.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ClientIpResolverTest {
+
+    private static final String GATEWAY = "10.0.0.5";
+
+    private ClientIpResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        resolver = resolver("10.0.0.0/8, 192.168.1.10");
+    }
+
+    @Test
+    void readsClientFromForwardedForWhenRequestComesThroughGateway() {
+        assertThat(resolver.resolve(request(GATEWAY, "203.0.113.7"))).isEqualTo("203.0.113.7");
+        // Client tự thêm địa chỉ giả phía trước; gateway nối địa chỉ thật vào cuối
+        assertThat(resolver.resolve(request(GATEWAY, "198.51.100.1, 203.0.113.7"))).isEqualTo("203.0.113.7");
+        // Nhiều proxy nội bộ nối tiếp
+        assertThat(resolver.resolve(request(GATEWAY, "203.0.113.7, 192.168.1.10, 10.0.0.9"))).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void ignoresForwardedForFromUntrustedClient() {
+        assertThat(resolver.resolve(request("203.0.113.7", "198.51.100.1"))).isEqualTo("203.0.113.7");
+        assertThat(resolver("").resolve(request(GATEWAY, "203.0.113.7"))).isEqualTo(GATEWAY);
+    }
+
+    @Test
+    void skipsIpKeyingWhenGatewayDoesNotIdentifyClient() {
+        assertThat(resolver.resolve(request(GATEWAY, null))).isNull();
+        assertThat(resolver.resolve(request(GATEWAY, "10.0.0.7"))).isNull();
+        assertThat(resolver.resolve(request(GATEWAY, "client.example.com"))).isNull();
+        assertThat(resolver.resolve(request(GATEWAY, "203.0.113.7, 999.1.1.1"))).isNull();
+    }
+
+    @Test
+    void clientsBehindGatewayDoNotShareIpLockout() {
+        LoginThrottle loginThrottle = new LoginThrottle(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(loginThrottle, "windowMinutes", 15L);
+        ReflectionTestUtils.setField(loginThrottle, "sketchWidth", 1024);
+        ReflectionTestUtils.setField(loginThrottle, "delayAfterFailures", 3);
+        ReflectionTestUtils.setField(loginThrottle, "baseDelayMillis", 1000L);
+        ReflectionTestUtils.setField(loginThrottle, "maxDelaySeconds", 60L);
+        ReflectionTestUtils.setField(loginThrottle, "lockoutFailures", 5);
+        ReflectionTestUtils.setField(loginThrottle, "ipLockoutFailures", 8);
+        ReflectionTestUtils.setField(loginThrottle, "trackedKeys", 1000L);
+        ReflectionTestUtils.invokeMethod(loginThrottle, "init");
+
+        for (int i = 0; i < 20; i++) {
+            loginThrottle.recordFailure("user" + i, resolver.resolve(request(GATEWAY, "203.0.113." + i)));
+        }
+
+        String nextClient = resolver.resolve(request(GATEWAY, "203.0.113.200"));
+        assertThatCode(() -> loginThrottle.check("someone-else", nextClient)).doesNotThrowAnyException();
+    }
+
+    private static ClientIpResolver resolver(String trustedProxies) {
+        ClientIpResolver resolver = new ClientIpResolver();
+        ReflectionTestUtils.setField(resolver, "trustedProxies", trustedProxies);
+        ReflectionTestUtils.invokeMethod(resolver, "init");
+        return resolver;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/login");
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,199 @@
+package com.hau.identity_service.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.hau.identity_service.repository.JwtSigningKeyRepository;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * Mỗi {@link KeyRing} ở đây đóng vai một node (hoặc một lần khởi động lại) dùng chung bảng {@code jwt_signing_key}.
+ */
+@DataJpaTest
+class KeyRingTest {
+
+    private static final String SIGNER_KEY = "key-ring-test-signer-key-key-ring-test-signer-key-0123456789abcdef";
+    private static final String KEY_ENCRYPTION_KEY = "key-ring-test-key-encryption-key-0123456789";
+    private static final String ROTATED_SECRET = "rotated-secret-rotated-secret-rotated-secret-rotated-secret-0123";
+
+    @Autowired
+    private JwtSigningKeyRepository signingKeyRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void rotatedHmacKeyIsSharedWithOtherNodesAndSurvivesRestart() throws Exception {
+        KeyRing nodeA = node("HS512");
+        KeyRing nodeB = node("HS512");
+
+        nodeA.rotate("hs-2", ROTATED_SECRET);
+        String token = nodeA.sign(claims());
+
+        // Node B chưa đồng bộ nhưng nạp lại bảng khi gặp kid lạ
+        assertThat(nodeB.verify(SignedJWT.parse(token))).isTrue();
+        assertThat(nodeB.active().kid()).isEqualTo("hs-2");
+
+        KeyRing restarted = node("HS512");
+        assertThat(restarted.active().kid()).isEqualTo("hs-2");
+        assertThat(restarted.verify(SignedJWT.parse(token))).isTrue();
+        // Khóa trong cấu hình vẫn xác thực token cũ
+        assertThat(restarted.verify(SignedJWT.parse(node("HS512", "default").sign(claims()))))
+                .isTrue();
+    }
+
+    @Test
+    void asymmetricNodesShareOneKeyAndKeepRetirementAcrossRestart() throws Exception {
+        KeyRing nodeA = node("ES256");
+        KeyRing nodeB = node("ES256");
+
+        assertThat(nodeB.active().kid()).isEqualTo(nodeA.active().kid());
+        assertThat(nodeB.jwkSet().etag()).isEqualTo(nodeA.jwkSet().etag());
+
+        String firstKid = nodeA.active().kid();
+        nodeA.rotate("es-2", null);
+
+        KeyRing restarted = node("ES256");
+        assertThat(restarted.active().kid()).isEqualTo("es-2");
+        assertThat(restarted.find(firstKid).retiredAt()).isNotNull();
+        assertThat(signingKeyRepository.findById(firstKid)).get().satisfies(key -> assertThat(key.getRetiredAt())
+                .isNotNull());
+    }
+
+    @Test
+    void importsKeysFromLegacyJwkSetFile(@TempDir Path directory) throws Exception {
+        ECKey legacyKey = new ECKeyGenerator(Curve.P_256)
+                .keyID("es-legacy")
+                .algorithm(JWSAlgorithm.ES256)
+                .issueTime(new Date())
+                .generate();
+        Path jwkSetFile = directory.resolve("jwks.json");
+        Files.writeString(jwkSetFile, new JWKSet(legacyKey).toString(false));
+
+        KeyRing nodeA = node("ES256", "", jwkSetFile.toString());
+        KeyRing nodeB = node("ES256");
+
+        assertThat(nodeA.active().kid()).isEqualTo("es-legacy");
+        assertThat(nodeB.active().kid()).isEqualTo("es-legacy");
+        assertThat(signingKeyRepository.existsById("es-legacy")).isTrue();
+    }
+
+    @Test
+    void rejectsRetiringConfiguredKeyOrDuplicateKid() {
+        KeyRing nodeA = node("HS512");
+        nodeA.rotate("hs-2", ROTATED_SECRET);
+
+        assertThatThrownBy(() -> nodeA.retire("default")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> node("HS512").rotate("hs-2", ROTATED_SECRET))
+                .isInstanceOf(IllegalArgumentException.class);
+        // Secret tự sinh không được phân phối cho identity-client nên HS512 bắt buộc truyền secret
+        assertThatThrownBy(() -> nodeA.rotate("hs-3", null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("identity.client.keys");
+    }
+
+    @Test
+    void storesKeyMaterialEncrypted() throws Exception {
+        KeyRing hmacNode = node("HS512");
+        hmacNode.rotate("hs-2", ROTATED_SECRET);
+        KeyRing esNode = node("ES256");
+        String esKid = esNode.active().kid();
+
+        String hmacStored = signingKeyRepository.findById("hs-2").orElseThrow().getKeyMaterial();
+        assertThat(hmacStored)
+                .startsWith("enc:v1:")
+                .doesNotContain(ROTATED_SECRET)
+                .doesNotContain(Base64.getEncoder().encodeToString(ROTATED_SECRET.getBytes()));
+        String esStored = signingKeyRepository.findById(esKid).orElseThrow().getKeyMaterial();
+        assertThat(esStored)
+                .startsWith("enc:v1:")
+                .doesNotContain(esNode.active().jwk().toECKey().getD().toString())
+                .doesNotContain("\"kty\"");
+
+        // Node có cùng khóa mã hóa dùng được khóa đã lưu, node khác khóa mã hóa thì không
+        String token = hmacNode.sign(claims());
+        assertThat(node("HS512").verify(SignedJWT.parse(token))).isTrue();
+        KeyRing wrongKek = node("HS512", "", "", "another-key-encryption-key-another-key-0123");
+        assertThat(wrongKek.find("hs-2")).isNull();
+        assertThat(wrongKek.verify(SignedJWT.parse(token))).isFalse();
+    }
+
+    @Test
+    void rejectsRotationWithoutKeyEncryptionKey() {
+        KeyRing keyRing = node("HS512", "", "", "");
+
+        assertThatThrownBy(() -> keyRing.rotate("hs-2", ROTATED_SECRET))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("jwt.keyEncryptionKey");
+        assertThat(signingKeyRepository.existsById("hs-2")).isFalse();
+    }
+
+    @Test
+    void encryptsPlaintextKeysWrittenBeforeEncryption() throws Exception {
+        String legacySecret = Base64.getEncoder().encodeToString(ROTATED_SECRET.getBytes());
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> signingKeyRepository.insert(
+                "hs-legacy", "HS512", legacySecret, Instant.now().minusSeconds(60)));
+
+        KeyRing keyRing = node("HS512");
+
+        assertThat(signingKeyRepository.findById("hs-legacy").orElseThrow().getKeyMaterial())
+                .startsWith("enc:v1:")
+                .doesNotContain(legacySecret);
+        assertThat(keyRing.active().kid()).isEqualTo("hs-legacy");
+        assertThat(node("HS512").verify(SignedJWT.parse(keyRing.sign(claims())))).isTrue();
+    }
+
+    private KeyRing node(String algorithm) {
+        return node(algorithm, "");
+    }
+
+    private KeyRing node(String algorithm, String activeKid) {
+        return node(algorithm, activeKid, "");
+    }
+
+    private KeyRing node(String algorithm, String activeKid, String jwkSetPath) {
+        return node(algorithm, activeKid, jwkSetPath, KEY_ENCRYPTION_KEY);
+    }
+
+    private KeyRing node(String algorithm, String activeKid, String jwkSetPath, String keyEncryptionKey) {
+        KeyRing keyRing = new KeyRing(signingKeyRepository, transactionManager);
+        ReflectionTestUtils.setField(keyRing, "signerKey", SIGNER_KEY);
+        ReflectionTestUtils.setField(keyRing, "signerKeyId", "default");
+        ReflectionTestUtils.setField(keyRing, "configuredKeys", "");
+        ReflectionTestUtils.setField(keyRing, "activeKid", activeKid);
+        ReflectionTestUtils.setField(keyRing, "algorithmName", algorithm);
+        ReflectionTestUtils.setField(keyRing, "jwkSetPath", jwkSetPath);
+        ReflectionTestUtils.setField(keyRing, "keyEncryptionKey", keyEncryptionKey);
+        ReflectionTestUtils.setField(keyRing, "expirationRefreshMinutes", 120L);
+        ReflectionTestUtils.setField(keyRing, "unknownKidReloadIntervalMillis", 0L);
+        ReflectionTestUtils.invokeMethod(keyRing, "init");
+        return keyRing;
+    }
+
+    private static JWTClaimsSet claims() {
+        return new JWTClaimsSet.Builder()
+                .subject("alice")
+                .issueTime(new Date())
+                .build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.hau.identity_service.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.hau.identity_service.exception.RetryLaterException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LoginThrottleTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LoginThrottle loginThrottle;
+
+    @BeforeEach
+    void setUp() {
+        loginThrottle = new LoginThrottle(meterRegistry);
+        ReflectionTestUtils.setField(loginThrottle, "windowMinutes", 15L);
+        ReflectionTestUtils.setField(loginThrottle, "sketchWidth", 1024);
+        ReflectionTestUtils.setField(loginThrottle, "delayAfterFailures", 3);
+        ReflectionTestUtils.setField(loginThrottle, "baseDelayMillis", 60_000L);
+        ReflectionTestUtils.setField(loginThrottle, "maxDelaySeconds", 600L);
+        ReflectionTestUtils.setField(loginThrottle, "lockoutFailures", 5);
+        ReflectionTestUtils.setField(loginThrottle, "ipLockoutFailures", 8);
+        ReflectionTestUtils.setField(loginThrottle, "trackedKeys", 100_000L);
+        ReflectionTestUtils.invokeMethod(loginThrottle, "init");
+    }
+
+    @Test
+    void delaysAfterRepeatedFailures() {
+        for (int i = 0; i < 2; i++) {
+            loginThrottle.recordFailure("alice", null);
+        }
+        assertThatCode(() -> loginThrottle.check("alice", null)).doesNotThrowAnyException();
+
+        loginThrottle.recordFailure("alice", null);
+
+        assertThatThrownBy(() -> loginThrottle.check("Alice", null))
+                .isInstanceOfSatisfying(RetryLaterException.class, e -> {
+                    assertThat(e.getHttpStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+                    assertThat(e.getRetryAfterSeconds()).isBetween(1L, 60L);
+                });
+        assertThatCode(() -> loginThrottle.check("bob", null)).doesNotThrowAnyException();
+
+        loginThrottle.recordSuccess("alice");
+        assertThatCode(() -> loginThrottle.check("alice", null)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void locksOutUntilWindowsRotateAway() {
+        for (int i = 0; i < 5; i++) {
+            loginThrottle.recordFailure("alice", null);
+        }
+        loginThrottle.recordSuccess("alice");
+        assertThatThrownBy(() -> loginThrottle.check("alice", null)).isInstanceOf(RetryLaterException.class);
+
+        loginThrottle.rotate();
+        assertThatThrownBy(() -> loginThrottle.check("alice", null)).isInstanceOf(RetryLaterException.class);
+
+        loginThrottle.rotate();
+        assertThatCode(() -> loginThrottle.check("alice", null)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void locksOutClientIpAcrossUsernames() {
+        for (int i = 0; i < 8; i++) {
+            loginThrottle.recordFailure("user" + i, "10.0.0.1");
+        }
+
+        assertThatThrownBy(() -> loginThrottle.check("someone-else", "10.0.0.1"))
+                .isInstanceOf(RetryLaterException.class);
+        assertThatCode(() -> loginThrottle.check("someone-else", "10.0.0.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void manyDistinctFailingUsersDoNotDelayUntouchedUsers() {
+        // Sketch 1024 cột nhận 20.000 username khác nhau: ước lượng của user chưa từng sai vượt ngưỡng vì va chạm
+        for (int i = 0; i < 20_000; i++) {
+            loginThrottle.recordFailure("spray-" + i, null);
+            loginThrottle.recordFailure("spray-" + i, null);
+        }
+        for (int i = 0; i < 5; i++) {
+            loginThrottle.recordFailure("victim", null);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            String untouched = "innocent-" + i;
+            assertThatCode(() -> loginThrottle.check(untouched, null)).doesNotThrowAnyException();
+        }
+        assertThat(meterRegistry.get("login.throttle.unconfirmed").counter().count()).isPositive();
+        // User thật sự bị dò vẫn bị khóa
+        assertThatThrownBy(() -> loginThrottle.check("victim", null)).isInstanceOf(RetryLaterException.class);
+    }
+
+    @Test
+    void sketchNeverUnderestimates() {
+        CountMinSketch sketch = new CountMinSketch(4, 256);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.add("key-" + (i % 1000));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertThat(sketch.estimate("key-" + i)).isGreaterThanOrEqualTo(10);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.hau.identity_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.hau.identity_service.cache.RoleScopeIndex;
+import com.hau.identity_service.cache.TokenDenylist;
+import com.hau.identity_service.cache.VerifiedTokenCache;
+import com.hau.identity_service.dto.request.AuthenticationRequest;
+import com.hau.identity_service.dto.request.RefreshTokenRequest;
+import com.hau.identity_service.entity.Permission;
+import com.hau.identity_service.entity.Role;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.security.AdaptivePasswordEncoder;
+import com.hau.identity_service.security.KeyRing;
+import com.hau.identity_service.security.LoginThrottle;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Đếm truy vấn trên đường đăng nhập/làm mới token để phát hiện N+1 khi roles/permissions bị lazy load trở lại.
+ */
+@DataJpaTest(
+        properties = {
+            "spring.jpa.properties.hibernate.generate_statistics=true",
+            "jwt.signerKey=query-count-test-signer-key-query-count-test-signer-key-0123456789",
+            "jwt.issuer=identity-service",
+            "jwt.expirationMinutes=60",
+            "jwt.expirationRefreshMinutes=120"
+        })
+@Import({
+    AuthenticationService.class,
+    TokenService.class,
+    KeyRing.class,
+    VerifiedTokenCache.class,
+    TokenDenylist.class,
+    RoleScopeIndex.class,
+    PasswordHashingService.class,
+    AdaptivePasswordEncoder.class,
+    LoginThrottle.class,
+    AuthenticationQueryCountTest.Config.class
+})
+class AuthenticationQueryCountTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        @Primary
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private RoleScopeIndex roleScopeIndex;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Permission read = Permission.builder().name("USER_READ").build();
+        Permission delete = Permission.builder().name("USER_DELETE").build();
+        Permission profile = Permission.builder().name("PROFILE_UPDATE").build();
+        entityManager.persist(read);
+        entityManager.persist(delete);
+        entityManager.persist(profile);
+
+        Role admin = Role.builder().name("ADMIN").permissions(Set.of(read, delete)).build();
+        Role user = Role.builder().name("USER").permissions(Set.of(profile)).build();
+        entityManager.persist(admin);
+        entityManager.persist(user);
+
+        entityManager.persist(User.builder()
+                .username("admin")
+                .password(passwordEncoder.encode("admin"))
+                .roles(Set.of(admin, user))
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+
+        // Chỉ mục scope được dựng một lần cho cả ứng dụng, không tính vào từng lần đăng nhập
+        roleScopeIndex.scopeOf(Set.of(admin));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void loginLoadsAuthorityGraphInOneQuery() {
+        var response = authenticationService.authenticate(
+                AuthenticationRequest.builder().username("admin").password("admin").build());
+
+        assertThat(response.getResult().getToken()).isNotBlank();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+        assertThat(statistics.getEntityFetchCount()).isZero();
+    }
+
+    @Test
+    void refreshDoesNotLazyLoadRolesOrPermissions() throws Exception {
+        String token = authenticationService
+                .authenticate(AuthenticationRequest.builder().username("admin").password("admin").build())
+                .getResult()
+                .getToken();
+        entityManager.clear();
+        statistics.clear();
+
+        var response = tokenService.refreshToken(RefreshTokenRequest.builder().token(token).build());
+
+        assertThat(response.getResult().getToken()).isNotBlank();
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+        assertThat(statistics.getEntityFetchCount()).isZero();
+    }
+}
@@ -0,0 +1,172 @@
+package com.hau.identity_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import com.hau.identity_service.cache.RoleScopeIndex;
+import com.hau.identity_service.cache.TokenDenylist;
+import com.hau.identity_service.cache.VerifiedTokenCache;
+import com.hau.identity_service.dto.request.AuthenticationRequest;
+import com.hau.identity_service.dto.request.BatchIntrospectRequest;
+import com.hau.identity_service.dto.request.IntrospectRequest;
+import com.hau.identity_service.dto.request.LogoutRequest;
+import com.hau.identity_service.dto.response.IntrospectResponse;
+import com.hau.identity_service.entity.Role;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.exception.AppException;
+import com.hau.identity_service.security.AdaptivePasswordEncoder;
+import com.hau.identity_service.security.KeyRing;
+import com.hau.identity_service.security.LoginThrottle;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * {@code /api/v1/auth/introspect/batch} phải trả cùng kết quả như gọi {@code /introspect} cho từng token, giữ thứ tự
+ * đầu vào và kiểm tra thu hồi cho cả lô bằng một lần tra cứu.
+ */
+@DataJpaTest(
+        properties = {
+            "jwt.signerKey=introspect-test-signer-key-introspect-test-signer-key-0123456789",
+            "jwt.issuer=identity-service",
+            "jwt.expirationMinutes=60",
+            "jwt.expirationRefreshMinutes=120",
+            "jwt.introspect.batchMaxSize=5"
+        })
+@Import({
+    AuthenticationService.class,
+    TokenService.class,
+    KeyRing.class,
+    VerifiedTokenCache.class,
+    TokenDenylist.class,
+    RoleScopeIndex.class,
+    PasswordHashingService.class,
+    AdaptivePasswordEncoder.class,
+    LoginThrottle.class,
+    BatchIntrospectTest.Config.class
+})
+class BatchIntrospectTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        @Primary
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private KeyRing keyRing;
+
+    @MockitoSpyBean
+    private TokenDenylist tokenDenylist;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Role user = Role.builder().name("USER").build();
+        entityManager.persist(user);
+        entityManager.persist(User.builder()
+                .username("alice")
+                .password(passwordEncoder.encode("alice"))
+                .roles(Set.of(user))
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void mixedBatchKeepsInputOrderAndMatchesSingleIntrospect() throws Exception {
+        String valid = login();
+        String revoked = login();
+        authenticationService.logout(LogoutRequest.builder().token(revoked).build());
+        String expired = keyRing.sign(new JWTClaimsSet.Builder()
+                .subject("alice")
+                .issuer("identity-service")
+                .issueTime(Date.from(Instant.now().minus(2, ChronoUnit.HOURS)))
+                .expirationTime(Date.from(Instant.now().minus(1, ChronoUnit.HOURS)))
+                .jwtID(UUID.randomUUID().toString())
+                .build());
+        List<String> tokens = List.of(revoked, "not-a-jwt", valid, "", expired);
+        clearInvocations(tokenDenylist);
+
+        List<IntrospectResponse> results = authenticationService
+                .introspectBatch(BatchIntrospectRequest.builder().tokens(tokens).build())
+                .getResult();
+
+        assertThat(results).extracting(IntrospectResponse::isValid).containsExactly(false, false, true, false, false);
+        assertThat(results.get(2).getUsername()).isEqualTo("alice");
+        // Thu hồi được kiểm tra cho cả lô bằng một lần findRevoked, không tra từng token
+        verify(tokenDenylist, times(1)).findRevoked(any());
+        verify(tokenDenylist, never()).isRevoked(anyString());
+
+        for (int i = 0; i < tokens.size(); i++) {
+            IntrospectResponse single = authenticationService
+                    .introspect(IntrospectRequest.builder().token(tokens.get(i)).build())
+                    .getResult();
+            assertThat(results.get(i)).as("token #%d", i).isEqualTo(single);
+        }
+    }
+
+    @Test
+    void rejectsBatchOverMaxSize() {
+        List<String> tokens = Collections.nCopies(6, "not-a-jwt");
+
+        assertThatThrownBy(() -> authenticationService.introspectBatch(
+                        BatchIntrospectRequest.builder().tokens(tokens).build()))
+                .isInstanceOfSatisfying(
+                        AppException.class, e -> assertThat(e.getHttpStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+        verify(tokenDenylist, never()).findRevoked(any());
+    }
+
+    private String login() {
+        return authenticationService
+                .authenticate(AuthenticationRequest.builder().username("alice").password("alice").build())
+                .getResult()
+                .getToken();
+    }
+}
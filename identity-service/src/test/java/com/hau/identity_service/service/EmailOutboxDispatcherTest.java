@@ -0,0 +1,219 @@
+package com.hau.identity_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import com.hau.identity_service.cache.EmailTemplateCache;
+import com.hau.identity_service.entity.EmailOutbox;
+import com.hau.identity_service.repository.EmailOutboxRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Gửi outbox tới GreenMail chạy local. Test không chạy trong transaction để worker thấy được dữ liệu đã commit.
+ */
+@DataJpaTest(
+        properties = {
+            "email.outbox.batchSize=50",
+            "email.outbox.maxAttempts=2",
+            // Tắt quét định kỳ để test tự gọi drain()
+            "email.outbox.pollIntervalMillis=3600000"
+        })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+    EmailService.class,
+    EmailOutboxDispatcher.class,
+    EmailTemplateCache.class,
+    EmailOutboxDispatcherTest.Config.class
+})
+class EmailOutboxDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        JavaMailSender javaMailSender() {
+            JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+            mailSender.setHost("localhost");
+            mailSender.setPort(ServerSetupTest.SMTP.getPort());
+            return mailSender;
+        }
+
+        @Bean
+        TemplateEngine templateEngine() {
+            ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+            resolver.setPrefix("templates/");
+            resolver.setSuffix(".html");
+            SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+            templateEngine.setTemplateResolver(resolver);
+            return templateEngine;
+        }
+    }
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxDispatcher emailOutboxDispatcher;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        emailOutboxRepository.deleteAll();
+    }
+
+    @Test
+    void queuedEmailIsDeliveredAfterCommit() throws Exception {
+        Context context = new Context();
+        context.setVariable("username", "alice & <bob>");
+        context.setVariable("otp", 123456);
+        context.setVariable("expiryMinutes", 5);
+
+        emailService.sendHtmlEmail("alice@example.com", "Mã OTP", "otp-email-template", context);
+
+        assertThat(greenMail.waitForIncomingEmail(5000, 1)).isTrue();
+        MimeMessage message = greenMail.getReceivedMessages()[0];
+        assertThat(message.getSubject()).isEqualTo("Mã OTP");
+
+        // Template biên dịch sẵn: multipart/alternative gồm text và HTML
+        MimeMultipart alternative = (MimeMultipart) message.getContent();
+        assertThat(alternative.getContentType()).startsWith("multipart/alternative");
+        assertThat(GreenMailUtil.getBody(alternative.getBodyPart(0))).contains("alice & <bob>", "123456");
+        assertThat((String) alternative.getBodyPart(1).getContent())
+                .contains("<strong>alice &amp; &lt;bob&gt;</strong>", "<div class=\"otp-code\">123456</div>");
+    }
+
+    @Test
+    void drainsBacklogInBatches() {
+        int count = 500;
+        List<EmailOutbox> emails = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            emails.add(pending("user" + i + "@example.com"));
+        }
+        emailOutboxRepository.saveAll(emails);
+
+        long start = System.nanoTime();
+        int delivered = emailOutboxDispatcher.drain();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Email outbox: %d messages in %.2f s (%.0f msg/s)%n", count, seconds, count / seconds);
+
+        assertThat(delivered).isEqualTo(count);
+        assertThat(greenMail.getReceivedMessages()).hasSize(count);
+        assertThat(emailOutboxRepository.count()).isZero();
+    }
+
+    @Test
+    void retriesWithBackoffThenDeadLetters() {
+        greenMail.stop();
+        EmailOutbox email = emailOutboxRepository.save(pending("bob@example.com"));
+
+        emailOutboxDispatcher.drain();
+        EmailOutbox retried = emailOutboxRepository.findById(email.getId()).orElseThrow();
+        assertThat(retried.getStatus()).isEqualTo(EmailOutbox.Status.PENDING);
+        assertThat(retried.getAttempts()).isEqualTo(1);
+        assertThat(retried.getNextAttemptAt()).isAfter(Instant.now());
+        assertThat(retried.getLastError()).isNotBlank();
+
+        // Chưa tới hạn thử lại thì không bị nhận xử lý
+        assertThat(emailOutboxDispatcher.drain()).isZero();
+
+        retried.setNextAttemptAt(Instant.now());
+        emailOutboxRepository.save(retried);
+        emailOutboxDispatcher.drain();
+        EmailOutbox dead = emailOutboxRepository.findById(email.getId()).orElseThrow();
+        assertThat(dead.getStatus()).isEqualTo(EmailOutbox.Status.DEAD);
+        assertThat(dead.getAttempts()).isEqualTo(2);
+        // Nội dung có thể chứa OTP không được giữ lại trong bản ghi DEAD
+        assertThat(dead.getHtmlBody()).isNull();
+        assertThat(dead.getTemplateVariables()).isNull();
+        assertThat(dead.getLastError()).isNotBlank();
+    }
+
+    @Test
+    void purgesDeadEmailsPastRetentionAndReportsBacklog() {
+        EmailOutbox expired = dead("old@example.com", Instant.now().minus(Duration.ofDays(8)));
+        EmailOutbox recent = dead("recent@example.com", Instant.now().minus(Duration.ofDays(1)));
+        EmailOutbox waiting = pending("waiting@example.com");
+        waiting.setNextAttemptAt(Instant.now().minus(Duration.ofDays(30)));
+        emailOutboxRepository.saveAll(List.of(expired, recent, waiting));
+
+        emailOutboxDispatcher.refreshBacklog();
+        assertThat(backlog("pending")).isEqualTo(1);
+        assertThat(backlog("dead")).isEqualTo(2);
+
+        assertThat(emailOutboxDispatcher.purgeDead()).isEqualTo(1);
+        assertThat(emailOutboxRepository.existsById(expired.getId())).isFalse();
+        assertThat(emailOutboxRepository.existsById(recent.getId())).isTrue();
+        // Email PENDING quá hạn vẫn phải được gửi, không bị xóa
+        assertThat(emailOutboxRepository.existsById(waiting.getId())).isTrue();
+
+        emailOutboxDispatcher.refreshBacklog();
+        assertThat(backlog("dead")).isEqualTo(1);
+    }
+
+    private double backlog(String status) {
+        return meterRegistry
+                .get("email.outbox.backlog")
+                .tag("status", status)
+                .gauge()
+                .value();
+    }
+
+    private static EmailOutbox dead(String recipient, Instant lastAttemptAt) {
+        EmailOutbox email = pending(recipient);
+        email.setStatus(EmailOutbox.Status.DEAD);
+        email.setHtmlBody(null);
+        email.setNextAttemptAt(lastAttemptAt);
+        return email;
+    }
+
+    private static EmailOutbox pending(String recipient) {
+        return EmailOutbox.builder()
+                .recipient(recipient)
+                .subject("Test")
+                .htmlBody("<p>Hello</p>")
+                .status(EmailOutbox.Status.PENDING)
+                .nextAttemptAt(Instant.now())
+                .build();
+    }
+}
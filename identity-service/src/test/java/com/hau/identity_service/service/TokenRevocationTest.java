@@ -0,0 +1,150 @@
+package com.hau.identity_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Set;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.hau.identity_service.cache.RoleScopeIndex;
+import com.hau.identity_service.cache.TokenDenylist;
+import com.hau.identity_service.cache.VerifiedTokenCache;
+import com.hau.identity_service.dto.request.AuthenticationRequest;
+import com.hau.identity_service.dto.request.LogoutRequest;
+import com.hau.identity_service.dto.request.RefreshTokenRequest;
+import com.hau.identity_service.entity.Role;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.exception.AppException;
+import com.hau.identity_service.repository.InvalidatedTokenRepository;
+import com.hau.identity_service.security.AdaptivePasswordEncoder;
+import com.hau.identity_service.security.KeyRing;
+import com.hau.identity_service.security.LoginThrottle;
+import com.nimbusds.jwt.SignedJWT;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Token đã đăng xuất hoặc đã dùng để làm mới phải nằm trong danh sách thu hồi tới hết hạn làm mới, không chỉ tới
+ * {@code exp}. Access token ở đây hết hạn ngay khi phát hành nên mọi kiểm tra đều rơi vào khoảng sau {@code exp}.
+ */
+@DataJpaTest(
+        properties = {
+            "jwt.signerKey=revocation-test-signer-key-revocation-test-signer-key-0123456789",
+            "jwt.issuer=identity-service",
+            "jwt.expirationMinutes=0",
+            "jwt.expirationRefreshMinutes=120"
+        })
+@Import({
+    AuthenticationService.class,
+    TokenService.class,
+    KeyRing.class,
+    VerifiedTokenCache.class,
+    TokenDenylist.class,
+    RoleScopeIndex.class,
+    PasswordHashingService.class,
+    AdaptivePasswordEncoder.class,
+    LoginThrottle.class,
+    TokenRevocationTest.Config.class
+})
+class TokenRevocationTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        @Primary
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    @Autowired
+    private InvalidatedTokenRepository invalidatedTokenRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Role user = Role.builder().name("USER").build();
+        entityManager.persist(user);
+        entityManager.persist(User.builder()
+                .username("alice")
+                .password(passwordEncoder.encode("alice"))
+                .roles(Set.of(user))
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void loggedOutTokenCannotBeRefreshedAfterAccessExpiry() throws Exception {
+        String token = login();
+        authenticationService.logout(LogoutRequest.builder().token(token).build());
+
+        assertRevokedUntilRefreshExpiry(token);
+    }
+
+    @Test
+    void refreshedTokenCannotBeReplayedAfterAccessExpiry() throws Exception {
+        String token = login();
+        tokenService.refreshToken(RefreshTokenRequest.builder().token(token).build());
+
+        assertRevokedUntilRefreshExpiry(token);
+    }
+
+    private void assertRevokedUntilRefreshExpiry(String token) throws Exception {
+        var claimsSet = SignedJWT.parse(token).getJWTClaimsSet();
+        assertThat(invalidatedTokenRepository.findById(claimsSet.getJWTID()))
+                .get()
+                .satisfies(revoked -> assertThat(revoked.getExpiryDate())
+                        .hasSameTimeAs(Date.from(claimsSet.getIssueTime().toInstant().plus(120, ChronoUnit.MINUTES))));
+
+        // Snapshot dựng lại sau exp vẫn giữ JTI
+        tokenDenylist.reload();
+        tokenDenylist.sync();
+        assertThat(tokenDenylist.isRevoked(claimsSet.getJWTID())).isTrue();
+        assertThatThrownBy(() -> tokenService.refreshToken(
+                        RefreshTokenRequest.builder().token(token).build()))
+                .isInstanceOf(AppException.class)
+                .hasMessage("Token đã hết hiệu lực");
+    }
+
+    private String login() {
+        return authenticationService
+                .authenticate(AuthenticationRequest.builder().username("alice").password("alice").build())
+                .getResult()
+                .getToken();
+    }
+}
@@ -0,0 +1,141 @@
+package com.hau.identity_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.hau.identity_service.cache.UserIdCache;
+import com.hau.identity_service.cache.UserResponseCache;
+import com.hau.identity_service.dto.response.CursorPageResponse;
+import com.hau.identity_service.dto.response.UserResponse;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.exception.AppException;
+import com.hau.identity_service.mapper.PermissionMapperImpl;
+import com.hau.identity_service.mapper.RoleMapperImpl;
+import com.hau.identity_service.mapper.UserMapperImpl;
+import com.hau.identity_service.repository.UserSpecifications.SearchMode;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({
+    UserService.class,
+    UserQueryService.class,
+    UserIdCache.class,
+    UserResponseCache.class,
+    UserMapperImpl.class,
+    RoleMapperImpl.class,
+    PermissionMapperImpl.class,
+    UserCursorPaginationTest.Config.class
+})
+class UserCursorPaginationTest {
+
+    private static final int USER_COUNT = 25;
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return NoOpPasswordEncoder.getInstance();
+        }
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < USER_COUNT; i++) {
+            entityManager.persist(
+                    User.builder().username("cursor-user-" + i).gender(i % 2).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void walksAllUsersByIdWithoutCountQueries() {
+        List<String> usernames = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPageResponse<UserResponse> page =
+                    userService.getUsersByCursor(cursor, 10, UserCursor.Order.ID, null, null, SearchMode.CONTAINS, null);
+            page.getContent().forEach(user -> usernames.add(user.getUsername()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(usernames).hasSize(USER_COUNT).doesNotHaveDuplicates();
+        assertThat(usernames.get(0)).isEqualTo("cursor-user-0");
+        // Mỗi trang một truy vấn user và một truy vấn role theo lô (user không có role nên không tra permissions),
+        // không có COUNT(*)
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2L * pages);
+    }
+
+    @Test
+    void createdAtOrderKeepsFiltersAndBreaksTiesById() {
+        List<String> usernames = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPageResponse<UserResponse> page = userService.getUsersByCursor(
+                    cursor, 4, UserCursor.Order.CREATED_AT, "cursor-user", null, SearchMode.PREFIX, 0);
+            page.getContent().forEach(user -> usernames.add(user.getUsername()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(usernames).hasSize(13).doesNotHaveDuplicates().allSatisfy(username -> assertThat(
+                        Integer.parseInt(username.substring("cursor-user-".length())) % 2)
+                .isZero());
+    }
+
+    @Test
+    void rejectsCursorOfAnotherOrderOrMalformedCursor() {
+        String idCursor = userService
+                .getUsersByCursor(null, 5, UserCursor.Order.ID, null, null, SearchMode.CONTAINS, null)
+                .getNextCursor();
+
+        assertThatThrownBy(() -> userService.getUsersByCursor(
+                        idCursor, 5, UserCursor.Order.CREATED_AT, null, null, SearchMode.CONTAINS, null))
+                .isInstanceOfSatisfying(
+                        AppException.class, e -> assertThat(e.getHttpStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> userService.getUsersByCursor(
+                        "not-a-cursor", 5, UserCursor.Order.ID, null, null, SearchMode.CONTAINS, null))
+                .isInstanceOf(AppException.class);
+    }
+}
@@ -0,0 +1,104 @@
+package com.hau.identity_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.hau.identity_service.PostgresTest;
+
+/**
+ * Xuất một triệu user trên PostgreSQL thật (fetch size chỉ có tác dụng với cursor của PostgreSQL), xem
+ * {@link PostgresTest}. Heap sau GC được đo định kỳ trong lúc ghi và không được tăng quá một ngưỡng nhỏ so với trước
+ * khi xuất.
+ */
+@PostgresTest
+@DataJpaTest(
+        properties = {
+            "user.search.createIndexes=false"
+        })
+@Import(UserExportService.class)
+class UserExportMemoryTest {
+
+    private static final int USER_COUNT = 1_000_000;
+    // Một triệu dòng nếu bị giữ lại trong bộ nhớ chiếm vài trăm MB
+    private static final long MAX_HEAP_GROWTH_BYTES = 64L * 1024 * 1024;
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void exportsMillionUsersWithBoundedHeap() throws Exception {
+        jdbcTemplate.update("insert into roles (name) values ('USER'), ('ADMIN')");
+        jdbcTemplate.update("insert into users (username, email, gender, created_at) "
+                + "select 'user' || g, 'user' || g || '@example.com', g % 2, now() "
+                + "from generate_series(1, " + USER_COUNT + ") g");
+        jdbcTemplate.update("insert into users_roles (user_id, roles_name) select id, 'USER' from users");
+        jdbcTemplate.update("insert into users_roles (user_id, roles_name) select id, 'ADMIN' from users where id % 1000 = 0");
+        // Không có thống kê thì planner quét toàn bảng users_roles cho mỗi lô role
+        jdbcTemplate.execute("analyze");
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = usedHeapAfterGc(memory);
+        HeapSamplingOutputStream out = new HeapSamplingOutputStream(memory);
+
+        long rows = userExportService.export(UserExportService.Format.NDJSON, null, out);
+
+        assertThat(rows).isEqualTo(USER_COUNT);
+        assertThat(out.lines).isEqualTo(USER_COUNT);
+        assertThat(out.samples).isGreaterThan(5);
+        assertThat(out.peakUsedHeap - baseline).isLessThan(MAX_HEAP_GROWTH_BYTES);
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    // Bỏ dữ liệu đi, chỉ đếm dòng và đo heap sau mỗi 16 MB đã ghi
+    private static final class HeapSamplingOutputStream extends OutputStream {
+
+        private static final long SAMPLE_EVERY_BYTES = 16L * 1024 * 1024;
+
+        private final MemoryMXBean memory;
+        private long bytes;
+        private long nextSampleAt = SAMPLE_EVERY_BYTES;
+        long lines;
+        int samples;
+        long peakUsedHeap;
+
+        HeapSamplingOutputStream(MemoryMXBean memory) {
+            this.memory = memory;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (buffer[i] == '\n') {
+                    lines++;
+                }
+            }
+            bytes += length;
+            if (bytes >= nextSampleAt) {
+                nextSampleAt += SAMPLE_EVERY_BYTES;
+                samples++;
+                peakUsedHeap = Math.max(peakUsedHeap, usedHeapAfterGc(memory));
+            }
+        }
+    }
+}
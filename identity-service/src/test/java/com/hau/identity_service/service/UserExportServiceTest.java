@@ -0,0 +1,107 @@
+package com.hau.identity_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hau.identity_service.entity.Role;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.repository.UserSpecifications;
+import com.hau.identity_service.repository.UserSpecifications.SearchMode;
+
+@DataJpaTest(properties = "user.export.batchSize=2")
+@Import(UserExportService.class)
+class UserExportServiceTest {
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Role admin = Role.builder().name("ADMIN").build();
+        Role user = Role.builder().name("USER").build();
+        entityManager.persist(admin);
+        entityManager.persist(user);
+        entityManager.persist(User.builder()
+                .username("alice")
+                .email("alice@example.com")
+                .gender(1)
+                .roles(Set.of(user, admin))
+                .build());
+        entityManager.persist(User.builder()
+                .username("bob")
+                .address("12 \"Main\" St, Hanoi")
+                .gender(0)
+                .roles(Set.of(user))
+                .build());
+        entityManager.persist(User.builder().username("carol").gender(1).build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void writesOneJsonObjectPerLineWithRoles() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = userExportService.export(UserExportService.Format.NDJSON, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(rows).isEqualTo(3);
+        assertThat(lines).hasSize(3);
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode alice = objectMapper.readTree(lines[0]);
+        assertThat(alice.get("username").asText()).isEqualTo("alice");
+        assertThat(alice.get("roles")).extracting(JsonNode::asText).containsExactly("ADMIN", "USER");
+        assertThat(alice.has("password")).isFalse();
+        assertThat(objectMapper.readTree(lines[2]).get("roles")).isEmpty();
+    }
+
+    @Test
+    void writesQuotedCsvAndAppliesFilters() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = userExportService.export(
+                UserExportService.Format.CSV, UserSpecifications.search("b", null, SearchMode.PREFIX, 0), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(rows).isEqualTo(1);
+        assertThat(lines[0]).isEqualTo("id,username,email,phone,address,profileImage,gender,createdAt,roles");
+        assertThat(lines[1]).contains(",bob,,,\"12 \"\"Main\"\" St, Hanoi\",,0,").endsWith(",USER");
+    }
+
+    @Test
+    void neutralisesSpreadsheetFormulasInCsv() throws Exception {
+        entityManager.persist(User.builder()
+                .username("@mallory")
+                .email("=HYPERLINK(\"http://evil.example\",\"x\")")
+                .phone("+84912345678")
+                .address("-2+3")
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        userExportService.export(
+                UserExportService.Format.CSV, UserSpecifications.search("@mallory", null, SearchMode.EXACT, null), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[1])
+                .contains(",'@mallory,\"'=HYPERLINK(\"\"http://evil.example\"\",\"\"x\"\")\",'+84912345678,'-2+3,");
+    }
+}
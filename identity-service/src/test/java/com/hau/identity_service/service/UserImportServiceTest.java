@@ -0,0 +1,219 @@
+package com.hau.identity_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import com.hau.identity_service.cache.UserIdCache;
+import com.hau.identity_service.cache.UserResponseCache;
+import com.hau.identity_service.dto.request.UserImportRequest;
+import com.hau.identity_service.dto.response.UserImportResponse;
+import com.hau.identity_service.dto.response.UserImportResponse.RowResult;
+import com.hau.identity_service.dto.response.UserImportResponse.Status;
+import com.hau.identity_service.exception.AppException;
+import com.hau.identity_service.security.AdaptivePasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest(properties = {"user.import.batchSize=2", "user.import.hashingThreads=2"})
+@Import({
+    UserImportService.class,
+    AdaptivePasswordEncoder.class,
+    UserIdCache.class,
+    UserResponseCache.class,
+    UserImportServiceTest.Config.class
+})
+// Mỗi lô import chạy trong transaction riêng
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserImportServiceTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        LocalValidatorFactoryBean validator() {
+            return new LocalValidatorFactoryBean();
+        }
+    }
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @MockitoSpyBean
+    private AdaptivePasswordEncoder adaptivePasswordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("insert into roles (name) values ('USER')");
+        jdbcTemplate.update("insert into users (username, email) values ('existing', 'existing@example.com')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from users_roles");
+        jdbcTemplate.update("delete from users");
+        jdbcTemplate.update("delete from roles");
+    }
+
+    @Test
+    void reportsResultOfEveryRow() {
+        String legacyHash = new BCryptPasswordEncoder(4).encode("legacy-secret");
+
+        UserImportResponse response = userImportService.importUsers(List.of(
+                user("alice").password("alice-secret").build(),
+                user("existing").password("secret1").build(),
+                user("alice").password("another").build(),
+                user("bob").passwordHash(legacyHash).build(),
+                user("carol").passwordHash("plain-text").build(),
+                user("dave").password("secret1").passwordHash(legacyHash).build(),
+                user("erin").email("not-an-email").password("secret1").build(),
+                user("frank").password("frank-secret").build()));
+
+        assertThat(statuses(response))
+                .containsExactly(
+                        Status.CREATED,
+                        Status.DUPLICATE,
+                        Status.DUPLICATE,
+                        Status.CREATED,
+                        Status.INVALID,
+                        Status.INVALID,
+                        Status.INVALID,
+                        Status.CREATED);
+        assertThat(response.getCreated()).isEqualTo(3);
+        assertThat(response.getFailed()).isEqualTo(5);
+
+        Map<String, String> passwords = jdbcTemplate
+                .queryForList("select username, password from users where password is not null").stream()
+                .collect(Collectors.toMap(
+                        row -> (String) row.get("USERNAME"), row -> (String) row.get("PASSWORD")));
+        assertThat(adaptivePasswordEncoder.matches("alice-secret", passwords.get("alice"))).isTrue();
+        assertThat(passwords.get("bob")).isEqualTo(legacyHash);
+        assertThat(jdbcTemplate.queryForObject(
+                        "select count(*) from users_roles ur join users u on u.id = ur.user_id "
+                                + "where ur.roles_name = 'USER' and u.username in ('alice', 'bob', 'frank')",
+                        Integer.class))
+                .isEqualTo(3);
+    }
+
+    @Test
+    void retriesFailedBatchRowByRow() {
+        UserImportResponse response = userImportService.importUsers(List.of(
+                user("gina").password("secret1").build(),
+                user("hank").password("secret1").address("x".repeat(300)).build(),
+                user("ivan").password("secret1").build()));
+
+        assertThat(statuses(response)).containsExactly(Status.CREATED, Status.FAILED, Status.CREATED);
+        assertThat(jdbcTemplate.queryForObject(
+                        "select count(*) from users where username in ('gina', 'hank', 'ivan')", Integer.class))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void importsQuotedCsvWithAnyColumnOrder() throws Exception {
+        String csv = "email,username,password,address,gender\r\n"
+                + "jane@example.com,jane,secret1,\"12 \"\"Main\"\" St,\r\nHanoi\",1\r\n"
+                + "kim@example.com,kim,secret2,,\n";
+
+        UserImportResponse response = userImportService.importUsersFromCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(statuses(response)).containsExactly(Status.CREATED, Status.CREATED);
+        assertThat(jdbcTemplate.queryForObject("select address from users where username = 'jane'", String.class))
+                .isEqualTo("12 \"Main\" St,\r\nHanoi");
+        assertThat(jdbcTemplate.queryForObject("select gender from users where username = 'kim'", Integer.class))
+                .isNull();
+    }
+
+    @Test
+    void reportsNonNumericGenderAsInvalidRow() throws Exception {
+        String csv = "username,email,password,gender\n"
+                + "lily,lily@example.com,secret1,1\n"
+                + "mona,mona@example.com,secret1,female\n"
+                + "nick,nick@example.com,secret1,\n";
+
+        UserImportResponse response = userImportService.importUsersFromCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(statuses(response)).containsExactly(Status.CREATED, Status.INVALID, Status.CREATED);
+        assertThat(response.getRows().get(1).getMessage()).isEqualTo("gender phải là số nguyên");
+        assertThat(jdbcTemplate.queryForObject(
+                        "select count(*) from users where username in ('lily', 'mona', 'nick')", Integer.class))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void reportsHashingFailureAsFailedRow() {
+        doThrow(new IllegalStateException("Bộ băm lỗi")).when(adaptivePasswordEncoder).encode("broken1");
+
+        UserImportResponse response = userImportService.importUsers(List.of(
+                user("olga").password("secret1").build(),
+                user("paul").password("broken1").build(),
+                user("quinn").password("secret1").build()));
+
+        assertThat(statuses(response)).containsExactly(Status.CREATED, Status.FAILED, Status.CREATED);
+        assertThat(jdbcTemplate.queryForObject(
+                        "select count(*) from users where username in ('olga', 'paul', 'quinn')", Integer.class))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void limitsPlaintextPasswordsPerImport() {
+        ReflectionTestUtils.setField(userImportService, "maxPasswordRows", 2);
+        try {
+            String hash = new BCryptPasswordEncoder(4).encode("secret1");
+            assertThatThrownBy(() -> userImportService.importUsers(List.of(
+                            user("lena").password("secret1").build(),
+                            user("mike").password("secret1").build(),
+                            user("nora").password("secret1").build())))
+                    .isInstanceOf(AppException.class)
+                    .hasMessageStartingWith("Mỗi lần import tối đa 2 user có mật khẩu chưa băm");
+
+            // Dòng đã có passwordHash không phải băm nên không bị tính
+            UserImportResponse response = userImportService.importUsers(List.of(
+                    user("lena").password("secret1").build(),
+                    user("mike").password("secret1").build(),
+                    user("nora").passwordHash(hash).build()));
+            assertThat(response.getCreated()).isEqualTo(3);
+        } finally {
+            ReflectionTestUtils.setField(userImportService, "maxPasswordRows", 1000);
+        }
+    }
+
+    private static UserImportRequest.UserImportRequestBuilder user(String username) {
+        return UserImportRequest.builder().username(username).email(username + "@example.com");
+    }
+
+    private static List<Status> statuses(UserImportResponse response) {
+        return response.getRows().stream().map(RowResult::getStatus).toList();
+    }
+}
@@ -0,0 +1,162 @@
+package com.hau.identity_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import com.hau.identity_service.cache.UserIdCache;
+import com.hau.identity_service.cache.UserResponseCache;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.mapper.PermissionMapperImpl;
+import com.hau.identity_service.mapper.RoleMapperImpl;
+import com.hau.identity_service.mapper.UserMapperImpl;
+import com.hau.identity_service.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * {@link UserService#isOwnerOfUser} và {@link UserService#myInfo} dùng claim {@code uid} khi có, token cũ thì tra id
+ * theo username qua {@link UserIdCache}. Id trong bảng là {@code Integer} còn id trên đường dẫn là {@code Long}.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({
+    UserService.class,
+    UserQueryService.class,
+    UserIdCache.class,
+    UserResponseCache.class,
+    UserMapperImpl.class,
+    RoleMapperImpl.class,
+    PermissionMapperImpl.class,
+    UserOwnershipTest.Config.class
+})
+class UserOwnershipTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return NoOpPasswordEncoder.getInstance();
+        }
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserIdCache userIdCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long aliceId;
+    private Long bobId;
+
+    @BeforeEach
+    void setUp() {
+        User alice = User.builder().username("alice").password("alice").build();
+        User bob = User.builder().username("bob").password("bob").build();
+        entityManager.persist(alice);
+        entityManager.persist(bob);
+        entityManager.flush();
+        entityManager.clear();
+        aliceId = alice.getId().longValue();
+        bobId = bob.getId().longValue();
+        // Context (và cache) dùng chung giữa các test, còn user được tạo lại với id mới sau mỗi lần rollback
+        userIdCache.evict("alice");
+        userIdCache.evict("bob");
+    }
+
+    @Test
+    void matchingUidClaimIsOwner() {
+        assertThat(userService.isOwnerOfUser(aliceId, token("alice", aliceId))).isTrue();
+    }
+
+    @Test
+    void mismatchingUidClaimIsNotOwnerEvenIfUsernameMatches() {
+        // Claim đã ký được tin tuyệt đối, không tra lại theo username
+        assertThat(userService.isOwnerOfUser(aliceId, token("alice", bobId))).isFalse();
+        assertThat(userService.isOwnerOfUser(bobId, token("alice", aliceId))).isFalse();
+    }
+
+    @Test
+    void legacyTokenFallsBackToUserIdCache() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertThat(userService.isOwnerOfUser(aliceId, token("alice", null))).isTrue();
+        assertThat(userService.isOwnerOfUser(bobId, token("alice", null))).isFalse();
+        // Lần thứ hai lấy id từ cache
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownUsernameIsNotOwner() {
+        assertThat(userService.isOwnerOfUser(aliceId, token("mallory", null))).isFalse();
+        assertThat(userIdCache.findId("mallory")).isEmpty();
+    }
+
+    @Test
+    void convertsIntegerIdFromRepositoryToLong() {
+        assertThat(userRepository.findIdByUsername("alice")).containsInstanceOf(Integer.class);
+        assertThat(userIdCache.findId("alice")).containsInstanceOf(Long.class).contains(aliceId);
+
+        // Long ngoài khoảng Integer không được cắt bớt thành id trùng
+        Long overflowing = aliceId + (1L << 32);
+        assertThat(userService.isOwnerOfUser(overflowing, token("alice", null))).isFalse();
+        assertThat(userService.isOwnerOfUser(overflowing, token("alice", aliceId))).isFalse();
+        // Claim uid đọc từ JSON có thể là Integer
+        assertThat(userService.isOwnerOfUser(aliceId, token("alice", aliceId.intValue()))).isTrue();
+    }
+
+    @Test
+    void myInfoReadsUidClaimBeforeUsername() {
+        try {
+            // Claim đã ký quyết định user, kể cả khi subject trỏ tới user khác
+            SecurityContextHolder.getContext().setAuthentication(token("alice", bobId));
+            assertThat(userService.myInfo().getResult().getUsername()).isEqualTo("bob");
+
+            SecurityContextHolder.getContext().setAuthentication(token("alice", null));
+            assertThat(userService.myInfo().getResult().getUsername()).isEqualTo("alice");
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static JwtAuthenticationToken token(String username, Number userId) {
+        Jwt.Builder jwt = Jwt.withTokenValue("token").header("alg", "HS512").subject(username);
+        if (userId != null) {
+            jwt.claim(TokenService.USER_ID_CLAIM, userId);
+        }
+        return new JwtAuthenticationToken(jwt.build(), List.of());
+    }
+}
@@ -0,0 +1,201 @@
+package com.hau.identity_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.hau.identity_service.cache.UserIdCache;
+import com.hau.identity_service.cache.UserResponseCache;
+import com.hau.identity_service.dto.response.PermissionResponse;
+import com.hau.identity_service.dto.response.RoleResponse;
+import com.hau.identity_service.dto.response.UserResponse;
+import com.hau.identity_service.entity.Permission;
+import com.hau.identity_service.entity.Role;
+import com.hau.identity_service.entity.User;
+import com.hau.identity_service.mapper.PermissionMapperImpl;
+import com.hau.identity_service.mapper.RoleMapperImpl;
+import com.hau.identity_service.mapper.UserMapperImpl;
+import com.hau.identity_service.repository.UserSpecifications.SearchMode;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Đếm truy vấn trên các đường đọc user để phát hiện N+1 khi roles/permissions bị lazy load trở lại, và kiểm tra cột
+ * password không bao giờ được đọc.
+ */
+@DataJpaTest(
+        properties = {
+            "spring.jpa.properties.hibernate.generate_statistics=true",
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                    + "com.hau.identity_service.service.UserReadQueryCountTest$CapturingStatementInspector"
+        })
+@Import({
+    UserService.class,
+    UserQueryService.class,
+    UserIdCache.class,
+    UserResponseCache.class,
+    UserMapperImpl.class,
+    RoleMapperImpl.class,
+    PermissionMapperImpl.class,
+    UserReadQueryCountTest.Config.class
+})
+class UserReadQueryCountTest {
+
+    private static final int USER_COUNT = 30;
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return NoOpPasswordEncoder.getInstance();
+        }
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Integer firstUserId;
+
+    @BeforeEach
+    void setUp() {
+        Permission read = Permission.builder().name("USER_READ").build();
+        Permission delete = Permission.builder().name("USER_DELETE").build();
+        Permission profile = Permission.builder().name("PROFILE_UPDATE").build();
+        entityManager.persist(read);
+        entityManager.persist(delete);
+        entityManager.persist(profile);
+
+        Role admin = Role.builder().name("ADMIN").permissions(Set.of(read, delete)).build();
+        Role user = Role.builder().name("USER").permissions(Set.of(profile)).build();
+        entityManager.persist(admin);
+        entityManager.persist(user);
+
+        for (int i = 0; i < USER_COUNT; i++) {
+            User entity = User.builder()
+                    .username("reader-" + i)
+                    .password("secret-" + i)
+                    .roles(i % 3 == 0 ? Set.of(admin, user) : Set.of(user))
+                    .build();
+            entityManager.persist(entity);
+            if (i == 0) {
+                firstUserId = entity.getId();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("reader-0", null));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CapturingStatementInspector.STATEMENTS.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void listPageLoadsRolesAndPermissionsInTwoBatchedQueries() {
+        Page<UserResponse> page = userService.getAllUsers(0, 10, null, null, SearchMode.CONTAINS, null);
+
+        assertThat(page.getContent()).hasSize(10);
+        assertThat(page.getTotalElements()).isEqualTo(USER_COUNT);
+        assertThat(page.getContent()).allSatisfy(user -> assertThat(user.getRoles())
+                .extracting(RoleResponse::getName)
+                .contains("USER"));
+        // Trang, COUNT(*), cặp user-role và permissions của các role
+        assertNoLazyLoads(4);
+    }
+
+    @Test
+    void userByIdIsReadWithoutEntityAndServedFromCacheAfterwards() {
+        UserResponse user = userService.getUserById(firstUserId.longValue()).getResult();
+
+        assertThat(user.getUsername()).isEqualTo("reader-0");
+        assertThat(user.getRoles())
+                .filteredOn(role -> role.getName().equals("ADMIN"))
+                .singleElement()
+                .satisfies(role -> assertThat(role.getPermissions())
+                        .extracting(PermissionResponse::getName)
+                        .containsExactly("USER_DELETE", "USER_READ"));
+        assertNoLazyLoads(3);
+
+        statistics.clear();
+        userService.getUserById(firstUserId.longValue());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void myInfoResolvesIdThenReadsProjection() {
+        UserResponse user = userService.myInfo().getResult();
+
+        assertThat(user.getId()).isEqualTo(String.valueOf(firstUserId));
+        assertThat(user.getRoles()).extracting(RoleResponse::getName).containsExactlyInAnyOrder("ADMIN", "USER");
+        // Tra id theo username rồi ba truy vấn như getUserById
+        assertNoLazyLoads(4);
+    }
+
+    @Test
+    void cursorPageLoadsRolesInBatchesInsteadOfPerUser() {
+        var page = userService.getUsersByCursor(null, 20, UserCursor.Order.ID, null, null, SearchMode.CONTAINS, null);
+
+        assertThat(page.getContent()).hasSize(20);
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+        // Trang theo cursor rồi hai truy vấn theo lô, không phụ thuộc số user trong trang
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    private void assertNoLazyLoads(int expectedStatements) {
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(expectedStatements);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+        assertThat(CapturingStatementInspector.STATEMENTS).noneMatch(sql -> sql.contains("password"));
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}